@@ -1,9 +1,205 @@
 import lombok.Data;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
 
 public class Graph {
+    private static final String USAGE =
+            "用法：java Graph [reorder [网格边长，默认1000]] | [flow [每层顶点数，默认2000]] | [网格边长]";
 
+    /**
+     * 基准测试入口
+     * 用法：java Graph [reorder [网格边长，默认1000]] | [flow [每层顶点数，默认2000]]，不带参数时两项都跑；
+     * 只给一个数字时按原来的用法跑顶点重排基准测试，该数字为网格边长
+     */
+    public static void main(String[] args) {
+        String which = args.length > 0 ? args[0] : "all";
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : -1;
+        if (!which.isEmpty() && which.chars().allMatch(Character::isDigit)) {
+            which = "reorder";
+            size = Integer.parseInt(args[0]);
+        }
+        switch (which) {
+            case "all":
+                reorderBenchmark(size > 0 ? size : 1000);
+                flowBenchmark(size > 0 ? size : 2000);
+                break;
+            case "reorder":
+                reorderBenchmark(size > 0 ? size : 1000);
+                break;
+            case "flow":
+                flowBenchmark(size > 0 ? size : 2000);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的基准测试：" + which + "\n" + USAGE);
+        }
+    }
+
+    /**
+     * 顶点重排基准测试：在编号被打乱的网格图（类似路网）上比较原图与各种重排后BFS、Dijkstra的耗时
+     */
+    private static void reorderBenchmark(int side) {
+        CSRGraph shuffled = shuffledGrid(side, 42);
+        System.out.println("顶点数：" + shuffled.getVertexCount() + "，弧数：" + shuffled.getArcCount());
+
+        int[] sources = {0, shuffled.getVertexCount() / 2};
+        long base = benchmark("原图（插入顺序）", shuffled, sources);
+        report("RCM", GraphReordering.reverseCuthillMcKee(shuffled), sources, base);
+        report("度数降序", GraphReordering.degreeDescending(shuffled), sources, base);
+        report("BFS序", GraphReordering.bfsOrder(shuffled), sources, base);
+    }
+
+    /**
+     * 最大流基准测试：随机分层网络（每层width个顶点，每个顶点连向下一层的8个随机顶点）
+     * 和随机容量的网格（左列连源点、右列连汇点），比较Dinic与推进-重标号
+     */
+    private static void flowBenchmark(int width) {
+        Random random = new Random(7);
+        int layers = 50;
+        int n = layers * width + 2;
+        int source = n - 2;
+        int sink = n - 1;
+        DynamicGraph layered = new DynamicGraph(n, GraphType.DIRECTED);
+        layered.ensureVertexCount(n);
+        for (int i = 0; i < width; i++) {
+            layered.addEdge(source, i, 1_000_000);
+            layered.addEdge((layers - 1) * width + i, sink, 1_000_000);
+        }
+        for (int l = 0; l + 1 < layers; l++) {
+            for (int i = 0; i < width; i++) {
+                for (int k = 0; k < 8; k++) {
+                    layered.addEdge(l * width + i, (l + 1) * width + random.nextInt(width), 1 + random.nextInt(1000));
+                }
+            }
+        }
+        flowRound("分层网络", layered.toCSR(), source, sink);
+
+        int side = width / 4;
+        n = side * side + 2;
+        source = n - 2;
+        sink = n - 1;
+        DynamicGraph grid = new DynamicGraph(n, GraphType.UNDIRECTED);
+        grid.ensureVertexCount(n);
+        for (int r = 0; r < side; r++) {
+            grid.addEdge(source, r * side, 1_000_000);
+            grid.addEdge(r * side + side - 1, sink, 1_000_000);
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    grid.addEdge(r * side + c, r * side + c + 1, 1 + random.nextInt(100));
+                }
+                if (r + 1 < side) {
+                    grid.addEdge(r * side + c, (r + 1) * side + c, 1 + random.nextInt(100));
+                }
+            }
+        }
+        flowRound("网格", grid.toCSR(), source, sink);
+    }
+
+    private static void flowRound(String name, CSRGraph graph, int source, int sink) {
+        System.out.println(name + "：顶点数" + graph.getVertexCount() + "，弧数" + graph.getArcCount());
+        long t0 = System.nanoTime();
+        long dinic = MaxFlow.dinic(graph, source, sink).value;
+        long t1 = System.nanoTime();
+        long pushRelabel = MaxFlow.pushRelabel(graph, source, sink).value;
+        long t2 = System.nanoTime();
+        System.out.printf("  Dinic %.1f ms，推进-重标号 %.1f ms，最大流 %d / %d%n",
+                (t1 - t0) / 1e6, (t2 - t1) / 1e6, dinic, pushRelabel);
+    }
+
+    private static void report(String name, GraphReordering.Result result, int[] sources, long base) {
+        int[] mapped = new int[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            mapped[i] = result.oldToNew[sources[i]]; //同一批起点换算成新编号
+        }
+        long t = benchmark(name, result.graph, mapped);
+        System.out.printf("  加速比：%.2fx%n", (double) base / t);
+    }
+
+    // 每轮从所有起点各跑一次BFS和Dijkstra，取3轮中各自最快的一轮
+    private static long benchmark(String name, CSRGraph graph, int[] sources) {
+        long bestBfs = Long.MAX_VALUE;
+        long bestDijkstra = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long bfs = 0;
+            long dijkstra = 0;
+            for (int s : sources) {
+                long t0 = System.nanoTime();
+                BFSShortestPath.bfsShortestPath(graph, s);
+                long t1 = System.nanoTime();
+                DijkstraShortestPath.dijkstra(graph, s);
+                long t2 = System.nanoTime();
+                bfs += t1 - t0;
+                dijkstra += t2 - t1;
+            }
+            bestBfs = Math.min(bestBfs, bfs);
+            bestDijkstra = Math.min(bestDijkstra, dijkstra);
+        }
+        System.out.printf("%s：BFS %.1f ms，Dijkstra %.1f ms%n", name, bestBfs / 1e6, bestDijkstra / 1e6);
+        return bestBfs + bestDijkstra;
+    }
+
+    // side*side的四邻接网格，随机权重1~100，顶点编号随机打乱以模拟插入顺序
+    private static CSRGraph shuffledGrid(int side, long seed) {
+        Random random = new Random(seed);
+        int vcount = side * side;
+        int[] label = new int[vcount];
+        for (int i = 0; i < vcount; i++) {
+            label[i] = i;
+        }
+        for (int i = vcount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = label[i];
+            label[i] = label[j];
+            label[j] = t;
+        }
+        DynamicGraph graph = new DynamicGraph(vcount, GraphType.UNDIRECTED);
+        graph.ensureVertexCount(vcount);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int u = label[r * side + c];
+                if (c + 1 < side) {
+                    graph.addEdge(u, label[r * side + c + 1], 1 + random.nextInt(100));
+                }
+                if (r + 1 < side) {
+                    graph.addEdge(u, label[(r + 1) * side + c], 1 + random.nextInt(100));
+                }
+            }
+        }
+        return graph.toCSR();
+    }
 }
 @Data
 class Edge implements Comparable<Edge> {
@@ -35,7 +231,53 @@ enum GraphType {
     UNDIRECTED  // 无向图
 }
 
-class AdjacencyMatrixGraph {
+/**
+ * 只读图接口：各种存储方式（CSR、堆外、快照等）都实现它，遍历算法只需写一份
+ */
+interface GraphView {
+    /**
+     * 获取顶点数
+     */
+    int getVertexCount();
+
+    /**
+     * 获取图类型
+     */
+    GraphType getGraphType();
+
+    /**
+     * 获取顶点u的出度
+     */
+    int degree(int u);
+
+    /**
+     * 新建一个邻接边游标；算法开始时创建一次，之后对每个顶点reset复用，遍历过程不产生任何对象
+     */
+    NeighborCursor cursor();
+}
+
+/**
+ * 邻接边游标：用法为 cursor.reset(u); for (int v = cursor.next(); v != -1; v = cursor.next()) {...}
+ */
+interface NeighborCursor {
+    /**
+     * 定位到顶点u的第一条边之前
+     */
+    void reset(int u);
+
+    /**
+     * 前进到下一条边
+     * @return 边的终点，没有更多边时返回-1
+     */
+    int next();
+
+    /**
+     * 获取上一次next返回的边的权重
+     */
+    int weight();
+}
+
+class AdjacencyMatrixGraph implements GraphView {
     private Object[] vertices;       // 存储顶点数据
     private int[][] adjMatrix;       // 邻接矩阵：adjMatrix[i][j]表示i到j的权重
     private int vertexCount;         // 顶点数
@@ -107,6 +349,60 @@ class AdjacencyMatrixGraph {
         return vertexCount;
     }
 
+    /**
+     * 获取图类型
+     */
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    /**
+     * 获取顶点u的出度（需要扫描一整行）
+     */
+    public int degree(int u) {
+        int count = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            if (v != u && adjMatrix[u][v] != INF) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 按列号顺序遍历一行中的邻接顶点：INF表示无边，对角线是顶点自身，均跳过
+     */
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private int[] row;
+            private int u;
+            private int col;
+
+            @Override
+            public void reset(int u) {
+                this.row = adjMatrix[u];
+                this.u = u;
+                this.col = 0;
+            }
+
+            @Override
+            public int next() {
+                while (col < vertexCount) {
+                    int v = col++;
+                    if (v != u && row[v] != INF) {
+                        return v;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            public int weight() {
+                return row[col - 1];
+            }
+        };
+    }
+
     /**
      * 获取顶点数据
      */
@@ -140,7 +436,7 @@ class AdjacencyMatrixGraph {
     }
 }
 
-class AdjacencyListGraph {
+class AdjacencyListGraph implements GraphView {
     private Object[] vertices;       // 存储顶点数据
     private List<List<Edge>> adjList; // 邻接表：adjList[i]存储顶点i的所有邻接边
     private int vertexCount;         // 顶点数
@@ -208,6 +504,46 @@ class AdjacencyListGraph {
         return vertexCount;
     }
 
+    /**
+     * 获取图类型
+     */
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    /**
+     * 获取顶点u的出度
+     */
+    public int degree(int u) {
+        return adjList.get(u).size();
+    }
+
+    /**
+     * 按插入顺序遍历顶点的邻接边（只读取已有的Edge，不产生新对象）
+     */
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private List<Edge> edges;
+            private int pos;
+
+            @Override
+            public void reset(int u) {
+                edges = adjList.get(u);
+                pos = 0;
+            }
+
+            @Override
+            public int next() {
+                return pos < edges.size() ? edges.get(pos++).to : -1;
+            }
+
+            @Override
+            public int weight() {
+                return edges.get(pos - 1).weight;
+            }
+        };
+    }
+
     /**
      * 获取顶点数据
      */
@@ -238,52 +574,30 @@ class AdjacencyListGraph {
 class GraphBFS {
     /**
      * 广度优先遍历（从指定起点开始）
-     * @param graph 邻接表图
+     * 邻接表、邻接矩阵、CSR、堆外存储、版本快照等都通过GraphView共用这一份实现
+     * @param graph 只读图
      * @param startIndex 起始顶点索引
      * @return 遍历顺序的顶点索引列表
      */
-    public static List<Integer> bfs(AdjacencyListGraph graph, int startIndex) {
+    public static List<Integer> bfs(GraphView graph, int startIndex) {
         List<Integer> res = new ArrayList<>();
         int vcount = graph.getVertexCount();
         boolean[] visited = new boolean[vcount];
-        Queue<Integer> queue = new LinkedList<>();
+        int[] queue = new int[vcount];
+        int head = 0;
+        int tail = 0;
+        NeighborCursor cursor = graph.cursor();
 
-        queue.offer(startIndex);
+        queue[tail++] = startIndex;
         visited[startIndex] = true;
-
-        while(!queue.isEmpty()){
-            int curr = queue.poll();
+        while(head < tail){
+            int curr = queue[head++];
             res.add(curr);
 
-            for (Edge edge : graph.getAdjList().get(curr)) {
-                int next = edge.to;
+            cursor.reset(curr);
+            for (int next = cursor.next(); next != -1; next = cursor.next()) {
                 if(!visited[next]){
-                    queue.offer(next);
-                    visited[next] = true;
-                }
-            }
-        }
-        return res;
-    }
-
-    // 适配邻接矩阵的BFS（逻辑相同，仅查询邻接边方式不同）
-    public static List<Integer> bfs(AdjacencyMatrixGraph graph, int startIndex) {
-        List<Integer> res = new ArrayList<>();
-        Queue<Integer> queue = new LinkedList<>();
-        int vcount = graph.getVertexCount();
-        boolean[] visited = new boolean[vcount];
-        int INF = AdjacencyMatrixGraph.INF;
-
-        queue.offer(startIndex);
-        visited[startIndex] = true;
-        while(!queue.isEmpty()){
-            int curr = queue.poll();
-            res.add(curr);
-
-            for (int i = 0; i < vcount; i++) {
-                int next = graph.getAdjMatrix()[curr][i];
-                if(next != INF && next != 0 && !visited[next] ){
-                    queue.offer(next);
+                    queue[tail++] = next;
                     visited[next] = true;
                 }
             }
@@ -295,73 +609,89 @@ class GraphDFS {
     /**
      * 递归版DFS（从指定起点开始）
      *
-     * @param graph      邻接表图
+     * @param graph      只读图
      * @param startIndex 起始顶点索引
      * @return 遍历顺序的顶点索引列表
      */
-    public static List<Integer> dfsRecursive(AdjacencyListGraph graph, int startIndex) {
+    public static List<Integer> dfsRecursive(GraphView graph, int startIndex) {
         List<Integer> res = new ArrayList<>();
         int vcount = graph.getVertexCount();
         boolean[] visited = new boolean[vcount];
-        dfs(graph, startIndex, visited, res);
+        dfs(graph, startIndex, visited, res, new ArrayList<>(), 0);
         return res;
 
     }
 
-    // 递归辅助方法
-    private static void dfs(AdjacencyListGraph graph, int curr, boolean[] visited, List<Integer> result) {
+    // 递归辅助方法：每层递归使用一个游标，游标按深度复用
+    private static void dfs(GraphView graph, int curr, boolean[] visited, List<Integer> result,
+                            List<NeighborCursor> frames, int depth) {
         visited[curr] = true;
         result.add(curr);
 
-        for (Edge edge : graph.getAdjList().get(curr)) {
-            int next = edge.to;
+        if (depth == frames.size()) {
+            frames.add(graph.cursor());
+        }
+        NeighborCursor cursor = frames.get(depth);
+        cursor.reset(curr);
+        for (int next = cursor.next(); next != -1; next = cursor.next()) {
             if (!visited[next]) {
-                dfs(graph, next, visited, result);
+                dfs(graph, next, visited, result, frames, depth + 1);
             }
         }
     }
 
-
-    // 适配邻接矩阵的递归版DFS
-
-    public static List<Integer> dfsRecursive(AdjacencyMatrixGraph graph,int startindex){
+    /**
+     * 非递归DFS（显式栈实现，访问顺序与递归版相同，超深的图也不会栈溢出）
+     *
+     * @param graph      只读图
+     * @param startIndex 起始顶点索引
+     * @return 遍历顺序的顶点索引列表
+     */
+    public static List<Integer> dfs(GraphView graph, int startIndex) {
         List<Integer> res = new ArrayList<>();
         int vcount = graph.getVertexCount();
         boolean[] visited = new boolean[vcount];
-        dfs(graph,startindex,visited,res);
-
-        return res;
-
-    }
-
-    private static void dfs(AdjacencyMatrixGraph graph,int curr, boolean[] visited, List<Integer> result){
-        visited[curr] = true;
-        result.add(curr);
+        //每层栈帧一个游标，记录该顶点下一条待处理的边；游标按深度复用
+        NeighborCursor[] frames = new NeighborCursor[16];
+        int depth = 0;
 
-        for (int i = 0; i < graph.getVertexCount(); i++) {
-            int next = graph.getAdjMatrix()[curr][i];
-            if(next != Integer.MAX_VALUE && next != 0 && !visited[next]){
-                dfs(graph,next,visited,result);
+        visited[startIndex] = true;
+        res.add(startIndex);
+        frames[0] = graph.cursor();
+        frames[0].reset(startIndex);
+        while (depth >= 0) {
+            int next = frames[depth].next();
+            if (next == -1) {
+                depth--; //当前顶点的边处理完毕，回溯
+            } else if (!visited[next]) {
+                visited[next] = true;
+                res.add(next);
+                if (++depth == frames.length) {
+                    frames = Arrays.copyOf(frames, depth * 2);
+                }
+                if (frames[depth] == null) {
+                    frames[depth] = graph.cursor();
+                }
+                frames[depth].reset(next);
             }
         }
-
+        return res;
     }
-
 }
 
 
 class PrimMST {
     /**
      * 求最小生成树
-     * @param graph 邻接矩阵图（无向连通图）
+     * @param graph 只读图（无向连通图，邻接矩阵/邻接表等均可）
      * @param startIndex 起始顶点索引
      * @return 最小生成树的边列表（权重和最小）
      */
-    public static List<Edge> prim(AdjacencyMatrixGraph graph, int startIndex) {
+    public static List<Edge> prim(GraphView graph, int startIndex) {
         List<Edge> mstEdges = new ArrayList<>(); //存储最小生成树的边集
-        int[][] adjMatrix = graph.getAdjMatrix(); //得到邻接矩阵
         int vcount = graph.getVertexCount();  //得到顶点数
-        int INF = AdjacencyMatrixGraph.INF; //最大int值，标记顶点间无联通
+        int INF = Integer.MAX_VALUE; //最大int值，标记顶点间无联通
+        NeighborCursor cursor = graph.cursor();
 
         boolean[] inMst = new boolean[vcount]; //标记顶点是否已经加入树中（区分已选集与未选集）
         int[] minDist = new int[vcount]; //记录顶点到已选集合的距离，初始为INF
@@ -394,74 +724,23 @@ class PrimMST {
                mstEdges.add(new Edge(parent[u],u,minDist[u]));
             }
 
-            //2.更新minDist数组
-            for (int v = 0; v < vcount; v++) {
-                if(!inMst[v] && adjMatrix[u][v] != INF && adjMatrix[u][v] < minDist[v]){
-                    minDist[v] = adjMatrix[u][v];
+            //2.用u的邻接边更新minDist数组
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                int weight = cursor.weight();
+                if(!inMst[v] && weight < minDist[v]){
+                    minDist[v] = weight;
                     parent[v] = u;
                 }
             }
-
-
         }
         return mstEdges;
     }
     //重载方法
-    public static List<Edge> prim(AdjacencyMatrixGraph graph){
+    public static List<Edge> prim(GraphView graph){
         return prim(graph,0);
     }
 
-    //邻接表实现prim算法
-    public static List<Edge> prim(AdjacencyListGraph graph, int startIndex){
-        List<Edge> mstEdges = new ArrayList<>();
-        int vcount = graph.getVertexCount();//得到顶点数
-        List<List<Edge>> list = graph.getAdjList(); //得到邻接矩阵
-
-        int[] parent = new int[vcount];
-        int[] mindist = new int[vcount];
-        boolean[] inMst = new boolean[vcount];
-
-        Arrays.fill(parent,-1);
-        Arrays.fill(mindist,Integer.MAX_VALUE);
-        mindist[startIndex] = 0;
-
-        for (int i = 0; i < vcount; i++) {
-            int min = Integer.MAX_VALUE;
-            int u = -1;
-
-            for (int v = 0; v < vcount; v++) {
-                if(!inMst[v] && mindist[v] < min){
-                    min = mindist[v];
-                    u = v;
-                }
-            }
-
-            if(u == -1){
-                throw new RuntimeException("图未连通，无法得到生成树");
-            }
-
-            inMst[u] = true;
-            if(parent[u] != -1){
-                mstEdges.add(new Edge(parent[u],u,mindist[u]));
-            }
-
-            for (Edge edge : list.get(u)) {
-                int next = edge.to;
-                int weight = edge.weight;
-                if(!inMst[next] && weight < mindist[next]){
-                    mindist[next] = weight;
-                    parent[next] = u;
-                }
-            }
-        }
-        return mstEdges;
-
-    }
-
-
-
-
-
     /**
      * 计算最小生成树的总权重
      */
@@ -569,30 +848,28 @@ class DSU{
 class BFSShortestPath {
     /**
      * 求起点到所有顶点的最短路径
-     * @param graph 邻接表图（无权重/等权重）
+     * @param graph 只读图（无权重/等权重）
      * @param startIndex 起点索引
      * @return 数组：index=顶点索引，value=起点到该顶点的最短距离（-1表示不可达）
      */
-    public static int[] bfsShortestPath(AdjacencyListGraph graph, int startIndex) {
+    public static int[] bfsShortestPath(GraphView graph, int startIndex) {
         int vcount = graph.getVertexCount();
         int[] distance = new int[vcount];
-        int[] parent = new int[vcount]; //用于记录路径
-        List<List<Edge>> list = graph.getAdjList();
+        int[] queue = new int[vcount];
+        int head = 0;
+        int tail = 0;
+        NeighborCursor cursor = graph.cursor();
 
-        Arrays.fill(parent,-1);
         Arrays.fill(distance,-1);
         distance[startIndex] = 0;
-        Queue<Integer> queue = new LinkedList<>();
-        queue.offer(startIndex);
-
-        while(!queue.isEmpty()){
-            int curr = queue.poll();
-            for (Edge edge : list.get(curr)) {
-                int next = edge.to;
+        queue[tail++] = startIndex;
+        while(head < tail){
+            int curr = queue[head++];
+            cursor.reset(curr);
+            for (int next = cursor.next(); next != -1; next = cursor.next()) {
                 if(distance[next] == -1){
                     distance[next] = distance[curr]+1;
-                    parent[next] = curr;
-                    queue.offer(next);
+                    queue[tail++] = next;
                 }
             }
         }
@@ -623,51 +900,37 @@ class DijkstraShortestPath {
     public static final int INF = Integer.MAX_VALUE;
 
     /**
-     * 求起点到所有顶点的最短路径
-     * @param graph 邻接表图（权重非负）
+     * 求起点到所有顶点的最短路径（二叉堆实现）
+     * @param graph 只读图（权重非负）
      * @param startIndex 起点索引
      * @return distance数组：index=顶点索引，value=最短距离（INF表示不可达）
      */
-    public static int[] dijkstra(AdjacencyListGraph graph, int startIndex) {
+    public static int[] dijkstra(GraphView graph, int startIndex) {
         int vcount = graph.getVertexCount();
-        List<List<Edge>> list = graph.getAdjList();
-        boolean[] visited = new boolean[vcount];
-        int[] parent = new int[vcount];
-        int[] distance = new int[vcount];//记录原点到节点的距离
-
-        Arrays.fill(distance,Integer.MAX_VALUE);
-        Arrays.fill(parent,-1);
-        distance[startIndex] = 0; //初始化初始顶点到自身的距离
-
-        for (int i = 0; i < vcount-1; i++) {
-            //剩余vcount-1个顶点的最短路径没记录
-
-            //1.每次选择一个到源点最近的顶点
-            int u = -1;
-            int min = Integer.MAX_VALUE;
-            for (int j = 0; j < vcount; j++) {
-                if(!visited[j] && distance[j] < min){
-                    min = distance[j];
-                    u = j;
-                }
+        int[] distance = new int[vcount];
+        Arrays.fill(distance, INF);
+        distance[startIndex] = 0;
+        NeighborCursor cursor = graph.cursor();
+
+        LongMinHeap heap = new LongMinHeap();
+        heap.push(startIndex); //堆元素为(距离<<32 | 顶点)
+        while (!heap.isEmpty()) {
+            long top = heap.pop();
+            int u = (int) top;
+            int d = (int) (top >>> 32);
+            if (d > distance[u]) {
+                continue; //过期的堆元素
             }
-
-            //标记该节点为已访问节点
-            visited[u] = true;
-            //2.以该顶点继续更新distance数组
-            for (Edge edge : list.get(u)) {
-                int next = edge.to;
-                int weight = edge.weight;
-
-                if(!visited[next] && distance[u] + weight < distance[next]){
-                    distance[next] = distance[u] + weight;
+            cursor.reset(u);
+            for (int next = cursor.next(); next != -1; next = cursor.next()) {
+                long nd = (long) d + cursor.weight();
+                if (nd < distance[next]) {
+                    distance[next] = (int) nd;
+                    heap.push(nd << 32 | next);
                 }
             }
-
         }
-
         return distance;
-
     }
 
     /**
@@ -862,8 +1125,4788 @@ class TopologicalSortRecursive {
     }
 }
 
+class ConnectedComponents {
+    private static final int NEIGHBOR_ROUNDS = 2;   // Afforest先按前k个邻居做稀疏连接的轮数
+    private static final int SAMPLE_SIZE = 1024;    // 估计最大分量时的采样顶点数
+    private static final int CHUNK_SIZE = 4096;     // 并行时每个任务处理的顶点数（每个任务一个游标）
+
+    /**
+     * 串行并查集求连通分量（有向图按弱连通处理）
+     * @param graph 只读图
+     * @return label数组：label[v]为v所在分量中编号最小的顶点
+     */
+    public static int[] unionFind(GraphView graph) {
+        int vcount = graph.getVertexCount();
+        NeighborCursor cursor = graph.cursor();
+        int[] comp = new int[vcount];
+        for (int i = 0; i < vcount; i++) {
+            comp[i] = i;
+        }
+
+        for (int u = 0; u < vcount; u++) {
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                int ru = find(comp, u);
+                int rv = find(comp, v);
+                //总让编号大的根指向编号小的根，保证根就是分量内最小顶点
+                if (ru < rv) {
+                    comp[rv] = ru;
+                } else if (rv < ru) {
+                    comp[ru] = rv;
+                }
+            }
+        }
+
+        for (int i = 0; i < vcount; i++) {
+            comp[i] = find(comp, i);
+        }
+        return comp;
+    }
+
+    // 迭代查找根（路径减半），避免DSU.root递归在长链上栈溢出
+    private static int find(int[] comp, int x) {
+        while (comp[x] != x) {
+            comp[x] = comp[comp[x]];
+            x = comp[x];
+        }
+        return x;
+    }
+
+    /**
+     * 并行求连通分量（Afforest：Shiloach–Vishkin式挂接 + 采样邻居 + 跳过最大分量）
+     * @param graph 只读图
+     * @return label数组：与unionFind结果完全一致
+     */
+    public static int[] afforest(GraphView graph) {
+        int vcount = graph.getVertexCount();
+        int chunks = (vcount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        AtomicIntegerArray comp = new AtomicIntegerArray(vcount);
+        for (int i = 0; i < vcount; i++) {
+            comp.set(i, i);
+        }
+
+        //1.每个顶点只用前几条边做连接，快速形成大分量的骨架
+        for (int r = 0; r < NEIGHBOR_ROUNDS; r++) {
+            final int round = r;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                NeighborCursor cursor = graph.cursor();
+                for (int u = c * CHUNK_SIZE; u < Math.min(vcount, (c + 1) * CHUNK_SIZE); u++) {
+                    //取u的第round条边
+                    cursor.reset(u);
+                    int v = cursor.next();
+                    for (int i = 0; i < round && v != -1; i++) {
+                        v = cursor.next();
+                    }
+                    if (v != -1) {
+                        link(comp, u, v);
+                    }
+                }
+            });
+            compress(comp);
+        }
+
+        //2.采样估计最大的分量，无向图中该分量顶点的剩余边可以跳过（另一端会处理）
+        //  有向图的边只存在起点一侧，不能跳过
+        int skip = graph.getGraphType() == GraphType.UNDIRECTED ? sampleFrequentLabel(comp) : -1;
+
+        //3.处理剩余的边
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            NeighborCursor cursor = graph.cursor();
+            for (int u = c * CHUNK_SIZE; u < Math.min(vcount, (c + 1) * CHUNK_SIZE); u++) {
+                if (comp.get(u) == skip) {
+                    continue;
+                }
+                cursor.reset(u);
+                int i = 0;
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    if (i++ >= NEIGHBOR_ROUNDS) {
+                        link(comp, u, v);
+                    }
+                }
+            }
+        });
+        compress(comp);
 
+        int[] res = new int[vcount];
+        for (int i = 0; i < vcount; i++) {
+            res[i] = comp.get(i);
+        }
+        return res;
+    }
 
+    // 将u、v所在的树合并：总是把编号大的根用CAS挂到编号小的根上
+    private static void link(AtomicIntegerArray comp, int u, int v) {
+        int p1 = comp.get(u);
+        int p2 = comp.get(v);
+        while (p1 != p2) {
+            int high = Math.max(p1, p2);
+            int low = Math.min(p1, p2);
+            int pHigh = comp.get(high);
+            if (pHigh == low) {
+                break; //已经挂在一起
+            }
+            if (pHigh == high && comp.compareAndSet(high, high, low)) {
+                break; //high是根，挂接成功
+            }
+            //high不是根或CAS失败，向上追溯后重试
+            p1 = comp.get(comp.get(high));
+            p2 = comp.get(low);
+        }
+    }
 
+    // 路径压缩：让每个顶点直接指向根
+    private static void compress(AtomicIntegerArray comp) {
+        IntStream.range(0, comp.length()).parallel().forEach(v -> {
+            int p = comp.get(v);
+            while (p != comp.get(p)) {
+                p = comp.get(p);
+            }
+            comp.set(v, p);
+        });
+    }
 
+    // 随机采样顶点，返回出现次数最多的分量标签
+    private static int sampleFrequentLabel(AtomicIntegerArray comp) {
+        int vcount = comp.length();
+        if (vcount == 0) {
+            return -1;
+        }
+        Map<Integer, Integer> counts = new HashMap<>();
+        Random random = new Random(vcount);
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            counts.merge(comp.get(random.nextInt(vcount)), 1, Integer::sum);
+        }
+        int best = -1;
+        int bestCount = 0;
+        for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > bestCount) {
+                bestCount = entry.getValue();
+                best = entry.getKey();
+            }
+        }
+        return best;
+    }
 
+    /**
+     * 统计连通分量个数
+     * @param labels unionFind/afforest返回的标签数组
+     */
+    public static int countComponents(int[] labels) {
+        int count = 0;
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i] == i) {
+                count++; //每个分量恰好有一个顶点是自己的代表
+            }
+        }
+        return count;
+    }
+}
+
+class StronglyConnectedComponents {
+    private static final int SEQUENTIAL_THRESHOLD = 4096; // 子图小于该规模时直接用Tarjan求解
+    private static final int DONE = -1;                   // 颜色标记：顶点已归入某个强连通分量
+    private static final int MAX_ROUNDS = 64;             // 一条任务链上最多做几轮FW-BW划分，之后改用Tarjan
+
+    /**
+     * 迭代版Tarjan求强连通分量（显式栈，不会因递归过深而栈溢出）
+     * @param graph 只读图（有向图）
+     * @return comp数组：comp[v]为v所在强连通分量的编号（0~k-1，按逆拓扑序编号）
+     */
+    public static int[] tarjan(GraphView graph) {
+        int vcount = graph.getVertexCount();
+        CSRGraph csr = CSRGraph.copyOf(graph);
+        int[] verts = new int[vcount];
+        for (int i = 0; i < vcount; i++) {
+            verts[i] = i; //全图即一个子集，slot就是顶点自身
+        }
+        int[] comp = new int[vcount];
+        Arrays.fill(comp, -1);
+        int[] color = new int[vcount];
+        tarjan(csr.getOffsets(), csr.getTargets(), verts, verts, color, 0, comp, new AtomicInteger());
+        return comp;
+    }
+
+    /**
+     * 在color[v]==c的顶点子集上运行迭代Tarjan，所有状态都放在int数组中
+     * @param verts 子集中的顶点
+     * @param slot slot[v]为顶点v在verts中的下标
+     */
+    private static void tarjan(int[] offsets, int[] targets, int[] verts, int[] slot,
+                               int[] color, int c, int[] comp, AtomicInteger nextId) {
+        int m = verts.length;
+        int[] index = new int[m];    //访问次序，0表示未访问
+        int[] low = new int[m];      //能回溯到的最小访问次序
+        int[] edgePos = new int[m];  //每个顶点下一条待处理边在targets中的位置
+        int[] call = new int[m];     //模拟递归调用栈
+        int[] stack = new int[m];    //Tarjan栈
+        int callTop = 0;
+        int top = 0;
+        int counter = 0;
+
+        for (int s = 0; s < m; s++) {
+            if (index[s] != 0) {
+                continue;
+            }
+            index[s] = low[s] = ++counter;
+            edgePos[s] = offsets[verts[s]];
+            stack[top++] = s;
+            call[callTop++] = s;
+
+            while (callTop > 0) {
+                int u = call[callTop - 1];
+                int gu = verts[u];
+                if (edgePos[u] < offsets[gu + 1]) {
+                    //1.继续处理u的下一条边
+                    int gw = targets[edgePos[u]++];
+                    if (color[gw] != c) {
+                        continue; //不在当前子集中
+                    }
+                    int w = slot[gw];
+                    if (index[w] == 0) {
+                        index[w] = low[w] = ++counter;
+                        edgePos[w] = offsets[gw];
+                        stack[top++] = w;
+                        call[callTop++] = w;
+                    } else if (comp[gw] == -1) {
+                        low[u] = Math.min(low[u], index[w]); //w仍在栈中
+                    }
+                } else {
+                    //2.u的边处理完毕，"返回"到父顶点
+                    callTop--;
+                    if (callTop > 0) {
+                        int p = call[callTop - 1];
+                        low[p] = Math.min(low[p], low[u]);
+                    }
+                    if (low[u] == index[u]) {
+                        //u是分量的根，弹出整个分量
+                        int id = nextId.getAndIncrement();
+                        int w;
+                        do {
+                            w = stack[--top];
+                            comp[verts[w]] = id;
+                        } while (w != u);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 并行前向-后向（FW-BW）求强连通分量，适合超大图
+     * 先剪除入度或出度为0的平凡分量，再以颜色划分子图：每个子图选一个枢纽点，
+     * 前向可达集与后向可达集的交即为一个分量，剩下的三个子集互不相交：较小的并行处理，最大的留在当前任务循环处理；
+     * 一条任务链上划分超过MAX_ROUNDS轮仍未变小时改用Tarjan，避免长链上每轮只剥下一个分量退化成平方时间
+     * @param graph 只读图（有向图）
+     * @return comp数组：划分与tarjan一致，但编号顺序不保证相同
+     */
+    public static int[] forwardBackward(GraphView graph) {
+        int vcount = graph.getVertexCount();
+        CSRGraph forward = CSRGraph.copyOf(graph);
+        CSRGraph backward = forward.transpose();
+        int[][] csr = {forward.getOffsets(), forward.getTargets()};
+        int[][] rev = {backward.getOffsets(), backward.getTargets()};
+        int[] comp = new int[vcount];
+        Arrays.fill(comp, -1);
+        int[] color = new int[vcount];
+        AtomicInteger nextId = new AtomicInteger();
+
+        //1.剪枝：反复去掉入度或出度为0的顶点，它们各自构成单点分量
+        int[] inDeg = new int[vcount];
+        int[] outDeg = new int[vcount];
+        for (int u = 0; u < vcount; u++) {
+            outDeg[u] = csr[0][u + 1] - csr[0][u];
+            inDeg[u] = rev[0][u + 1] - rev[0][u];
+        }
+        int[] queue = new int[vcount];
+        int head = 0;
+        int tail = 0;
+        for (int u = 0; u < vcount; u++) {
+            if (inDeg[u] == 0 || outDeg[u] == 0) {
+                queue[tail++] = u;
+                color[u] = DONE;
+            }
+        }
+        while (head < tail) {
+            int u = queue[head++];
+            comp[u] = nextId.getAndIncrement();
+            for (int i = csr[0][u]; i < csr[0][u + 1]; i++) {
+                int w = csr[1][i];
+                if (color[w] != DONE && --inDeg[w] == 0) {
+                    queue[tail++] = w;
+                    color[w] = DONE;
+                }
+            }
+            for (int i = rev[0][u]; i < rev[0][u + 1]; i++) {
+                int w = rev[1][i];
+                if (color[w] != DONE && --outDeg[w] == 0) {
+                    queue[tail++] = w;
+                    color[w] = DONE;
+                }
+            }
+        }
+
+        //2.剩余顶点组成颜色为0的初始子图
+        int[] rest = new int[vcount - tail];
+        int k = 0;
+        for (int u = 0; u < vcount; u++) {
+            if (color[u] != DONE) {
+                rest[k++] = u;
+            }
+        }
+        FwBwContext ctx = new FwBwContext(csr, rev, color, comp, new int[vcount], nextId);
+        ForkJoinPool.commonPool().invoke(new FwBwTask(ctx, rest, 0, 0));
+        return comp;
+    }
+
+    // 所有FW-BW任务共享的只读图与按顶点划分写入的状态
+    private static class FwBwContext {
+        final int[][] csr;
+        final int[][] rev;
+        final int[] color;
+        final int[] comp;
+        final int[] slot;
+        final AtomicInteger nextId;
+        final AtomicInteger nextColor = new AtomicInteger(1);
+
+        FwBwContext(int[][] csr, int[][] rev, int[] color, int[] comp, int[] slot, AtomicInteger nextId) {
+            this.csr = csr;
+            this.rev = rev;
+            this.color = color;
+            this.comp = comp;
+            this.slot = slot;
+            this.nextId = nextId;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class FwBwTask extends RecursiveAction {
+        private final FwBwContext ctx;
+        private final int[] verts; // 子图中的顶点，颜色均为c（本任务独占，可原地改写）
+        private final int c;
+        private final int depth;   // 从根任务到此已做过的划分轮数
+
+        FwBwTask(FwBwContext ctx, int[] verts, int c, int depth) {
+            this.ctx = ctx;
+            this.verts = verts;
+            this.c = c;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            int[] color = ctx.color;
+            int[] verts = this.verts;
+            int m = verts.length;
+            int c = this.c;
+            int[] queue = new int[m];
+            List<FwBwTask> forked = new ArrayList<>();
+            //最大的子图留在本任务中循环处理，只fork较小的子图，递归深度不随分量个数增长
+            for (int round = depth; ; round++) {
+                if (m <= SEQUENTIAL_THRESHOLD || round >= MAX_ROUNDS) {
+                    //子图较小，或划分轮数过多（如长链上每轮只剥下一个小分量）：直接在子图上跑Tarjan
+                    int[] sub = m == verts.length ? verts : Arrays.copyOf(verts, m);
+                    for (int i = 0; i < m; i++) {
+                        ctx.slot[sub[i]] = i;
+                    }
+                    tarjan(ctx.csr[0], ctx.csr[1], sub, ctx.slot, color, c, ctx.comp, ctx.nextId);
+                    break;
+                }
+
+                int pivot = verts[0];
+                int cf = ctx.nextColor.getAndIncrement(); //前向可达但后向不可达
+                int cb = ctx.nextColor.getAndIncrement(); //后向可达但前向不可达
+
+                //1.前向BFS：子图内从pivot可达的顶点改色为cf
+                int head = 0;
+                int tail = 0;
+                queue[tail++] = pivot;
+                color[pivot] = cf;
+                while (head < tail) {
+                    int u = queue[head++];
+                    for (int i = ctx.csr[0][u]; i < ctx.csr[0][u + 1]; i++) {
+                        int w = ctx.csr[1][i];
+                        if (color[w] == c) {
+                            color[w] = cf;
+                            queue[tail++] = w;
+                        }
+                    }
+                }
+
+                //2.后向BFS：颜色为cf的可达顶点属于pivot所在分量，颜色为c的改色为cb
+                int id = ctx.nextId.getAndIncrement();
+                head = 0;
+                tail = 0;
+                queue[tail++] = pivot;
+                color[pivot] = DONE;
+                ctx.comp[pivot] = id;
+                while (head < tail) {
+                    int u = queue[head++];
+                    for (int i = ctx.rev[0][u]; i < ctx.rev[0][u + 1]; i++) {
+                        int w = ctx.rev[1][i];
+                        if (color[w] == cf) {
+                            color[w] = DONE;
+                            ctx.comp[w] = id;
+                            queue[tail++] = w;
+                        } else if (color[w] == c) {
+                            color[w] = cb;
+                            queue[tail++] = w;
+                        }
+                    }
+                }
+
+                //3.按颜色拆成三个互不相交的子图：较小的复制出去fork，最大的原地压缩后继续循环
+                int[] subColors = {cf, cb, c};
+                int[] counts = new int[3];
+                for (int i = 0; i < m; i++) {
+                    int v = color[verts[i]];
+                    for (int j = 0; j < 3; j++) {
+                        if (v == subColors[j]) {
+                            counts[j]++;
+                            break;
+                        }
+                    }
+                }
+                int largest = 0;
+                for (int j = 1; j < 3; j++) {
+                    if (counts[j] > counts[largest]) {
+                        largest = j;
+                    }
+                }
+                for (int j = 0; j < 3; j++) {
+                    if (j == largest || counts[j] == 0) {
+                        continue;
+                    }
+                    int[] sub = new int[counts[j]];
+                    int k = 0;
+                    for (int i = 0; i < m; i++) {
+                        if (color[verts[i]] == subColors[j]) {
+                            sub[k++] = verts[i];
+                        }
+                    }
+                    FwBwTask task = new FwBwTask(ctx, sub, subColors[j], round + 1);
+                    task.fork();
+                    forked.add(task);
+                }
+                c = subColors[largest];
+                int k = 0;
+                for (int i = 0; i < m; i++) {
+                    if (color[verts[i]] == c) {
+                        verts[k++] = verts[i];
+                    }
+                }
+                m = k;
+                if (m == 0) {
+                    break;
+                }
+            }
+            for (FwBwTask task : forked) {
+                task.join();
+            }
+        }
+    }
+
+    /**
+     * 构造缩点后的DAG：每个强连通分量缩成一个顶点，分量间的多条边合并为一条（权重记为1）
+     * 结果可直接交给TopologicalSortRecursive.topoSort
+     * @param graph 原有向图
+     * @param comp tarjan或forwardBackward返回的分量编号
+     * @return 缩点图，顶点i对应编号为i的分量
+     */
+    public static AdjacencyListGraph condense(GraphView graph, int[] comp) {
+        int vcount = graph.getVertexCount();
+        int k = componentCount(comp);
+        NeighborCursor cursor = graph.cursor();
+        AdjacencyListGraph dag = new AdjacencyListGraph(k, GraphType.DIRECTED);
+
+        //1.按分量编号对顶点做计数排序
+        int[] start = new int[k + 1];
+        for (int v = 0; v < vcount; v++) {
+            start[comp[v] + 1]++;
+        }
+        for (int i = 0; i < k; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] order = new int[vcount];
+        int[] pos = Arrays.copyOf(start, k);
+        for (int v = 0; v < vcount; v++) {
+            order[pos[comp[v]]++] = v;
+        }
+
+        //2.逐个分量收集出边，用lastSeen去重
+        int[] lastSeen = new int[k];
+        Arrays.fill(lastSeen, -1);
+        for (int c = 0; c < k; c++) {
+            for (int i = start[c]; i < start[c + 1]; i++) {
+                cursor.reset(order[i]);
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    int target = comp[v];
+                    if (target != c && lastSeen[target] != c) {
+                        lastSeen[target] = c;
+                        dag.addEdge(c, target, 1);
+                    }
+                }
+            }
+        }
+        return dag;
+    }
+
+    /**
+     * 统计强连通分量个数
+     */
+    public static int componentCount(int[] comp) {
+        int max = -1;
+        for (int c : comp) {
+            max = Math.max(max, c);
+        }
+        return max + 1;
+    }
+}
+
+class CSRGraph implements GraphView {
+    private final int vertexCount;   // 顶点数
+    private final int[] offsets;     // 顶点u的边位于targets[offsets[u] ~ offsets[u+1]-1]
+    private final int[] targets;     // 边的终点
+    private final int[] weights;     // 边的权重，与targets一一对应
+    private final GraphType graphType;
+
+    /**
+     * 构造器：直接包装已经排好的CSR数组（不拷贝）
+     */
+    public CSRGraph(int vertexCount, int[] offsets, int[] targets, int[] weights, GraphType graphType) {
+        if (offsets.length != vertexCount + 1 || targets.length != offsets[vertexCount]
+                || weights.length != targets.length) {
+            throw new IllegalArgumentException("CSR数组长度不一致");
+        }
+        this.vertexCount = vertexCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.graphType = graphType;
+    }
+
+    /**
+     * 从任意只读图（邻接表、邻接矩阵、快照等）拷贝出CSR（保持每个顶点的边顺序不变）
+     */
+    public static CSRGraph copyOf(GraphView graph) {
+        int vcount = graph.getVertexCount();
+        int[] offsets = new int[vcount + 1];
+        for (int u = 0; u < vcount; u++) {
+            offsets[u + 1] = offsets[u] + graph.degree(u);
+        }
+        int[] targets = new int[offsets[vcount]];
+        int[] weights = new int[offsets[vcount]];
+        NeighborCursor cursor = graph.cursor();
+        int k = 0;
+        for (int u = 0; u < vcount; u++) {
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                targets[k] = v;
+                weights[k] = cursor.weight();
+                k++;
+            }
+        }
+        return new CSRGraph(vcount, offsets, targets, weights, graph.getGraphType());
+    }
+
+    /**
+     * 构造反向图（所有边反向），用于求入边
+     */
+    public CSRGraph transpose() {
+        int[] revOffsets = new int[vertexCount + 1];
+        for (int t : targets) {
+            revOffsets[t + 1]++;
+        }
+        for (int u = 0; u < vertexCount; u++) {
+            revOffsets[u + 1] += revOffsets[u];
+        }
+        int[] revTargets = new int[targets.length];
+        int[] revWeights = new int[targets.length];
+        int[] pos = Arrays.copyOf(revOffsets, vertexCount);
+        for (int u = 0; u < vertexCount; u++) {
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int p = pos[targets[i]]++;
+                revTargets[p] = u;
+                revWeights[p] = weights[i];
+            }
+        }
+        return new CSRGraph(vertexCount, revOffsets, revTargets, revWeights, graphType);
+    }
+
+    /**
+     * 获取顶点u的出度
+     */
+    public int degree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /**
+     * 获取存储的有向边条数（无向边按两个方向计两次）
+     */
+    public int getArcCount() {
+        return targets.length;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getTargets() {
+        return targets;
+    }
+
+    public int[] getWeights() {
+        return weights;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private int pos;
+            private int end;
+
+            @Override
+            public void reset(int u) {
+                pos = offsets[u];
+                end = offsets[u + 1];
+            }
+
+            @Override
+            public int next() {
+                return pos < end ? targets[pos++] : -1;
+            }
+
+            @Override
+            public int weight() {
+                return weights[pos - 1];
+            }
+        };
+    }
+}
+
+class DynamicGraph implements GraphView {
+    private static final int[] EMPTY = new int[0];
+    private static final int INITIAL_DEGREE_CAPACITY = 4;
+
+    private int[][] neighbors;   // neighbors[u][0 ~ degree[u]-1]为u的邻接顶点，容量按2倍增长
+    private int[][] weights;     // weights[u][i]为边u→neighbors[u][i]的权重
+    private int[] degree;        // 每个顶点当前的出度
+    private int vertexCount;     // 顶点数
+    private long edgeCount;      // 边数（无向边计一次）
+    private final GraphType graphType;
+
+    /**
+     * 构造器：初始化空图
+     * @param initialCapacity 预留的顶点容量（不足时自动扩容）
+     * @param graphType 图类型
+     */
+    public DynamicGraph(int initialCapacity, GraphType graphType) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.neighbors = new int[capacity][];
+        this.weights = new int[capacity][];
+        this.degree = new int[capacity];
+        this.graphType = graphType;
+    }
+
+    /**
+     * 添加顶点，容量不足时顶点数组按2倍扩容
+     * @return 新顶点的索引
+     */
+    public int addVertex() {
+        if (vertexCount == degree.length) {
+            int capacity = degree.length * 2;
+            neighbors = Arrays.copyOf(neighbors, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+        }
+        neighbors[vertexCount] = EMPTY;
+        weights[vertexCount] = EMPTY;
+        return vertexCount++;
+    }
+
+    /**
+     * 批量添加顶点，直到顶点数至少为count
+     */
+    public void ensureVertexCount(int count) {
+        while (vertexCount < count) {
+            addVertex();
+        }
+    }
+
+    /**
+     * 添加边（均摊O(1)）
+     * @param from 起点索引
+     * @param to 终点索引
+     * @param weight 边权重（无权重图传1）
+     */
+    public void addEdge(int from, int to, int weight) {
+        if (from < 0 || from >= vertexCount || to < 0 || to >= vertexCount) {
+            throw new IllegalArgumentException("顶点索引超出范围");
+        }
+        append(from, to, weight);
+        if (graphType == GraphType.UNDIRECTED) {
+            append(to, from, weight);
+        }
+        edgeCount++;
+    }
+
+    // 在u的邻接数组末尾追加一条边，满了就按2倍扩容
+    private void append(int u, int to, int weight) {
+        int d = degree[u];
+        if (d == neighbors[u].length) {
+            int capacity = Math.max(INITIAL_DEGREE_CAPACITY, d * 2);
+            neighbors[u] = Arrays.copyOf(neighbors[u], capacity);
+            weights[u] = Arrays.copyOf(weights[u], capacity);
+        }
+        neighbors[u][d] = to;
+        weights[u][d] = weight;
+        degree[u] = d + 1;
+    }
+
+    /**
+     * 删除边from→to（无向图同时删除反向边），只删除第一条匹配的边
+     * 定位边需要扫描from的邻接数组，删除本身用末尾元素覆盖，O(1)
+     * @return 边是否存在
+     */
+    public boolean removeEdge(int from, int to) {
+        if (from < 0 || from >= vertexCount || to < 0 || to >= vertexCount) {
+            throw new IllegalArgumentException("顶点索引超出范围");
+        }
+        int slot = indexOf(from, to);
+        if (slot == -1) {
+            return false;
+        }
+        removeSlot(from, slot);
+        if (graphType == GraphType.UNDIRECTED) {
+            removeSlot(to, indexOf(to, from));
+        }
+        edgeCount--;
+        return true;
+    }
+
+    /**
+     * 按位置删除u的第slot条边，严格O(1)（仅限有向图，无向图的反向边需要查找）
+     * 注意：末尾的边会被换到slot位置
+     */
+    public void removeEdgeAt(int u, int slot) {
+        if (graphType == GraphType.UNDIRECTED) {
+            throw new IllegalArgumentException("无向图请使用removeEdge删除");
+        }
+        if (u < 0 || u >= vertexCount) {
+            throw new IllegalArgumentException("顶点索引超出范围");
+        }
+        if (slot < 0 || slot >= degree[u]) {
+            throw new IllegalArgumentException("边位置超出范围");
+        }
+        removeSlot(u, slot);
+        edgeCount--;
+    }
+
+    // 用最后一条边覆盖slot位置，实现O(1)删除
+    private void removeSlot(int u, int slot) {
+        int last = --degree[u];
+        neighbors[u][slot] = neighbors[u][last];
+        weights[u][slot] = weights[u][last];
+    }
+
+    // 查找u的邻接数组中第一个指向to的位置，找不到返回-1
+    private int indexOf(int u, int to) {
+        int[] nbrs = neighbors[u];
+        for (int i = 0; i < degree[u]; i++) {
+            if (nbrs[i] == to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 压缩为CSR快照：去掉各顶点数组的空余容量，拷贝到连续的数组中，供只读算法使用
+     */
+    public CSRGraph toCSR() {
+        int[] offsets = new int[vertexCount + 1];
+        for (int u = 0; u < vertexCount; u++) {
+            offsets[u + 1] = offsets[u] + degree[u];
+        }
+        int[] targets = new int[offsets[vertexCount]];
+        int[] w = new int[offsets[vertexCount]];
+        for (int u = 0; u < vertexCount; u++) {
+            System.arraycopy(neighbors[u], 0, targets, offsets[u], degree[u]);
+            System.arraycopy(weights[u], 0, w, offsets[u], degree[u]);
+        }
+        return new CSRGraph(vertexCount, offsets, targets, w, graphType);
+    }
+
+    /**
+     * 获取顶点u的出度
+     */
+    public int degree(int u) {
+        return degree[u];
+    }
+
+    /**
+     * 获取顶点u的第i个邻接顶点
+     */
+    public int neighbor(int u, int i) {
+        return neighbors[u][i];
+    }
+
+    /**
+     * 获取顶点u的第i条边的权重
+     */
+    public int weight(int u, int i) {
+        return weights[u][i];
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private int[] nbrs = EMPTY;
+            private int[] wts = EMPTY;
+            private int pos;
+            private int end;
+
+            @Override
+            public void reset(int u) {
+                nbrs = neighbors[u];
+                wts = weights[u];
+                pos = 0;
+                end = degree[u];
+            }
+
+            @Override
+            public int next() {
+                return pos < end ? nbrs[pos++] : -1;
+            }
+
+            @Override
+            public int weight() {
+                return wts[pos - 1];
+            }
+        };
+    }
+}
+
+class VersionedGraph {
+    static final int BLOCK_BITS = 6;                 // 每块64个顶点
+    static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private final GraphType graphType;
+    private final AtomicReference<GraphSnapshot> current = new AtomicReference<>();
+
+    // 以下为写者私有状态，只在synchronized方法中访问
+    private VertexBlock[] working;  // 下一个版本的块数组，本批次未修改的块与已发布版本共享
+    private boolean[] copied;       // 本批次中已经复制过的块
+    private int vertexCount;
+
+    /**
+     * 构造器：初始化空图并发布版本0
+     * @param vertexCount 顶点数量
+     * @param graphType 图类型
+     */
+    public VersionedGraph(int vertexCount, GraphType graphType) {
+        this.graphType = graphType;
+        this.vertexCount = vertexCount;
+        int blockCount = (vertexCount + BLOCK_MASK) >>> BLOCK_BITS;
+        this.working = new VertexBlock[blockCount];
+        this.copied = new boolean[blockCount];
+        for (int b = 0; b < blockCount; b++) {
+            working[b] = new VertexBlock();
+        }
+        current.set(new GraphSnapshot(0, vertexCount, working.clone(), graphType));
+    }
+
+    /**
+     * 从任意只读图拷贝并发布初始版本
+     */
+    public static VersionedGraph copyOf(GraphView graph) {
+        VersionedGraph versioned = new VersionedGraph(graph.getVertexCount(), graph.getGraphType());
+        NeighborCursor cursor = graph.cursor();
+        for (int u = 0; u < graph.getVertexCount(); u++) {
+            int[] nbrs = new int[graph.degree(u)];
+            int[] wts = new int[nbrs.length];
+            cursor.reset(u);
+            for (int i = 0; i < nbrs.length; i++) {
+                nbrs[i] = cursor.next();
+                wts[i] = cursor.weight();
+            }
+            VertexBlock block = versioned.mutableBlock(u);
+            block.neighbors[u & BLOCK_MASK] = nbrs;
+            block.weights[u & BLOCK_MASK] = wts;
+        }
+        versioned.publish();
+        return versioned;
+    }
+
+    /**
+     * 读者固定当前版本（无锁）：快照不可变，写者之后的更新对其不可见；
+     * 读者持有引用期间旧版本一直有效，丢弃引用后未被新版本共享的块由GC回收
+     */
+    public GraphSnapshot pin() {
+        return current.get();
+    }
+
+    /**
+     * 获取当前已发布的版本号
+     */
+    public long currentVersion() {
+        return current.get().version;
+    }
+
+    /**
+     * 添加顶点（写者），发布后可见
+     * @return 新顶点的索引
+     */
+    public synchronized int addVertex() {
+        int v = vertexCount++;
+        if ((v >>> BLOCK_BITS) == working.length) {
+            working = Arrays.copyOf(working, working.length + 1);
+            copied = Arrays.copyOf(copied, copied.length + 1);
+            working[working.length - 1] = new VertexBlock();
+            copied[copied.length - 1] = true; //新块还未发布，可以直接修改
+        }
+        return v;
+    }
+
+    /**
+     * 添加边（写者），发布后可见
+     */
+    public synchronized void addEdge(int from, int to, int weight) {
+        checkIndex(from, to);
+        appendArc(from, to, weight);
+        if (graphType == GraphType.UNDIRECTED) {
+            appendArc(to, from, weight);
+        }
+    }
+
+    /**
+     * 删除边from→to（写者，无向图同时删除反向边），发布后可见
+     * @return 边是否存在
+     */
+    public synchronized boolean removeEdge(int from, int to) {
+        checkIndex(from, to);
+        if (!removeArc(from, to)) {
+            return false;
+        }
+        if (graphType == GraphType.UNDIRECTED) {
+            removeArc(to, from);
+        }
+        return true;
+    }
+
+    /**
+     * 修改边from→to的权重（写者，例如路况更新），发布后可见
+     * @return 边是否存在
+     */
+    public synchronized boolean setWeight(int from, int to, int weight) {
+        checkIndex(from, to);
+        if (!setArcWeight(from, to, weight)) {
+            return false;
+        }
+        if (graphType == GraphType.UNDIRECTED) {
+            setArcWeight(to, from, weight);
+        }
+        return true;
+    }
+
+    /**
+     * 原子地发布本批次的所有修改
+     * @return 新发布的快照
+     */
+    public synchronized GraphSnapshot publish() {
+        GraphSnapshot old = current.get();
+        GraphSnapshot snapshot = new GraphSnapshot(old.version + 1, vertexCount, working.clone(), graphType);
+        current.set(snapshot);
+        Arrays.fill(copied, false); //已发布的块不可再修改，下一批次需重新复制
+        return snapshot;
+    }
+
+    private void checkIndex(int from, int to) {
+        if (from < 0 || from >= vertexCount || to < 0 || to >= vertexCount) {
+            throw new IllegalArgumentException("顶点索引超出范围");
+        }
+    }
+
+    // 写时复制：本批次第一次修改某块时复制该块，之后直接修改副本
+    private VertexBlock mutableBlock(int v) {
+        int b = v >>> BLOCK_BITS;
+        if (!copied[b]) {
+            working[b] = working[b].copy();
+            copied[b] = true;
+        }
+        return working[b];
+    }
+
+    private void appendArc(int u, int to, int weight) {
+        VertexBlock block = mutableBlock(u);
+        int slot = u & BLOCK_MASK;
+        int[] nbrs = Arrays.copyOf(block.neighbors[slot], block.neighbors[slot].length + 1);
+        int[] wts = Arrays.copyOf(block.weights[slot], nbrs.length);
+        nbrs[nbrs.length - 1] = to;
+        wts[wts.length - 1] = weight;
+        block.neighbors[slot] = nbrs;
+        block.weights[slot] = wts;
+    }
+
+    private boolean removeArc(int u, int to) {
+        int slot = u & BLOCK_MASK;
+        int i = indexOf(working[u >>> BLOCK_BITS].neighbors[slot], to);
+        if (i == -1) {
+            return false;
+        }
+        VertexBlock block = mutableBlock(u);
+        int[] nbrs = block.neighbors[slot];
+        int[] wts = block.weights[slot];
+        int last = nbrs.length - 1;
+        int[] newNbrs = Arrays.copyOf(nbrs, last);
+        int[] newWts = Arrays.copyOf(wts, last);
+        if (i < last) {
+            newNbrs[i] = nbrs[last]; //末尾元素补到删除位置
+            newWts[i] = wts[last];
+        }
+        block.neighbors[slot] = newNbrs;
+        block.weights[slot] = newWts;
+        return true;
+    }
+
+    private boolean setArcWeight(int u, int to, int weight) {
+        int slot = u & BLOCK_MASK;
+        int i = indexOf(working[u >>> BLOCK_BITS].neighbors[slot], to);
+        if (i == -1) {
+            return false;
+        }
+        VertexBlock block = mutableBlock(u);
+        int[] wts = block.weights[slot].clone();
+        wts[i] = weight;
+        block.weights[slot] = wts;
+        return true;
+    }
+
+    private static int indexOf(int[] nbrs, int to) {
+        for (int i = 0; i < nbrs.length; i++) {
+            if (nbrs[i] == to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 一块顶点的邻接数组；发布后不可变，可被多个版本共享
+    static class VertexBlock {
+        private static final int[] EMPTY = new int[0];
+        final int[][] neighbors;
+        final int[][] weights;
+
+        VertexBlock() {
+            neighbors = new int[BLOCK_SIZE][];
+            weights = new int[BLOCK_SIZE][];
+            Arrays.fill(neighbors, EMPTY);
+            Arrays.fill(weights, EMPTY);
+        }
+
+        private VertexBlock(int[][] neighbors, int[][] weights) {
+            this.neighbors = neighbors;
+            this.weights = weights;
+        }
+
+        // 浅复制：只复制引用数组，各顶点的邻接数组在修改时才替换
+        VertexBlock copy() {
+            return new VertexBlock(neighbors.clone(), weights.clone());
+        }
+    }
+}
+
+class GraphSnapshot implements GraphView {
+    final long version;       // 版本号
+    private final int vertexCount;
+    private final VersionedGraph.VertexBlock[] blocks;
+    private final GraphType graphType;
+
+    GraphSnapshot(long version, int vertexCount, VersionedGraph.VertexBlock[] blocks, GraphType graphType) {
+        this.version = version;
+        this.vertexCount = vertexCount;
+        this.blocks = blocks;
+        this.graphType = graphType;
+    }
+
+    /**
+     * 获取顶点u的出度
+     */
+    public int degree(int u) {
+        return blocks[u >>> VersionedGraph.BLOCK_BITS].neighbors[u & VersionedGraph.BLOCK_MASK].length;
+    }
+
+    /**
+     * 获取顶点u的第i个邻接顶点
+     */
+    public int neighbor(int u, int i) {
+        return blocks[u >>> VersionedGraph.BLOCK_BITS].neighbors[u & VersionedGraph.BLOCK_MASK][i];
+    }
+
+    /**
+     * 获取顶点u的第i条边的权重
+     */
+    public int weight(int u, int i) {
+        return blocks[u >>> VersionedGraph.BLOCK_BITS].weights[u & VersionedGraph.BLOCK_MASK][i];
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private int[] nbrs;
+            private int[] wts;
+            private int pos;
+
+            @Override
+            public void reset(int u) {
+                VersionedGraph.VertexBlock block = blocks[u >>> VersionedGraph.BLOCK_BITS];
+                nbrs = block.neighbors[u & VersionedGraph.BLOCK_MASK];
+                wts = block.weights[u & VersionedGraph.BLOCK_MASK];
+                pos = 0;
+            }
+
+            @Override
+            public int next() {
+                return pos < nbrs.length ? nbrs[pos++] : -1;
+            }
+
+            @Override
+            public int weight() {
+                return wts[pos - 1];
+            }
+        };
+    }
+}
+
+class LongMinHeap {
+    private long[] heap = new long[16]; // 小根堆，常把(距离<<32 | 顶点)打包成一个long存放
+    private int size;
+
+    public void push(long value) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        //上浮
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = value;
+    }
+
+    public long pop() {
+        long top = heap[0];
+        long last = heap[--size];
+        //下沉
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
+
+class OffHeapGraph implements GraphView, AutoCloseable {
+    static final int MAGIC = 0x43535247;     // "CSRG"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 32;      // magic, version, 顶点数, 图类型, 边数(long), 保留(long)
+    private static final int CHUNK_BITS = 30; // 每段映射1GB（MappedByteBuffer单段不能超过2GB）
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks; // 按1GB分段映射整个文件
+    private final int vertexCount;
+    private final long arcCount;
+    private final GraphType graphType;
+    private final long offsetsBase;          // offsets数组（long[vertexCount+1]）在文件中的起始位置
+    private final long targetsBase;          // targets数组（int[arcCount]）的起始位置
+    private final long weightsBase;          // weights数组（int[arcCount]）的起始位置
+
+    private OffHeapGraph(FileChannel channel, MappedByteBuffer[] chunks, int vertexCount, long arcCount,
+                         GraphType graphType) {
+        this.channel = channel;
+        this.chunks = chunks;
+        this.vertexCount = vertexCount;
+        this.arcCount = arcCount;
+        this.graphType = graphType;
+        this.offsetsBase = HEADER_BYTES;
+        this.targetsBase = offsetsBase + 8L * (vertexCount + 1);
+        this.weightsBase = targetsBase + 4L * arcCount;
+    }
+
+    /**
+     * 以CSR格式把图写入文件（顺序流式写出，不需要在内存中构造整张CSR）
+     * 文件布局：头部 | long offsets[V+1] | int targets[E] | int weights[E]，全部为小端序
+     * @param graph 任意只读图
+     * @param path 目标文件
+     */
+    public static void write(GraphView graph, Path path) throws IOException {
+        int vcount = graph.getVertexCount();
+        long arcs = 0;
+        for (int u = 0; u < vcount; u++) {
+            arcs += graph.degree(u);
+        }
+
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            //1.头部
+            buf.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(vcount).putInt(graph.getGraphType().ordinal());
+            buf.putLong(arcs).putLong(0);
+            //2.offsets
+            long offset = 0;
+            for (int u = 0; u <= vcount; u++) {
+                if (buf.remaining() < 8) {
+                    drain(out, buf);
+                }
+                buf.putLong(offset);
+                if (u < vcount) {
+                    offset += graph.degree(u);
+                }
+            }
+            //3.targets与weights各需遍历一遍边
+            NeighborCursor cursor = graph.cursor();
+            for (int pass = 0; pass < 2; pass++) {
+                for (int u = 0; u < vcount; u++) {
+                    cursor.reset(u);
+                    for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                        if (buf.remaining() < 4) {
+                            drain(out, buf);
+                        }
+                        buf.putInt(pass == 0 ? v : cursor.weight());
+                    }
+                }
+            }
+            drain(out, buf);
+        }
+    }
+
+    // 把缓冲区内容全部写入文件并清空缓冲区
+    private static void drain(FileChannel out, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * 以内存映射方式打开图文件：只建立映射不读取数据，打开耗时与图的规模无关
+     * 数据由操作系统按需换页，不占用Java堆，也不参与GC
+     */
+    public static OffHeapGraph open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("图文件头部不完整");
+            }
+            int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_MASK + 1, size - start));
+                chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            ByteBuffer header = chunks[0];
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("不是CSR图文件或版本不匹配");
+            }
+            int vcount = header.getInt(8);
+            long arcs = header.getLong(16);
+            if (vcount < 0 || arcs < 0) {
+                throw new IllegalArgumentException("图文件中的顶点数或弧数为负");
+            }
+            int typeOrdinal = header.getInt(12);
+            if (typeOrdinal < 0 || typeOrdinal >= GraphType.values().length) {
+                throw new IOException("图文件中的图类型无效");
+            }
+            GraphType type = GraphType.values()[typeOrdinal];
+            if (size != HEADER_BYTES + 8L * (vcount + 1) + 8L * arcs) {
+                throw new IOException("图文件长度与头部不一致");
+            }
+            return new OffHeapGraph(channel, chunks, vcount, arcs, type);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // 所有数组都按元素大小对齐，且段大小是8的倍数，所以单个int/long不会跨段
+    private int getInt(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getInt((int) (pos & CHUNK_MASK));
+    }
+
+    private long getLong(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+    }
+
+    private long offset(int u) {
+        return getLong(offsetsBase + 8L * u);
+    }
+
+    @Override
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    @Override
+    public int degree(int u) {
+        return (int) (offset(u + 1) - offset(u));
+    }
+
+    /**
+     * 获取存储的有向边条数（无向边按两个方向计两次）
+     */
+    public long getArcCount() {
+        return arcCount;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new NeighborCursor() {
+            private long pos;
+            private long end;
+
+            @Override
+            public void reset(int u) {
+                pos = offset(u);
+                end = offset(u + 1);
+            }
+
+            @Override
+            public int next() {
+                return pos < end ? getInt(targetsBase + 4L * pos++) : -1;
+            }
+
+            @Override
+            public int weight() {
+                return getInt(weightsBase + 4L * (pos - 1));
+            }
+        };
+    }
+
+    /**
+     * 关闭文件通道；映射区域在MappedByteBuffer被GC回收后释放，关闭后不应再访问
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
+
+class VarInt {
+    /**
+     * ZigZag编码：把有符号数映射为无符号数（0,-1,1,-2... → 0,1,2,3...），小的负数也只占一个字节
+     */
+    public static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    public static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * 把value按7位一组写入buf[pos...]（最高位为1表示后面还有字节）
+     * @return 写入后的位置
+     */
+    public static int write(byte[] buf, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+
+    /**
+     * 可按位置读取字节的数据（堆内字节数组、内存映射文件等），各种图格式都通过它解码变长整数
+     */
+    interface ByteSource {
+        byte byteAt(long pos);
+    }
+
+    /**
+     * 从source的pos[0]处读取一个变长整数，pos[0]会前进到该整数之后
+     */
+    public static int read(ByteSource source, long[] pos) {
+        long p = pos[0];
+        int b = source.byteAt(p++);
+        int value = b & 0x7F;
+        int shift = 7;
+        while (b < 0) {
+            b = source.byteAt(p++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        pos[0] = p;
+        return value;
+    }
+
+    /**
+     * 读取source中pos处的一个变长整数（不需要后续位置时使用）
+     */
+    public static int read(ByteSource source, long pos) {
+        return read(source, new long[]{pos});
+    }
+
+    /**
+     * 获取value编码后的字节数
+     */
+    public static int size(int value) {
+        int n = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            n++;
+        }
+        return n;
+    }
+}
+
+class BinaryGraphWriter implements AutoCloseable {
+    static final int MAGIC = 0x47424E31;     // "GBN1"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 28;      // magic, version, 顶点数, 图类型, 是否带权, 边数(long)
+    static final int TRAILER_BYTES = 8;      // 索引的起始位置(long)
+    private static final int MAX_VARINT_BYTES = 5;  // 一个int变长编码后最多5字节
+
+    private final byte[] varInt = new byte[MAX_VARINT_BYTES]; // 编码单个变长整数的缓冲
+
+    private final FileChannel out;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+    private final int vertexCount;
+    private final boolean weighted;
+    private final long[] index;              // 每个顶点记录在文件中的起始位置，最后一项为记录区结尾
+    private long[] scratch = new long[16];   // 排序邻居时复用的缓冲区
+    private int written;                     // 已写入的顶点数
+    private long arcCount;
+    private long position;                   // 当前写到的文件位置
+    private boolean failed;                  // 写入中途出错，文件已不完整
+
+    /**
+     * 流式写出二进制图：按顶点编号顺序逐个调用writeVertex，最后close写出索引
+     * 每个顶点的记录为：变长度数 | 排序后的邻居（首个相对顶点编号、之后相对前一个邻居的差值）| 权重（可选）
+     * @param weighted 为false时不写权重（读取时权重均为1）
+     */
+    public BinaryGraphWriter(Path path, int vertexCount, GraphType graphType, boolean weighted) throws IOException {
+        this.out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.vertexCount = vertexCount;
+        this.weighted = weighted;
+        this.index = new long[vertexCount + 1];
+        buf.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(vertexCount).putInt(graphType.ordinal());
+        buf.putInt(weighted ? 1 : 0).putLong(0); //边数在close时回填
+        position = HEADER_BYTES;
+    }
+
+    /**
+     * 把任意只读图写成二进制格式
+     */
+    public static void write(GraphView graph, Path path) throws IOException {
+        int vcount = graph.getVertexCount();
+        NeighborCursor cursor = graph.cursor();
+        //先扫描一遍判断是否所有权重都为1，是则省去权重
+        boolean weighted = false;
+        for (int u = 0; u < vcount && !weighted; u++) {
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                if (cursor.weight() != 1) {
+                    weighted = true;
+                    break;
+                }
+            }
+        }
+
+        int[] nbrs = new int[16];
+        int[] wts = new int[16];
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(path, vcount, graph.getGraphType(), weighted)) {
+            for (int u = 0; u < vcount; u++) {
+                int d = graph.degree(u);
+                if (d > nbrs.length) {
+                    nbrs = new int[d];
+                    wts = new int[d];
+                }
+                cursor.reset(u);
+                for (int i = 0; i < d; i++) {
+                    nbrs[i] = cursor.next();
+                    wts[i] = cursor.weight();
+                }
+                writer.writeVertex(nbrs, wts, d);
+            }
+        }
+    }
+
+    /**
+     * 写出下一个顶点的邻接边（写入前按邻居编号排序，不修改传入的数组）
+     * 邻居编号必须在[0, vertexCount)内；抛出异常后写入器作废，只能close
+     * @param weights 不带权时可传null
+     */
+    public void writeVertex(int[] neighbors, int[] weights, int degree) throws IOException {
+        if (written == vertexCount) {
+            throw new IllegalStateException("写入的顶点数超过声明的顶点数");
+        }
+        int u = written++;
+        index[u] = position;
+        try {
+            //1.按(邻居, 权重)打包成long排序
+            if (degree > scratch.length) {
+                scratch = new long[Math.max(degree, scratch.length * 2)];
+            }
+            for (int i = 0; i < degree; i++) {
+                if (neighbors[i] < 0 || neighbors[i] >= vertexCount) {
+                    throw new IllegalArgumentException("顶点索引超出范围");
+                }
+                int w = weights == null ? 1 : weights[i];
+                scratch[i] = (long) neighbors[i] << 32 | (w & 0xFFFFFFFFL);
+            }
+            Arrays.sort(scratch, 0, degree);
+
+            //2.变长编码写出
+            putVarInt(degree);
+            int prev = u;
+            for (int i = 0; i < degree; i++) {
+                int v = (int) (scratch[i] >>> 32);
+                putVarInt(i == 0 ? VarInt.zigZag(v - prev) : v - prev);
+                if (weighted) {
+                    putVarInt(VarInt.zigZag((int) scratch[i]));
+                }
+                prev = v;
+            }
+            arcCount += degree;
+        } catch (IOException | RuntimeException e) {
+            failed = true; //记录写了一半，close时不再写索引，也不再检查顶点数以免掩盖这个异常
+            throw e;
+        }
+    }
+
+    private void putVarInt(int value) throws IOException {
+        if (buf.remaining() < MAX_VARINT_BYTES) {
+            drain();
+        }
+        int length = VarInt.write(varInt, 0, value);
+        buf.put(varInt, 0, length);
+        position += length;
+    }
+
+    private void drain() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * 写出顶点索引与尾部，并回填头部的边数；之前的写入失败过则只关闭文件
+     */
+    @Override
+    public void close() throws IOException {
+        if (failed) {
+            out.close();
+            return;
+        }
+        try {
+            if (written != vertexCount) {
+                throw new IllegalStateException("只写入了" + written + "个顶点，声明了" + vertexCount + "个");
+            }
+            index[vertexCount] = position;
+            long indexStart = position;
+            for (long offset : index) {
+                if (buf.remaining() < 8) {
+                    drain();
+                }
+                buf.putLong(offset);
+            }
+            if (buf.remaining() < 8) {
+                drain();
+            }
+            buf.putLong(indexStart);
+            drain();
+
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, arcCount);
+            out.write(count, HEADER_BYTES - 8);
+        } finally {
+            out.close();
+        }
+    }
+}
+
+class BinaryGraph implements GraphView, VarInt.ByteSource, AutoCloseable {
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final int vertexCount;
+    private final GraphType graphType;
+    private final boolean weighted;
+    private final long arcCount;
+    private final long indexStart;
+
+    private BinaryGraph(FileChannel channel, MappedByteBuffer[] chunks, int vertexCount, GraphType graphType,
+                        boolean weighted, long arcCount, long indexStart) {
+        this.channel = channel;
+        this.chunks = chunks;
+        this.vertexCount = vertexCount;
+        this.graphType = graphType;
+        this.weighted = weighted;
+        this.arcCount = arcCount;
+        this.indexStart = indexStart;
+    }
+
+    /**
+     * 内存映射方式打开二进制图，不拷贝也不解码，遍历时按需解码
+     */
+    public static BinaryGraph open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < BinaryGraphWriter.HEADER_BYTES + BinaryGraphWriter.TRAILER_BYTES) {
+                throw new IOException("二进制图文件不完整");
+            }
+            int chunkCount = (int) ((size + CHUNK_MASK) >>> CHUNK_BITS);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_MASK + 1, size - start));
+                chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer header = chunks[0];
+            if (header.getInt(0) != BinaryGraphWriter.MAGIC || header.getInt(4) != BinaryGraphWriter.FORMAT_VERSION) {
+                throw new IOException("不是二进制图文件或版本不匹配");
+            }
+            int vcount = header.getInt(8);
+            ByteBuffer trailer = ByteBuffer.allocate(BinaryGraphWriter.TRAILER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(trailer, size - BinaryGraphWriter.TRAILER_BYTES);
+            long indexStart = trailer.getLong(0);
+            if (indexStart + 8L * (vcount + 1) + BinaryGraphWriter.TRAILER_BYTES != size) {
+                throw new IOException("二进制图文件索引损坏");
+            }
+            int typeOrdinal = header.getInt(12);
+            if (typeOrdinal < 0 || typeOrdinal >= GraphType.values().length) {
+                throw new IOException("二进制图文件中的图类型无效");
+            }
+            return new BinaryGraph(channel, chunks, vcount, GraphType.values()[typeOrdinal],
+                    header.getInt(16) != 0, header.getLong(20), indexStart);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public byte byteAt(long pos) {
+        return chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & CHUNK_MASK));
+    }
+
+    // 索引项可能跨越映射段的边界，逐字节拼接
+    private long getLong(long pos) {
+        if ((pos & CHUNK_MASK) <= CHUNK_MASK - 7) {
+            return chunks[(int) (pos >>> CHUNK_BITS)].getLong((int) (pos & CHUNK_MASK));
+        }
+        long value = 0;
+        for (int i = 7; i >= 0; i--) {
+            value = value << 8 | (byteAt(pos + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private long recordStart(int u) {
+        return getLong(indexStart + 8L * u);
+    }
+
+    @Override
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    @Override
+    public int degree(int u) {
+        return VarInt.read(this, recordStart(u));
+    }
+
+    public long getArcCount() {
+        return arcCount;
+    }
+
+    public boolean isWeighted() {
+        return weighted;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    // 边解码游标：在映射区域上直接解码变长整数
+    private class Cursor implements NeighborCursor {
+        private final long[] pos = new long[1]; // 下一个待解码字节的位置
+        private int remaining;
+        private int prev;
+        private int weight = 1;
+        private boolean first;
+
+        @Override
+        public void reset(int u) {
+            pos[0] = recordStart(u);
+            remaining = VarInt.read(BinaryGraph.this, pos);
+            prev = u;
+            first = true;
+        }
+
+        @Override
+        public int next() {
+            if (remaining == 0) {
+                return -1;
+            }
+            remaining--;
+            int gap = VarInt.read(BinaryGraph.this, pos);
+            prev += first ? VarInt.unZigZag(gap) : gap;
+            first = false;
+            if (weighted) {
+                weight = VarInt.unZigZag(VarInt.read(BinaryGraph.this, pos));
+            }
+            return prev;
+        }
+
+        @Override
+        public int weight() {
+            return weight;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
+
+class EdgeListParser {
+    private static final long TARGET_CHUNK_BYTES = 64L << 20; // 每个解析任务约64MB
+
+    /**
+     * 并行解析文本边表并直接构造CSR
+     * 每行格式为"起点 终点 [权重]"（空白分隔，缺省权重为1），以#或%开头的行为注释
+     * 文件按换行切分成多个块并行解析，之后并行统计度数、并行填充CSR，最后对每个顶点的邻居排序
+     * @param path 文本文件
+     * @param graphType 图类型（无向图每行同时生成两个方向）
+     * @return 邻居已排序的CSR图，顶点数为最大顶点编号+1
+     */
+    public static CSRGraph parse(Path path, GraphType graphType) throws IOException {
+        EdgeBuffer[] parts;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] bounds = splitAtNewlines(channel);
+            parts = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1]))
+                    .toArray(EdgeBuffer[]::new);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return buildCsr(parts, graphType);
+    }
+
+    // 按目标块大小切分文件，每个切分点后移到下一行开头
+    private static long[] splitAtNewlines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        int chunkCount = (int) Math.max(1, Math.max(Math.min(parallelism * 4L, size / 4096), size / TARGET_CHUNK_BYTES));
+        long[] bounds = new long[chunkCount + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunkCount; i++) {
+            long pos = Math.max(bounds[i - 1], size / chunkCount * i);
+            boolean found = false;
+            while (!found && pos < size) {
+                probe.clear();
+                int n = channel.read(probe, pos);
+                for (int k = 0; k < n; k++) {
+                    if (probe.get(k) == '\n') {
+                        pos += k + 1;
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    pos += n;
+                }
+            }
+            bounds[i] = Math.min(pos, size);
+        }
+        bounds[chunkCount] = size;
+        return bounds;
+    }
+
+    // 解析[start, end)范围内的若干整行
+    private static EdgeBuffer parseChunk(FileChannel channel, long start, long end) {
+        EdgeBuffer edges = new EdgeBuffer();
+        if (start >= end) {
+            return edges;
+        }
+        MappedByteBuffer data;
+        try {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int len = data.limit();
+        int p = 0;
+        long[] fields = new long[3];
+        while (p < len) {
+            //1.跳过行首空白，处理注释和空行
+            while (p < len && (data.get(p) == ' ' || data.get(p) == '\t' || data.get(p) == '\r')) {
+                p++;
+            }
+            if (p < len && (data.get(p) == '#' || data.get(p) == '%' || data.get(p) == '\n')) {
+                while (p < len && data.get(p) != '\n') {
+                    p++;
+                }
+                p++;
+                continue;
+            }
+            //2.读取本行最多3个整数
+            int count = 0;
+            while (p < len && data.get(p) != '\n') {
+                byte c = data.get(p);
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    boolean negative = c == '-';
+                    if (negative) {
+                        p++;
+                    }
+                    long value = 0;
+                    while (p < len && data.get(p) >= '0' && data.get(p) <= '9') {
+                        value = value * 10 + (data.get(p++) - '0');
+                    }
+                    if (count < 3) {
+                        fields[count] = negative ? -value : value;
+                    }
+                    count++;
+                } else {
+                    p++;
+                }
+            }
+            p++;
+            if (count < 2) {
+                continue;
+            }
+            if (fields[0] < 0 || fields[1] < 0 || fields[0] > Integer.MAX_VALUE - 1 || fields[1] > Integer.MAX_VALUE - 1) {
+                throw new IllegalArgumentException("顶点索引超出范围");
+            }
+            edges.add((int) fields[0], (int) fields[1], count >= 3 ? (int) fields[2] : 1);
+        }
+        return edges;
+    }
+
+    private static CSRGraph buildCsr(EdgeBuffer[] parts, GraphType graphType) {
+        boolean undirected = graphType == GraphType.UNDIRECTED;
+        int maxId = -1;
+        long arcs = 0;
+        for (EdgeBuffer part : parts) {
+            maxId = Math.max(maxId, part.maxId);
+            arcs += undirected ? 2L * part.size : part.size;
+        }
+        if (arcs > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("边数超过CSRGraph的容量，请使用OffHeapGraph");
+        }
+        int vcount = maxId + 1;
+
+        //1.并行统计度数
+        AtomicIntegerArray degree = new AtomicIntegerArray(vcount);
+        Arrays.stream(parts).parallel().forEach(part -> {
+            for (int i = 0; i < part.size; i++) {
+                degree.incrementAndGet(part.src[i]);
+                if (undirected) {
+                    degree.incrementAndGet(part.dst[i]);
+                }
+            }
+        });
+        int[] offsets = new int[vcount + 1];
+        for (int u = 0; u < vcount; u++) {
+            offsets[u + 1] = offsets[u] + degree.get(u);
+        }
+
+        //2.并行填充：degree复用为每个顶点的写入位置
+        for (int u = 0; u < vcount; u++) {
+            degree.set(u, offsets[u]);
+        }
+        int[] targets = new int[(int) arcs];
+        int[] weights = new int[(int) arcs];
+        Arrays.stream(parts).parallel().forEach(part -> {
+            for (int i = 0; i < part.size; i++) {
+                int p = degree.getAndIncrement(part.src[i]);
+                targets[p] = part.dst[i];
+                weights[p] = part.weight[i];
+                if (undirected) {
+                    int q = degree.getAndIncrement(part.dst[i]);
+                    targets[q] = part.src[i];
+                    weights[q] = part.weight[i];
+                }
+            }
+        });
+
+        //3.并行填充的顺序不确定，按邻居编号排序使结果确定
+        int chunk = 4096;
+        IntStream.range(0, (vcount + chunk - 1) / chunk).parallel().forEach(c -> {
+            long[] scratch = new long[16];
+            for (int u = c * chunk; u < Math.min(vcount, (c + 1) * chunk); u++) {
+                int from = offsets[u];
+                int d = offsets[u + 1] - from;
+                if (d > scratch.length) {
+                    scratch = new long[d];
+                }
+                for (int i = 0; i < d; i++) {
+                    scratch[i] = (long) targets[from + i] << 32 | (weights[from + i] & 0xFFFFFFFFL);
+                }
+                Arrays.sort(scratch, 0, d);
+                for (int i = 0; i < d; i++) {
+                    targets[from + i] = (int) (scratch[i] >>> 32);
+                    weights[from + i] = (int) scratch[i];
+                }
+            }
+        });
+        return new CSRGraph(vcount, offsets, targets, weights, graphType);
+    }
+
+    // 每个解析任务私有的边缓冲区
+    private static class EdgeBuffer {
+        int[] src = new int[1024];
+        int[] dst = new int[1024];
+        int[] weight = new int[1024];
+        int size;
+        int maxId = -1;
+
+        void add(int from, int to, int w) {
+            if (size == src.length) {
+                src = Arrays.copyOf(src, size * 2);
+                dst = Arrays.copyOf(dst, size * 2);
+                weight = Arrays.copyOf(weight, size * 2);
+            }
+            src[size] = from;
+            dst[size] = to;
+            weight[size] = w;
+            size++;
+            maxId = Math.max(maxId, Math.max(from, to));
+        }
+    }
+}
+
+class CompressedGraph implements GraphView, VarInt.ByteSource {
+    static final int MIN_INTERVAL = 3;  // 连续编号至少3个才按区间编码
+
+    private final int vertexCount;
+    private final GraphType graphType;
+    private final boolean weighted;     // 带权图不做区间编码，每条边后紧跟权重
+    private final byte[] data;          // 所有顶点的编码记录
+    private final int[] offsets;        // 顶点u的记录从data[offsets[u]]开始
+    private final long arcCount;
+
+    private CompressedGraph(int vertexCount, GraphType graphType, boolean weighted, byte[] data, int[] offsets,
+                            long arcCount) {
+        this.vertexCount = vertexCount;
+        this.graphType = graphType;
+        this.weighted = weighted;
+        this.data = data;
+        this.offsets = offsets;
+        this.arcCount = arcCount;
+    }
+
+    /**
+     * 从任意只读图构造压缩图（每个顶点的邻居会被排序）
+     * 无权图的记录：度数 | 区间数 | 各区间(起点差值, 长度-3) | 剩余邻居的差值
+     * 带权图的记录：度数 | 各邻居(差值, 权重)
+     * 首个值相对顶点编号做ZigZag编码，之后都是非负差值，局部性好的图大多只占1字节
+     */
+    public static CompressedGraph copyOf(GraphView graph) {
+        int vcount = graph.getVertexCount();
+        NeighborCursor cursor = graph.cursor();
+        boolean weighted = false;
+        for (int u = 0; u < vcount && !weighted; u++) {
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                if (cursor.weight() != 1) {
+                    weighted = true;
+                    break;
+                }
+            }
+        }
+
+        byte[] data = new byte[1024];
+        int[] offsets = new int[vcount + 1];
+        long[] scratch = new long[16];
+        int[] residuals = new int[16];
+        int pos = 0;
+        long arcs = 0;
+        for (int u = 0; u < vcount; u++) {
+            //1.取出邻居排序
+            int d = graph.degree(u);
+            if (d > scratch.length) {
+                scratch = new long[d];
+                residuals = new int[d];
+            }
+            cursor.reset(u);
+            for (int i = 0; i < d; i++) {
+                int v = cursor.next();
+                scratch[i] = (long) v << 32 | (cursor.weight() & 0xFFFFFFFFL);
+            }
+            Arrays.sort(scratch, 0, d);
+            arcs += d;
+
+            //2.最坏情况每条边占10字节（邻居+权重），外加度数与区间数
+            long need = (long) pos + 10L + 10L * d;
+            if (need > data.length) {
+                if (need > Integer.MAX_VALUE - 8) {
+                    throw new IllegalArgumentException("压缩后的数据超过2GB，请使用BinaryGraph");
+                }
+                data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(need, data.length * 2L)));
+            }
+
+            offsets[u] = pos;
+            pos = VarInt.write(data, pos, d);
+            if (d == 0) {
+                continue;
+            }
+            if (weighted) {
+                int prev = u;
+                for (int i = 0; i < d; i++) {
+                    int v = (int) (scratch[i] >>> 32);
+                    pos = VarInt.write(data, pos, i == 0 ? VarInt.zigZag(v - prev) : v - prev);
+                    pos = VarInt.write(data, pos, VarInt.zigZag((int) scratch[i]));
+                    prev = v;
+                }
+                continue;
+            }
+
+            //3.无权图：先找出所有长度>=MIN_INTERVAL的连续区间，其余为剩余邻居
+            int intervalCountPos = pos;
+            int intervalCount = 0;
+            int residualCount = 0;
+            int prevEnd = u;   //上一个区间的末尾（首个区间相对u）
+            pos += 5;          //区间数稍后回填，先预留最大长度
+            int i = 0;
+            while (i < d) {
+                int start = (int) (scratch[i] >>> 32);
+                int j = i + 1;
+                while (j < d && (int) (scratch[j] >>> 32) == start + (j - i)) {
+                    j++;
+                }
+                if (j - i >= MIN_INTERVAL) {
+                    pos = VarInt.write(data, pos, intervalCount == 0 ? VarInt.zigZag(start - prevEnd) : start - prevEnd - 1);
+                    pos = VarInt.write(data, pos, j - i - MIN_INTERVAL);
+                    prevEnd = start + (j - i) - 1;
+                    intervalCount++;
+                    i = j;
+                } else {
+                    residuals[residualCount++] = start;
+                    i++;
+                }
+            }
+            //回填区间数：把区间数据前移到紧跟区间数之后
+            int countBytes = VarInt.size(intervalCount);
+            System.arraycopy(data, intervalCountPos + 5, data, intervalCountPos + countBytes, pos - intervalCountPos - 5);
+            pos -= 5 - countBytes;
+            VarInt.write(data, intervalCountPos, intervalCount);
+
+            int prev = u;
+            for (int k = 0; k < residualCount; k++) {
+                pos = VarInt.write(data, pos, k == 0 ? VarInt.zigZag(residuals[k] - prev) : residuals[k] - prev);
+                prev = residuals[k];
+            }
+        }
+        offsets[vcount] = pos;
+        return new CompressedGraph(vcount, graph.getGraphType(), weighted, Arrays.copyOf(data, pos), offsets, arcs);
+    }
+
+    @Override
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public GraphType getGraphType() {
+        return graphType;
+    }
+
+    @Override
+    public int degree(int u) {
+        return VarInt.read(this, offsets[u]);
+    }
+
+    @Override
+    public byte byteAt(long pos) {
+        return data[(int) pos];
+    }
+
+    public long getArcCount() {
+        return arcCount;
+    }
+
+    /**
+     * 获取压缩图占用的字节数（编码数据 + 顶点偏移）
+     */
+    public long memoryBytes() {
+        return data.length + 4L * offsets.length;
+    }
+
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    // 解码游标：区间在reset时解码到游标自带的数组中，剩余邻居边走边解码，两者按编号归并输出
+    private class Cursor implements NeighborCursor {
+        private final long[] pos = new long[1]; // 下一个待解码字节的位置
+        private int remaining;         // 剩余未输出的邻居数
+        private int weight = 1;
+        private int[] intervalStart = new int[8];
+        private int[] intervalLen = new int[8];
+        private int intervalCount;
+        private int intervalIdx;       // 当前区间
+        private int intervalPos;       // 当前区间内已输出的个数
+        private int residualsLeft;     // 尚未解码的剩余邻居数
+        private int nextResidual;      // 已解码待输出的剩余邻居，Integer.MAX_VALUE表示没有
+        private boolean firstResidual;
+
+        private int readVarInt() {
+            return VarInt.read(CompressedGraph.this, pos);
+        }
+
+        @Override
+        public void reset(int u) {
+            pos[0] = offsets[u];
+            remaining = readVarInt();
+            nextResidual = u; //作为首个差值的基准
+            firstResidual = true;
+            if (weighted || remaining == 0) {
+                residualsLeft = remaining;
+                return;
+            }
+            //解码全部区间
+            intervalCount = readVarInt();
+            if (intervalCount > intervalStart.length) {
+                intervalStart = new int[intervalCount];
+                intervalLen = new int[intervalCount];
+            }
+            int prevEnd = u;
+            int covered = 0;
+            for (int i = 0; i < intervalCount; i++) {
+                int gap = readVarInt();
+                intervalStart[i] = i == 0 ? prevEnd + VarInt.unZigZag(gap) : prevEnd + 1 + gap;
+                intervalLen[i] = readVarInt() + MIN_INTERVAL;
+                prevEnd = intervalStart[i] + intervalLen[i] - 1;
+                covered += intervalLen[i];
+            }
+            intervalIdx = 0;
+            intervalPos = 0;
+            residualsLeft = remaining - covered;
+            advanceResidual();
+        }
+
+        // 解码下一个剩余邻居到nextResidual
+        private void advanceResidual() {
+            if (residualsLeft == 0) {
+                nextResidual = Integer.MAX_VALUE;
+                return;
+            }
+            residualsLeft--;
+            int gap = readVarInt();
+            nextResidual += firstResidual ? VarInt.unZigZag(gap) : gap;
+            firstResidual = false;
+        }
+
+        @Override
+        public int next() {
+            if (remaining == 0) {
+                return -1;
+            }
+            remaining--;
+            if (weighted) {
+                int gap = readVarInt();
+                nextResidual += firstResidual ? VarInt.unZigZag(gap) : gap;
+                firstResidual = false;
+                weight = VarInt.unZigZag(readVarInt());
+                return nextResidual;
+            }
+            int fromInterval = intervalIdx < intervalCount ? intervalStart[intervalIdx] + intervalPos : Integer.MAX_VALUE;
+            if (fromInterval <= nextResidual) {
+                if (++intervalPos == intervalLen[intervalIdx]) {
+                    intervalIdx++;
+                    intervalPos = 0;
+                }
+                return fromInterval;
+            }
+            int v = nextResidual;
+            advanceResidual();
+            return v;
+        }
+
+        @Override
+        public int weight() {
+            return weight;
+        }
+    }
+}
+
+class GraphReordering {
+    /**
+     * 重排结果：重新编号后的图，以及新旧编号之间的映射
+     */
+    static class Result {
+        final CSRGraph graph;   // 重排后的图（每个顶点的邻居按新编号升序）
+        final int[] oldToNew;   // oldToNew[旧编号] = 新编号
+        final int[] newToOld;   // newToOld[新编号] = 旧编号
+
+        Result(CSRGraph graph, int[] oldToNew, int[] newToOld) {
+            this.graph = graph;
+            this.oldToNew = oldToNew;
+            this.newToOld = newToOld;
+        }
+    }
+
+    /**
+     * 逆Cuthill–McKee排序：从度数最小的顶点出发BFS，邻居按度数从小到大入队，最后整体逆序
+     * 得到的邻接矩阵带宽小，相邻顶点的编号接近，遍历时内存访问更集中（有向图按忽略方向后的结构排序）
+     */
+    public static Result reverseCuthillMcKee(GraphView graph) {
+        CSRGraph sym = symmetric(graph);
+        int vcount = sym.getVertexCount();
+        int[] offsets = sym.getOffsets();
+        int[] targets = sym.getTargets();
+
+        //1.所有顶点按度数升序，依次作为各连通分量的起点
+        int[] byDegree = sortByDegree(sym, false);
+        boolean[] visited = new boolean[vcount];
+        int[] order = new int[vcount];
+        int tail = 0;
+        long[] scratch = new long[16];
+        for (int s : byDegree) {
+            if (visited[s]) {
+                continue;
+            }
+            visited[s] = true;
+            int head = tail;
+            order[tail++] = s;
+            //2.BFS，每个顶点的未访问邻居按(度数, 编号)排序后入队
+            while (head < tail) {
+                int u = order[head++];
+                int count = 0;
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int v = targets[i];
+                    if (!visited[v]) {
+                        visited[v] = true;
+                        if (count == scratch.length) {
+                            scratch = Arrays.copyOf(scratch, count * 2);
+                        }
+                        scratch[count++] = (long) sym.degree(v) << 32 | v;
+                    }
+                }
+                Arrays.sort(scratch, 0, count);
+                for (int i = 0; i < count; i++) {
+                    order[tail++] = (int) scratch[i];
+                }
+            }
+        }
+
+        //3.逆序
+        for (int i = 0, j = vcount - 1; i < j; i++, j--) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return permute(graph, order);
+    }
+
+    /**
+     * 按度数降序编号：高度数顶点集中在数组前部，热点数据常驻缓存
+     */
+    public static Result degreeDescending(GraphView graph) {
+        return permute(graph, sortByDegree(graph, true));
+    }
+
+    /**
+     * 按BFS访问顺序编号（依次从编号最小的未访问顶点出发），同一层的顶点编号相邻
+     */
+    public static Result bfsOrder(GraphView graph) {
+        int vcount = graph.getVertexCount();
+        NeighborCursor cursor = graph.cursor();
+        boolean[] visited = new boolean[vcount];
+        int[] order = new int[vcount];
+        int tail = 0;
+        for (int s = 0; s < vcount; s++) {
+            if (visited[s]) {
+                continue;
+            }
+            visited[s] = true;
+            int head = tail;
+            order[tail++] = s;
+            while (head < tail) {
+                cursor.reset(order[head++]);
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    if (!visited[v]) {
+                        visited[v] = true;
+                        order[tail++] = v;
+                    }
+                }
+            }
+        }
+        return permute(graph, order);
+    }
+
+    /**
+     * 按给定顺序重新编号
+     * @param newToOld newToOld[i]为新编号i对应的旧顶点，必须是0~V-1的一个排列
+     */
+    public static Result permute(GraphView graph, int[] newToOld) {
+        int vcount = graph.getVertexCount();
+        if (newToOld.length != vcount) {
+            throw new IllegalArgumentException("排列长度与顶点数不一致");
+        }
+        int[] oldToNew = new int[vcount];
+        Arrays.fill(oldToNew, -1);
+        for (int i = 0; i < vcount; i++) {
+            if (oldToNew[newToOld[i]] != -1) {
+                throw new IllegalArgumentException("不是合法的排列");
+            }
+            oldToNew[newToOld[i]] = i;
+        }
+
+        int[] offsets = new int[vcount + 1];
+        for (int i = 0; i < vcount; i++) {
+            offsets[i + 1] = offsets[i] + graph.degree(newToOld[i]);
+        }
+        int[] targets = new int[offsets[vcount]];
+        int[] weights = new int[offsets[vcount]];
+        NeighborCursor cursor = graph.cursor();
+        long[] scratch = new long[16];
+        for (int i = 0; i < vcount; i++) {
+            int d = offsets[i + 1] - offsets[i];
+            if (d > scratch.length) {
+                scratch = new long[d];
+            }
+            cursor.reset(newToOld[i]);
+            for (int k = 0; k < d; k++) {
+                int v = cursor.next();
+                scratch[k] = (long) oldToNew[v] << 32 | (cursor.weight() & 0xFFFFFFFFL);
+            }
+            Arrays.sort(scratch, 0, d);
+            for (int k = 0; k < d; k++) {
+                targets[offsets[i] + k] = (int) (scratch[k] >>> 32);
+                weights[offsets[i] + k] = (int) scratch[k];
+            }
+        }
+        return new Result(new CSRGraph(vcount, offsets, targets, weights, graph.getGraphType()), oldToNew, newToOld);
+    }
+
+    // 计数排序：按度数升序（descending为true时降序）排列顶点，度数相同按编号
+    private static int[] sortByDegree(GraphView graph, boolean descending) {
+        int vcount = graph.getVertexCount();
+        int maxDegree = 0;
+        int[] degree = new int[vcount];
+        for (int u = 0; u < vcount; u++) {
+            degree[u] = graph.degree(u);
+            maxDegree = Math.max(maxDegree, degree[u]);
+        }
+        int[] start = new int[maxDegree + 2];
+        for (int u = 0; u < vcount; u++) {
+            start[(descending ? maxDegree - degree[u] : degree[u]) + 1]++;
+        }
+        for (int i = 0; i <= maxDegree; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] order = new int[vcount];
+        for (int u = 0; u < vcount; u++) {
+            order[start[descending ? maxDegree - degree[u] : degree[u]]++] = u;
+        }
+        return order;
+    }
+
+    // 忽略方向后的结构：无向图直接拷贝，有向图合并出边与入边
+    private static CSRGraph symmetric(GraphView graph) {
+        CSRGraph out = CSRGraph.copyOf(graph);
+        if (graph.getGraphType() == GraphType.UNDIRECTED) {
+            return out;
+        }
+        CSRGraph in = out.transpose();
+        int vcount = out.getVertexCount();
+        int[] offsets = new int[vcount + 1];
+        for (int u = 0; u < vcount; u++) {
+            offsets[u + 1] = offsets[u] + out.degree(u) + in.degree(u);
+        }
+        int[] targets = new int[offsets[vcount]];
+        for (int u = 0; u < vcount; u++) {
+            System.arraycopy(out.getTargets(), out.getOffsets()[u], targets, offsets[u], out.degree(u));
+            System.arraycopy(in.getTargets(), in.getOffsets()[u], targets, offsets[u] + out.degree(u), in.degree(u));
+        }
+        return new CSRGraph(vcount, offsets, targets, new int[targets.length], GraphType.UNDIRECTED);
+    }
+}
+
+class GraphPartitioner {
+    private static final int COARSEST_PER_PART = 20; // 粗化到每个分区约20个顶点时停止
+    private static final double IMBALANCE = 1.03;    // 允许的分区权重上限（相对平均值）
+    private static final int REFINE_PASSES = 4;
+
+    /**
+     * 哈希分区：顶点按编号的哈希值分到各分区，负载均衡但边割很大
+     * @return owner数组：owner[u]为顶点u所在的分区
+     */
+    public static int[] hash(GraphView graph, int parts) {
+        checkParts(parts);
+        int[] owner = new int[graph.getVertexCount()];
+        for (int u = 0; u < owner.length; u++) {
+            //乘法哈希取高位，避免分区数为2的幂时退化成u % parts
+            owner[u] = (int) (((u * 0x9E3779B9L) & 0xFFFFFFFFL) * parts >>> 32);
+        }
+        return owner;
+    }
+
+    /**
+     * METIS式多层分区：重边匹配逐层粗化 -> 在最粗的图上区域生长得到初始划分 -> 逐层投影回细图并做边界贪心优化
+     * 有向图按忽略方向后的结构划分，各分区顶点数不超过平均值的(1+3%)（最粗层的顶点粒度可能使其略有超出）
+     * @return owner数组：owner[u]为顶点u所在的分区
+     */
+    public static int[] multilevel(GraphView graph, int parts) {
+        checkParts(parts);
+        int vcount = graph.getVertexCount();
+        if (parts == 1 || vcount <= parts) {
+            int[] owner = new int[vcount];
+            for (int u = 0; u < vcount; u++) {
+                owner[u] = u % parts;
+            }
+            return owner;
+        }
+
+        //1.粗化：每层记录细图顶点到粗图顶点的映射
+        List<Level> levels = new ArrayList<>();
+        levels.add(Level.of(graph));
+        Random random = new Random(vcount);
+        while (levels.get(levels.size() - 1).n > parts * COARSEST_PER_PART) {
+            Level fine = levels.get(levels.size() - 1);
+            Level coarse = fine.coarsen(random);
+            if (coarse.n > fine.n * 0.95) {
+                break; //匹配不到足够的顶点对，再粗化收益不大
+            }
+            levels.add(coarse);
+        }
+
+        //2.初始划分
+        Level coarsest = levels.get(levels.size() - 1);
+        int[] owner = coarsest.grow(parts);
+        coarsest.refine(owner, parts);
+
+        //3.逐层投影并优化
+        for (int i = levels.size() - 2; i >= 0; i--) {
+            Level fine = levels.get(i);
+            int[] fineOwner = new int[fine.n];
+            for (int u = 0; u < fine.n; u++) {
+                fineOwner[u] = owner[fine.map[u]];
+            }
+            owner = fineOwner;
+            fine.refine(owner, parts);
+        }
+        return owner;
+    }
+
+    /**
+     * 统计边割：两端不在同一分区的边数（无向边计一次）
+     */
+    public static long edgeCut(GraphView graph, int[] owner) {
+        long cut = 0;
+        NeighborCursor cursor = graph.cursor();
+        for (int u = 0; u < graph.getVertexCount(); u++) {
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                if (owner[u] != owner[v]) {
+                    cut++;
+                }
+            }
+        }
+        return graph.getGraphType() == GraphType.UNDIRECTED ? cut / 2 : cut;
+    }
+
+    /**
+     * 按分区结果切分成分片，跨分区的边在起点所在分片中指向幽灵顶点
+     * @param owner 分区结果（hash或multilevel的返回值）
+     * @param parts 分区数
+     */
+    public static GraphShard[] shard(GraphView graph, int[] owner, int parts) {
+        checkParts(parts);
+        int vcount = graph.getVertexCount();
+        if (owner.length != vcount) {
+            throw new IllegalArgumentException("分区数组长度与顶点数不一致");
+        }
+        //1.各分片拥有的顶点（升序）
+        int[] ownedCount = new int[parts];
+        for (int u = 0; u < vcount; u++) {
+            if (owner[u] < 0 || owner[u] >= parts) {
+                throw new IllegalArgumentException("分区编号超出范围");
+            }
+            ownedCount[owner[u]]++;
+        }
+        int[][] owned = new int[parts][];
+        for (int p = 0; p < parts; p++) {
+            owned[p] = new int[ownedCount[p]];
+        }
+        int[] fill = new int[parts];
+        for (int u = 0; u < vcount; u++) {
+            owned[owner[u]][fill[owner[u]]++] = u;
+        }
+
+        //2.逐个分片收集幽灵顶点并构建本地CSR
+        GraphShard[] shards = new GraphShard[parts];
+        NeighborCursor cursor = graph.cursor();
+        for (int p = 0; p < parts; p++) {
+            int[] mine = owned[p];
+            int[] offsets = new int[mine.length + 1];
+            int ghostCount = 0;
+            int[] ghosts = new int[16];
+            for (int i = 0; i < mine.length; i++) {
+                offsets[i + 1] = offsets[i] + graph.degree(mine[i]);
+                cursor.reset(mine[i]);
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    if (owner[v] != p) {
+                        if (ghostCount == ghosts.length) {
+                            ghosts = Arrays.copyOf(ghosts, ghostCount * 2);
+                        }
+                        ghosts[ghostCount++] = v;
+                    }
+                }
+            }
+            Arrays.sort(ghosts, 0, ghostCount);
+            int distinct = 0;
+            for (int i = 0; i < ghostCount; i++) {
+                if (distinct == 0 || ghosts[distinct - 1] != ghosts[i]) {
+                    ghosts[distinct++] = ghosts[i];
+                }
+            }
+
+            int[] vertices = Arrays.copyOf(mine, mine.length + distinct);
+            System.arraycopy(ghosts, 0, vertices, mine.length, distinct);
+            int[] ghostOwner = new int[distinct];
+            for (int i = 0; i < distinct; i++) {
+                ghostOwner[i] = owner[ghosts[i]];
+            }
+            GraphShard shard = new GraphShard(p, vertices, mine.length, offsets,
+                    new int[offsets[mine.length]], new int[offsets[mine.length]], ghostOwner, graph.getGraphType());
+            for (int i = 0; i < mine.length; i++) {
+                int pos = offsets[i];
+                cursor.reset(mine[i]);
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    shard.targets[pos] = shard.localId(v);
+                    shard.weights[pos++] = cursor.weight();
+                }
+            }
+            shards[p] = shard;
+        }
+        return shards;
+    }
+
+    private static void checkParts(int parts) {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("分区数必须为正数");
+        }
+    }
+
+    /**
+     * 多层分区中的一层：带顶点权重和边权重（合并的边数）的无向图
+     */
+    private static class Level {
+        final int n;
+        final int[] offsets;
+        final int[] targets;
+        final int[] edgeWeights;
+        final int[] vertexWeights;
+        int[] map; // 本层顶点 -> 下一层（更粗）顶点
+
+        Level(int n, int[] offsets, int[] targets, int[] edgeWeights, int[] vertexWeights) {
+            this.n = n;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.edgeWeights = edgeWeights;
+            this.vertexWeights = vertexWeights;
+        }
+
+        // 原图忽略方向、去掉自环，顶点权重和边权重都为1（重复边的权重累加）
+        static Level of(GraphView graph) {
+            int n = graph.getVertexCount();
+            int[] degree = new int[n];
+            NeighborCursor cursor = graph.cursor();
+            boolean directed = graph.getGraphType() == GraphType.DIRECTED;
+            for (int u = 0; u < n; u++) {
+                cursor.reset(u);
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    if (u != v) {
+                        degree[u]++;
+                        if (directed) {
+                            degree[v]++;
+                        }
+                    }
+                }
+            }
+            int[] offsets = new int[n + 1];
+            for (int u = 0; u < n; u++) {
+                offsets[u + 1] = offsets[u] + degree[u];
+            }
+            int[] targets = new int[offsets[n]];
+            int[] pos = Arrays.copyOf(offsets, n);
+            for (int u = 0; u < n; u++) {
+                cursor.reset(u);
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    if (u != v) {
+                        targets[pos[u]++] = v;
+                        if (directed) {
+                            targets[pos[v]++] = u;
+                        }
+                    }
+                }
+            }
+            int[] ones = new int[n];
+            Arrays.fill(ones, 1);
+            return merge(n, offsets, targets, null, ones);
+        }
+
+        // 重边匹配：随机顺序访问顶点，与权重最大的未匹配邻居合并成一个粗顶点
+        Level coarsen(Random random) {
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = order[i];
+                order[i] = order[j];
+                order[j] = t;
+            }
+            map = new int[n];
+            Arrays.fill(map, -1);
+            int cn = 0;
+            for (int u : order) {
+                if (map[u] != -1) {
+                    continue;
+                }
+                int best = -1;
+                int bestWeight = 0;
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int v = targets[i];
+                    if (map[v] == -1 && edgeWeights[i] > bestWeight) {
+                        best = v;
+                        bestWeight = edgeWeights[i];
+                    }
+                }
+                map[u] = cn;
+                if (best != -1) {
+                    map[best] = cn;
+                }
+                cn++;
+            }
+
+            //按粗顶点收集边（去掉合并后产生的自环），重复边在merge中合并
+            int[] vertexWeights = new int[cn];
+            int[] degree = new int[cn];
+            for (int u = 0; u < n; u++) {
+                vertexWeights[map[u]] += this.vertexWeights[u];
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    if (map[targets[i]] != map[u]) {
+                        degree[map[u]]++;
+                    }
+                }
+            }
+            int[] coarseOffsets = new int[cn + 1];
+            for (int c = 0; c < cn; c++) {
+                coarseOffsets[c + 1] = coarseOffsets[c] + degree[c];
+            }
+            int[] coarseTargets = new int[coarseOffsets[cn]];
+            int[] coarseWeights = new int[coarseOffsets[cn]];
+            int[] pos = Arrays.copyOf(coarseOffsets, cn);
+            for (int u = 0; u < n; u++) {
+                int c = map[u];
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    if (map[targets[i]] != c) {
+                        coarseTargets[pos[c]] = map[targets[i]];
+                        coarseWeights[pos[c]++] = edgeWeights[i];
+                    }
+                }
+            }
+            return merge(cn, coarseOffsets, coarseTargets, coarseWeights, vertexWeights);
+        }
+
+        // 合并每个顶点的重复邻居，边权重累加（weights为null时每条边权重为1）
+        private static Level merge(int n, int[] offsets, int[] targets, int[] weights, int[] vertexWeights) {
+            int[] slot = new int[n];
+            Arrays.fill(slot, -1);
+            int[] newOffsets = new int[n + 1];
+            int[] newTargets = new int[targets.length];
+            int[] newWeights = new int[targets.length];
+            int pos = 0;
+            for (int u = 0; u < n; u++) {
+                int start = pos;
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int v = targets[i];
+                    int w = weights == null ? 1 : weights[i];
+                    if (slot[v] >= start) {
+                        newWeights[slot[v]] += w;
+                    } else {
+                        slot[v] = pos;
+                        newTargets[pos] = v;
+                        newWeights[pos++] = w;
+                    }
+                }
+                newOffsets[u + 1] = pos;
+            }
+            return new Level(n, newOffsets, Arrays.copyOf(newTargets, pos), Arrays.copyOf(newWeights, pos), vertexWeights);
+        }
+
+        // 区域生长：依次从未分配的顶点出发BFS，分区权重达到平均值后换下一个分区
+        int[] grow(int parts) {
+            long total = 0;
+            for (int w : vertexWeights) {
+                total += w;
+            }
+            int[] owner = new int[n];
+            Arrays.fill(owner, -1);
+            int[] queue = new int[n];
+            int next = 0;
+            for (int p = 0; p < parts - 1; p++) {
+                long target = total * (p + 1) / parts;
+                long assigned = total * p / parts;
+                int head = 0;
+                int tail = 0;
+                while (assigned < target) {
+                    if (head == tail) {
+                        //当前区域无法继续扩展（或刚开始），换一个未分配的种子
+                        while (next < n && owner[next] != -1) {
+                            next++;
+                        }
+                        if (next == n) {
+                            break;
+                        }
+                        owner[next] = p;
+                        assigned += vertexWeights[next];
+                        queue[tail++] = next;
+                        continue;
+                    }
+                    int u = queue[head++];
+                    for (int i = offsets[u]; i < offsets[u + 1] && assigned < target; i++) {
+                        int v = targets[i];
+                        if (owner[v] == -1) {
+                            owner[v] = p;
+                            assigned += vertexWeights[v];
+                            queue[tail++] = v;
+                        }
+                    }
+                }
+            }
+            for (int u = 0; u < n; u++) {
+                if (owner[u] == -1) {
+                    owner[u] = parts - 1;
+                }
+            }
+            return owner;
+        }
+
+        // 边界贪心优化：把顶点移到连接最紧密的相邻分区（边割减少，或边割不变但更均衡），不超过权重上限
+        void refine(int[] owner, int parts) {
+            long[] partWeight = new long[parts];
+            long total = 0;
+            for (int u = 0; u < n; u++) {
+                partWeight[owner[u]] += vertexWeights[u];
+                total += vertexWeights[u];
+            }
+            long maxWeight = (long) Math.ceil(total * IMBALANCE / parts);
+            int[] conn = new int[parts];
+            int[] touched = new int[parts];
+            for (int pass = 0; pass < REFINE_PASSES; pass++) {
+                int moves = 0;
+                for (int u = 0; u < n; u++) {
+                    int own = owner[u];
+                    int touchedCount = 0;
+                    for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                        int p = owner[targets[i]];
+                        if (conn[p] == 0) {
+                            touched[touchedCount++] = p;
+                        }
+                        conn[p] += edgeWeights[i];
+                    }
+                    int best = own;
+                    int bestGain = 0;
+                    boolean overweight = partWeight[own] > maxWeight;
+                    for (int k = 0; k < touchedCount; k++) {
+                        int p = touched[k];
+                        if (p == own || partWeight[p] + vertexWeights[u] > maxWeight) {
+                            continue;
+                        }
+                        int gain = conn[p] - conn[own];
+                        boolean balances = partWeight[p] + vertexWeights[u] < partWeight[own];
+                        //尚未找到目标时：边割减少就移动；边割不变（或本分区超重）时只要更均衡也移动
+                        boolean better = best == own ? gain > 0 || (gain == 0 || overweight) && balances
+                                : gain > bestGain;
+                        if (better) {
+                            best = p;
+                            bestGain = gain;
+                        }
+                    }
+                    for (int k = 0; k < touchedCount; k++) {
+                        conn[touched[k]] = 0;
+                    }
+                    if (best != own) {
+                        owner[u] = best;
+                        partWeight[own] -= vertexWeights[u];
+                        partWeight[best] += vertexWeights[u];
+                        moves++;
+                    }
+                }
+                if (moves == 0) {
+                    break;
+                }
+            }
+        }
+    }
+}
+
+class GraphShard {
+    final int shardId;
+    final int[] vertices;    // 本地编号 -> 全局编号：前ownedCount个为本分片拥有的顶点，之后为幽灵顶点，两段各自升序
+    final int ownedCount;
+    final int[] offsets;     // 本地CSR，只有拥有的顶点有出边
+    final int[] targets;     // 邻居的本地编号（可能是幽灵顶点）
+    final int[] weights;
+    final int[] ghostOwner;  // ghostOwner[i]为第i个幽灵顶点所在的分片
+    final GraphType graphType;
+
+    GraphShard(int shardId, int[] vertices, int ownedCount, int[] offsets, int[] targets, int[] weights,
+               int[] ghostOwner, GraphType graphType) {
+        this.shardId = shardId;
+        this.vertices = vertices;
+        this.ownedCount = ownedCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.ghostOwner = ghostOwner;
+        this.graphType = graphType;
+    }
+
+    public int getOwnedCount() {
+        return ownedCount;
+    }
+
+    public int getGhostCount() {
+        return vertices.length - ownedCount;
+    }
+
+    public int globalId(int local) {
+        return vertices[local];
+    }
+
+    /**
+     * 全局编号转本地编号（二分查找），不在本分片中返回-1
+     */
+    public int localId(int global) {
+        int i = Arrays.binarySearch(vertices, 0, ownedCount, global);
+        if (i >= 0) {
+            return i;
+        }
+        i = Arrays.binarySearch(vertices, ownedCount, vertices.length, global);
+        return i >= 0 ? i : -1;
+    }
+
+    public boolean isGhost(int local) {
+        return local >= ownedCount;
+    }
+
+    /**
+     * 本地顶点所在的分片
+     */
+    public int ownerOf(int local) {
+        return local < ownedCount ? shardId : ghostOwner[local - ownedCount];
+    }
+}
+
+/**
+ * 分片之间的消息传输。每条消息是一个long：(全局顶点编号<<32 | 值)
+ * 计算按轮进行：每轮各分片先send若干批消息，再endRound广播本轮的活跃度，然后receive收取本轮发给自己的全部消息
+ */
+interface MessageTransport extends AutoCloseable {
+    int shardCount();
+
+    /**
+     * 发送一批消息；调用返回后messages数组可以复用
+     */
+    void send(int from, int to, long[] messages, int length);
+
+    /**
+     * 结束本轮的发送，并向所有分片（包括自己）广播本分片的活跃度
+     */
+    void endRound(int from, long activity);
+
+    /**
+     * 等待所有分片结束本轮，把本轮发给to的消息依次交给consumer
+     * @return 本轮所有分片的活跃度之和（为0说明计算已收敛）
+     */
+    long receive(int to, LongConsumer consumer);
+
+    /**
+     * 中止计算：正在或之后在receive中等待的分片都抛出异常（以第一次中止的原因为准），传输层不能再使用
+     */
+    void fail(Throwable cause);
+
+    @Override
+    void close();
+}
+
+class InProcessTransport implements MessageTransport {
+    private static final Packet ABORT = new Packet(null, 0); // 中止标记，放入每个队列唤醒等待的分片
+
+    private final BlockingQueue<Packet>[][] queues; // queues[to][from]，同一对分片之间保持先进先出
+    private volatile Throwable failure;             // 第一次中止的原因
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public InProcessTransport(int shardCount) {
+        queues = new BlockingQueue[shardCount][shardCount];
+        for (int to = 0; to < shardCount; to++) {
+            for (int from = 0; from < shardCount; from++) {
+                queues[to][from] = new LinkedBlockingQueue<>();
+            }
+        }
+    }
+
+    @Override
+    public int shardCount() {
+        return queues.length;
+    }
+
+    @Override
+    public void send(int from, int to, long[] messages, int length) {
+        queues[to][from].add(new Packet(Arrays.copyOf(messages, length), 0));
+    }
+
+    @Override
+    public void endRound(int from, long activity) {
+        for (int to = 0; to < queues.length; to++) {
+            endRound(from, to, activity);
+        }
+    }
+
+    // 只向一个分片发送本轮结束标记
+    void endRound(int from, int to, long activity) {
+        queues[to][from].add(new Packet(null, activity));
+    }
+
+    @Override
+    public long receive(int to, LongConsumer consumer) {
+        long activity = 0;
+        //逐个发送方读到本轮结束标记为止，之后的消息属于下一轮
+        for (BlockingQueue<Packet> queue : queues[to]) {
+            while (true) {
+                Packet packet;
+                try {
+                    packet = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("等待消息时被中断", e);
+                }
+                if (packet == ABORT || failure != null) {
+                    throw new RuntimeException("分片计算已中止", failure);
+                }
+                if (packet.messages == null) {
+                    activity += packet.activity;
+                    break;
+                }
+                for (long m : packet.messages) {
+                    consumer.accept(m);
+                }
+            }
+        }
+        return activity;
+    }
+
+    @Override
+    public void fail(Throwable cause) {
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            failure = cause;
+        }
+        for (BlockingQueue<Packet>[] inbox : queues) {
+            for (BlockingQueue<Packet> queue : inbox) {
+                queue.add(ABORT);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static class Packet {
+        final long[] messages; // null表示本轮结束标记
+        final long activity;
+
+        Packet(long[] messages, long activity) {
+            this.messages = messages;
+            this.activity = activity;
+        }
+    }
+}
+
+/**
+ * 本机回环Socket传输：每对分片之间一条TCP连接，用于在单机上模拟多节点部署
+ * 帧格式：int长度n + n个long；n为-1时表示本轮结束，后跟一个long活跃度
+ * 每条入站连接由一个后台线程读取并放入收件队列，避免双方同时发送时写满Socket缓冲区而死锁；
+ * 连接断开时读线程中止收件队列，等待中的分片抛出异常而不是一直阻塞
+ */
+class LoopbackSocketTransport implements MessageTransport {
+    private final InProcessTransport inbox;
+    private final DataOutputStream[][] outputs; // outputs[from][to]，自己发给自己时为null
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<Thread> readers = new ArrayList<>();
+
+    public LoopbackSocketTransport(int shardCount) {
+        inbox = new InProcessTransport(shardCount);
+        outputs = new DataOutputStream[shardCount][shardCount];
+        try (ServerSocket server = new ServerSocket(0, shardCount * shardCount, InetAddress.getLoopbackAddress())) {
+            for (int from = 0; from < shardCount; from++) {
+                for (int to = 0; to < shardCount; to++) {
+                    if (from == to) {
+                        continue;
+                    }
+                    Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+                    Socket accepted = server.accept();
+                    client.setTcpNoDelay(true);
+                    sockets.add(client);
+                    sockets.add(accepted);
+                    outputs[from][to] = new DataOutputStream(new BufferedOutputStream(client.getOutputStream(), 1 << 16));
+                    startReader(from, to, new DataInputStream(new BufferedInputStream(accepted.getInputStream(), 1 << 16)));
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void startReader(int from, int to, DataInputStream in) {
+        Thread reader = new Thread(() -> {
+            long[] buffer = new long[0];
+            try {
+                while (true) {
+                    int length = in.readInt();
+                    if (length == -1) {
+                        inbox.endRound(from, to, in.readLong());
+                        continue;
+                    }
+                    if (buffer.length < length) {
+                        buffer = new long[length];
+                    }
+                    for (int i = 0; i < length; i++) {
+                        buffer[i] = in.readLong();
+                    }
+                    inbox.send(from, to, buffer, length);
+                }
+            } catch (IOException e) {
+                //连接断开（包括close）：之后再也收不到这条连接的消息，唤醒等待的分片
+                inbox.fail(new UncheckedIOException("分片" + from + "到分片" + to + "的连接已断开", e));
+            }
+        }, "shard-reader-" + from + "-" + to);
+        reader.setDaemon(true);
+        reader.start();
+        readers.add(reader);
+    }
+
+    @Override
+    public int shardCount() {
+        return outputs.length;
+    }
+
+    @Override
+    public void send(int from, int to, long[] messages, int length) {
+        if (from == to) {
+            inbox.send(from, to, messages, length);
+            return;
+        }
+        DataOutputStream out = outputs[from][to];
+        try {
+            out.writeInt(length);
+            for (int i = 0; i < length; i++) {
+                out.writeLong(messages[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void endRound(int from, long activity) {
+        for (int to = 0; to < outputs.length; to++) {
+            if (from == to) {
+                inbox.endRound(from, to, activity);
+                continue;
+            }
+            DataOutputStream out = outputs[from][to];
+            try {
+                out.writeInt(-1);
+                out.writeLong(activity);
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public long receive(int to, LongConsumer consumer) {
+        return inbox.receive(to, consumer);
+    }
+
+    @Override
+    public void fail(Throwable cause) {
+        inbox.fail(cause);
+    }
+
+    @Override
+    public void close() {
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                //关闭失败不影响其他连接
+            }
+        }
+        for (Thread reader : readers) {
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
+
+class ShardedTraversal {
+    static final int BATCH_SIZE = 4096; // 每批发送的消息数
+
+    /**
+     * 分片BFS：逐层推进，本分片内的边直接扩展，指向幽灵顶点的边打包发给其所在分片
+     * 每个分片一个工作线程，只通过transport交换消息
+     * @param shards 分片（GraphPartitioner.shard的返回值）
+     * @param transport 消息传输（分片数需一致）
+     * @param source 起点的全局编号
+     * @return 全局编号下的距离数组（-1表示不可达），由各分片的本地结果汇总而成
+     * @throws RuntimeException 任一分片失败或连接断开时抛出（原因为第一个失败），transport随之中止
+     */
+    public static int[] bfs(GraphShard[] shards, MessageTransport transport, int source) {
+        return run(shards, transport, source, false);
+    }
+
+    /**
+     * 分片单源最短路：每轮各分片先在本地做Dijkstra，再把变短的幽灵顶点距离发给其所在分片，直到所有分片都没有更新
+     * @return 全局编号下的距离数组（DijkstraShortestPath.INF表示不可达）
+     */
+    public static int[] sssp(GraphShard[] shards, MessageTransport transport, int source) {
+        return run(shards, transport, source, true);
+    }
+
+    private static int[] run(GraphShard[] shards, MessageTransport transport, int source, boolean weighted) {
+        if (transport.shardCount() != shards.length) {
+            throw new IllegalArgumentException("分片数与传输层不一致");
+        }
+        int vcount = 0;
+        for (GraphShard shard : shards) {
+            vcount += shard.ownedCount;
+        }
+        if (source < 0 || source >= vcount) {
+            throw new IllegalArgumentException("顶点索引超出范围");
+        }
+
+        int[] result = new int[vcount];
+        ExecutorService pool = Executors.newFixedThreadPool(shards.length);
+        //按完成顺序收取结果：任何一个分片失败都立即中止传输层，其他分片不会在receive中一直等待
+        CompletionService<Void> completion = new ExecutorCompletionService<>(pool);
+        try {
+            for (GraphShard shard : shards) {
+                completion.submit(() -> {
+                    int[] dist = weighted ? new ShardWorker(shard, transport).sssp(source)
+                            : new ShardWorker(shard, transport).bfs(source);
+                    for (int i = 0; i < shard.ownedCount; i++) {
+                        result[shard.vertices[i]] = dist[i];
+                    }
+                    return null;
+                });
+            }
+            for (int i = 0; i < shards.length; i++) {
+                completion.take().get();
+            }
+        } catch (InterruptedException e) {
+            transport.fail(e);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("分片计算被中断", e);
+        } catch (ExecutionException e) {
+            transport.fail(e.getCause());
+            throw new RuntimeException("分片计算失败", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return result;
+    }
+
+    /**
+     * 单个分片的计算：持有本地距离数组（拥有的顶点 + 幽灵顶点）和发往各分片的消息缓冲
+     */
+    private static class ShardWorker {
+        final GraphShard shard;
+        final MessageTransport transport;
+        final long[][] outbox;
+        final int[] outboxSize;
+        long sent;
+
+        ShardWorker(GraphShard shard, MessageTransport transport) {
+            this.shard = shard;
+            this.transport = transport;
+            this.outbox = new long[transport.shardCount()][BATCH_SIZE];
+            this.outboxSize = new int[transport.shardCount()];
+        }
+
+        int[] bfs(int source) {
+            int[] dist = new int[shard.vertices.length];
+            Arrays.fill(dist, -1);
+            int[] frontier = new int[shard.ownedCount];
+            int[] next = new int[shard.ownedCount];
+            int frontierSize = 0;
+            int local = shard.localId(source);
+            if (local != -1 && !shard.isGhost(local)) {
+                dist[local] = 0;
+                frontier[frontierSize++] = local;
+            }
+            for (int level = 0; ; level++) {
+                //1.扩展本层：本分片的顶点进入下一层，幽灵顶点发给所在分片（每个幽灵顶点只发一次）
+                int nextSize = 0;
+                sent = 0;
+                for (int k = 0; k < frontierSize; k++) {
+                    int u = frontier[k];
+                    for (int i = shard.offsets[u]; i < shard.offsets[u + 1]; i++) {
+                        int v = shard.targets[i];
+                        if (dist[v] != -1) {
+                            continue;
+                        }
+                        dist[v] = level + 1;
+                        if (shard.isGhost(v)) {
+                            post(v, level + 1);
+                        } else {
+                            next[nextSize++] = v;
+                        }
+                    }
+                }
+                flush();
+                transport.endRound(shard.shardId, nextSize + sent);
+
+                //2.收取其他分片发来的顶点
+                int[] received = {nextSize};
+                final int[] nextRef = next;
+                long activity = transport.receive(shard.shardId, m -> {
+                    int v = shard.localId((int) (m >>> 32));
+                    if (dist[v] == -1) {
+                        dist[v] = (int) m;
+                        nextRef[received[0]++] = v;
+                    }
+                });
+                if (activity == 0) {
+                    return dist;
+                }
+                int[] t = frontier;
+                frontier = next;
+                next = t;
+                frontierSize = received[0];
+            }
+        }
+
+        int[] sssp(int source) {
+            int[] dist = new int[shard.vertices.length];
+            Arrays.fill(dist, DijkstraShortestPath.INF);
+            boolean[] dirty = new boolean[shard.vertices.length]; // 本轮距离变短、需要通知所在分片的幽灵顶点
+            int[] dirtyList = new int[shard.getGhostCount()];
+            LongMinHeap heap = new LongMinHeap();
+            int local = shard.localId(source);
+            if (local != -1 && !shard.isGhost(local)) {
+                dist[local] = 0;
+                heap.push(local);
+            }
+            while (true) {
+                //1.本地Dijkstra，幽灵顶点只更新距离、不继续扩展
+                int dirtyCount = 0;
+                while (!heap.isEmpty()) {
+                    long top = heap.pop();
+                    int u = (int) top;
+                    int d = (int) (top >>> 32);
+                    if (d > dist[u]) {
+                        continue;
+                    }
+                    for (int i = shard.offsets[u]; i < shard.offsets[u + 1]; i++) {
+                        int v = shard.targets[i];
+                        long nd = (long) d + shard.weights[i];
+                        if (nd < dist[v]) {
+                            dist[v] = (int) nd;
+                            if (!shard.isGhost(v)) {
+                                heap.push(nd << 32 | v);
+                            } else if (!dirty[v]) {
+                                dirty[v] = true;
+                                dirtyList[dirtyCount++] = v;
+                            }
+                        }
+                    }
+                }
+                //2.发送变短的幽灵顶点距离
+                sent = 0;
+                for (int k = 0; k < dirtyCount; k++) {
+                    int v = dirtyList[k];
+                    dirty[v] = false;
+                    post(v, dist[v]);
+                }
+                flush();
+                transport.endRound(shard.shardId, sent);
+
+                //3.收取更新，变短的顶点重新入堆
+                long activity = transport.receive(shard.shardId, m -> {
+                    int v = shard.localId((int) (m >>> 32));
+                    int d = (int) m;
+                    if (d < dist[v]) {
+                        dist[v] = d;
+                        heap.push((long) d << 32 | v);
+                    }
+                });
+                if (activity == 0) {
+                    return dist;
+                }
+            }
+        }
+
+        // 把(幽灵顶点, 值)放入发往其所在分片的缓冲，满了就发送
+        private void post(int ghost, int value) {
+            int to = shard.ownerOf(ghost);
+            outbox[to][outboxSize[to]++] = (long) shard.vertices[ghost] << 32 | (value & 0xFFFFFFFFL);
+            sent++;
+            if (outboxSize[to] == BATCH_SIZE) {
+                transport.send(shard.shardId, to, outbox[to], BATCH_SIZE);
+                outboxSize[to] = 0;
+            }
+        }
+
+        private void flush() {
+            for (int to = 0; to < outbox.length; to++) {
+                if (outboxSize[to] > 0) {
+                    transport.send(shard.shardId, to, outbox[to], outboxSize[to]);
+                    outboxSize[to] = 0;
+                }
+            }
+        }
+    }
+}
+
+class PregelEngine {
+    static final int CHUNK_SIZE = 4096; // 每个任务处理的顶点数（64的倍数，保证活跃位图的每个字只属于一个任务）
+
+    /**
+     * 顶点程序：每个超步对活跃顶点（或收到消息的顶点）调用一次
+     */
+    interface VertexProgram {
+        /**
+         * @param ctx 上下文：读写当前顶点的值、发送消息、投票停止
+         * @param message 上一超步发给该顶点的所有消息经合并器合并后的结果
+         * @param hasMessage 是否收到了消息（没有消息时message为合并器的单位元）
+         */
+        void compute(Context ctx, double message, boolean hasMessage);
+    }
+
+    /**
+     * 消息合并器：发往同一顶点的消息在发送时就合并进一个double，不保存消息列表
+     */
+    interface MessageCombiner {
+        MessageCombiner SUM = of(0, Double::sum);
+        MessageCombiner MIN = of(Double.POSITIVE_INFINITY, Math::min);
+        MessageCombiner MAX = of(Double.NEGATIVE_INFINITY, Math::max);
+
+        double identity();
+
+        double combine(double a, double b);
+
+        static MessageCombiner of(double identity, DoubleBinaryOperator op) {
+            return new MessageCombiner() {
+                @Override
+                public double identity() {
+                    return identity;
+                }
+
+                @Override
+                public double combine(double a, double b) {
+                    return op.applyAsDouble(a, b);
+                }
+            };
+        }
+    }
+
+    private final GraphView graph;
+    private final MessageCombiner combiner;
+    private final int threads;
+    private final int vertexCount;
+
+    private double[] values;
+    private long[] active;                 // 活跃顶点位图（投票停止的顶点清零，收到消息时重新激活）
+    private AtomicLongArray messages;      // 本超步要读取的合并消息（double的位模式）
+    private AtomicLongArray hasMessage;    // 本超步收到消息的顶点位图
+    private AtomicLongArray nextMessages;  // 本超步发出、下一超步读取
+    private AtomicLongArray nextHasMessage;
+    private int superstep;
+    private double aggregated;             // 上一超步的全局聚合值（所有aggregate调用之和）
+
+    /**
+     * @param graph 只读图
+     * @param combiner 消息合并器
+     * @param threads 并行线程数
+     */
+    public PregelEngine(GraphView graph, MessageCombiner combiner, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须为正数");
+        }
+        this.graph = graph;
+        this.combiner = combiner;
+        this.threads = threads;
+        this.vertexCount = graph.getVertexCount();
+    }
+
+    /**
+     * 运行顶点程序直到所有顶点都投票停止且没有消息在途，或达到最大超步数
+     * @param initialValues 各顶点的初始值（会被复制）
+     * @param program 顶点程序
+     * @param maxSupersteps 最大超步数
+     * @return 各顶点的最终值
+     */
+    public double[] run(double[] initialValues, VertexProgram program, int maxSupersteps) {
+        if (initialValues.length != vertexCount) {
+            throw new IllegalArgumentException("初始值数组长度与顶点数不一致");
+        }
+        int words = (vertexCount + 63) >>> 6;
+        values = initialValues.clone();
+        active = new long[words];
+        Arrays.fill(active, -1L); //超步0所有顶点都活跃
+        messages = newMessageArray();
+        nextMessages = newMessageArray();
+        hasMessage = new AtomicLongArray(words);
+        nextHasMessage = new AtomicLongArray(words);
+        aggregated = 0;
+
+        int chunks = (vertexCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (superstep = 0; superstep < maxSupersteps; superstep++) {
+                LongAdder activity = new LongAdder();
+                DoubleAdder aggregator = new DoubleAdder();
+                pool.submit(() -> IntStream.range(0, chunks).parallel()
+                        .forEach(c -> runChunk(c, program, activity, aggregator))).get();
+
+                //交换消息缓冲；本超步读过的缓冲已在runChunk中清空
+                AtomicLongArray t = messages;
+                messages = nextMessages;
+                nextMessages = t;
+                t = hasMessage;
+                hasMessage = nextHasMessage;
+                nextHasMessage = t;
+                aggregated = aggregator.sum();
+                if (activity.sum() == 0) {
+                    superstep++;
+                    break; //没有活跃顶点也没有消息，收敛
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("计算被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("顶点程序执行失败", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return values;
+    }
+
+    /**
+     * 上一次run执行的超步数
+     */
+    public int getSuperstepCount() {
+        return superstep;
+    }
+
+    private AtomicLongArray newMessageArray() {
+        AtomicLongArray array = new AtomicLongArray(vertexCount);
+        long identity = Double.doubleToRawLongBits(combiner.identity());
+        for (int i = 0; i < vertexCount; i++) {
+            array.setPlain(i, identity);
+        }
+        return array;
+    }
+
+    // 处理一个顶点块：调用顶点程序，然后把本块读过的消息清回单位元
+    private void runChunk(int chunk, VertexProgram program, LongAdder activity, DoubleAdder aggregator) {
+        Context ctx = new Context();
+        int start = chunk * CHUNK_SIZE;
+        int end = Math.min(start + CHUNK_SIZE, vertexCount);
+        long identity = Double.doubleToRawLongBits(combiner.identity());
+        for (int u = start; u < end; u++) {
+            int word = u >>> 6;
+            long bit = 1L << u;
+            boolean has = (hasMessage.getPlain(word) & bit) != 0;
+            if (!has && (active[word] & bit) == 0) {
+                continue;
+            }
+            active[word] |= bit; //收到消息的顶点重新激活
+            ctx.vertex = u;
+            program.compute(ctx, Double.longBitsToDouble(messages.getPlain(u)), has);
+            if ((active[word] & bit) != 0) {
+                ctx.work++;
+            }
+            if (has) {
+                messages.setPlain(u, identity);
+            }
+        }
+        for (int word = start >>> 6; word < (end + 63) >>> 6; word++) {
+            hasMessage.setPlain(word, 0);
+        }
+        activity.add(ctx.work);
+        aggregator.add(ctx.partial);
+    }
+
+    // 把消息合并进v的下一超步消息（CAS循环）
+    private void combine(int v, double message) {
+        long old = nextMessages.get(v);
+        while (true) {
+            long merged = Double.doubleToRawLongBits(combiner.combine(Double.longBitsToDouble(old), message));
+            long witness = nextMessages.compareAndExchange(v, old, merged);
+            if (witness == old) {
+                break;
+            }
+            old = witness;
+        }
+        int word = v >>> 6;
+        long bit = 1L << v;
+        if ((nextHasMessage.get(word) & bit) == 0) {
+            nextHasMessage.getAndAccumulate(word, bit, (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * 顶点程序的上下文，每个任务一个，不跨线程共享
+     */
+    final class Context {
+        private final NeighborCursor cursor = graph.cursor();
+        private int vertex;
+        private long work;      // 本任务发出的消息数 + 仍活跃的顶点数
+        private double partial; // 本任务的聚合值
+
+        public int vertex() {
+            return vertex;
+        }
+
+        public int superstep() {
+            return superstep;
+        }
+
+        public int vertexCount() {
+            return vertexCount;
+        }
+
+        public int degree() {
+            return graph.degree(vertex);
+        }
+
+        public double getValue() {
+            return values[vertex];
+        }
+
+        public void setValue(double value) {
+            values[vertex] = value;
+        }
+
+        /**
+         * 当前顶点的出边游标（每次调用都会重置到第一条边）
+         */
+        public NeighborCursor edges() {
+            cursor.reset(vertex);
+            return cursor;
+        }
+
+        /**
+         * 向任意顶点发送消息，下一超步送达
+         */
+        public void sendTo(int v, double message) {
+            combine(v, message);
+            work++;
+        }
+
+        /**
+         * 向所有出边邻居发送同一条消息
+         */
+        public void sendToNeighbors(double message) {
+            cursor.reset(vertex);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                sendTo(v, message);
+            }
+        }
+
+        /**
+         * 投票停止：之后只有收到消息才会再次被调用
+         */
+        public void voteToHalt() {
+            active[vertex >>> 6] &= ~(1L << vertex);
+        }
+
+        /**
+         * 累加到全局聚合值，下一超步通过aggregated()读取
+         */
+        public void aggregate(double value) {
+            partial += value;
+        }
+
+        public double aggregated() {
+            return aggregated;
+        }
+    }
+}
+
+class VertexPrograms {
+    /**
+     * PageRank：每个超步把rank均分给出边邻居，悬挂顶点（出度为0）的rank通过聚合器均分给所有顶点
+     * @param damping 阻尼系数（通常为0.85）
+     * @param iterations 迭代次数
+     */
+    public static double[] pageRank(GraphView graph, double damping, int iterations, int threads) {
+        int n = graph.getVertexCount();
+        double[] initial = new double[n];
+        Arrays.fill(initial, 1.0 / n);
+        PregelEngine engine = new PregelEngine(graph, PregelEngine.MessageCombiner.SUM, threads);
+        return engine.run(initial, (ctx, sum, has) -> {
+            if (ctx.superstep() > 0) {
+                ctx.setValue((1 - damping) / n + damping * (sum + ctx.aggregated() / n));
+            }
+            if (ctx.superstep() == iterations) {
+                ctx.voteToHalt();
+            } else if (ctx.degree() == 0) {
+                ctx.aggregate(ctx.getValue());
+            } else {
+                ctx.sendToNeighbors(ctx.getValue() / ctx.degree());
+            }
+        }, iterations + 1);
+    }
+
+    /**
+     * 标签传播求连通分量（HashMin）：每个顶点不断取邻居中最小的标签，收敛后标签为分量内的最小顶点编号
+     * 与ConnectedComponents的结果一致（有向图需传入双向边）
+     */
+    public static int[] labelPropagation(GraphView graph, int threads) {
+        int n = graph.getVertexCount();
+        double[] initial = new double[n];
+        for (int u = 0; u < n; u++) {
+            initial[u] = u;
+        }
+        PregelEngine engine = new PregelEngine(graph, PregelEngine.MessageCombiner.MIN, threads);
+        double[] labels = engine.run(initial, (ctx, min, has) -> {
+            if (ctx.superstep() == 0 || min < ctx.getValue()) {
+                if (min < ctx.getValue()) {
+                    ctx.setValue(min);
+                }
+                ctx.sendToNeighbors(ctx.getValue());
+            }
+            ctx.voteToHalt();
+        }, Integer.MAX_VALUE);
+        int[] result = new int[n];
+        for (int u = 0; u < n; u++) {
+            result[u] = (int) labels[u];
+        }
+        return result;
+    }
+
+    /**
+     * 单源最短路（并行Bellman-Ford）：距离变短的顶点把新距离加上边权发给邻居
+     * @return 距离数组（DijkstraShortestPath.INF表示不可达）
+     */
+    public static int[] sssp(GraphView graph, int source, int threads) {
+        int n = graph.getVertexCount();
+        double[] initial = new double[n];
+        Arrays.fill(initial, Double.POSITIVE_INFINITY);
+        initial[source] = 0;
+        PregelEngine engine = new PregelEngine(graph, PregelEngine.MessageCombiner.MIN, threads);
+        double[] dist = engine.run(initial, (ctx, min, has) -> {
+            if (ctx.superstep() == 0 ? ctx.vertex() == source : min < ctx.getValue()) {
+                ctx.setValue(Math.min(min, ctx.getValue()));
+                NeighborCursor edges = ctx.edges();
+                for (int v = edges.next(); v != -1; v = edges.next()) {
+                    ctx.sendTo(v, ctx.getValue() + edges.weight());
+                }
+            }
+            ctx.voteToHalt();
+        }, Integer.MAX_VALUE);
+        int[] result = new int[n];
+        for (int u = 0; u < n; u++) {
+            result[u] = dist[u] == Double.POSITIVE_INFINITY ? DijkstraShortestPath.INF : (int) dist[u];
+        }
+        return result;
+    }
+}
+
+class PageRank {
+    private static final int CHUNK_SIZE = 4096; // 并行时每个任务处理的顶点数
+
+    /**
+     * 拉取式PageRank：在反向CSR上，每个顶点从入边邻居拉取贡献（只写自己的rank，无需同步），按顶点区间并行
+     * 悬挂顶点（出度为0）的rank每轮均分给所有顶点；忽略边权重
+     * @param damping 阻尼系数（通常为0.85）
+     * @param tolerance 收敛阈值：相邻两轮rank向量的L1距离小于该值时停止
+     * @param maxIterations 最大迭代次数
+     * @return 各顶点的rank（和为1）
+     */
+    public static double[] pageRank(GraphView graph, double damping, double tolerance, int maxIterations) {
+        int n = graph.getVertexCount();
+        if (n == 0) {
+            return new double[0];
+        }
+        CSRGraph reverse = CSRGraph.copyOf(graph).transpose();
+        int[] inOffsets = reverse.getOffsets();
+        int[] inSources = reverse.getTargets();
+        int[] outDegree = new int[n];
+        for (int u = 0; u < n; u++) {
+            outDegree[u] = graph.degree(u);
+        }
+
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] contrib = new double[n]; // rank[u] / 出度，悬挂顶点为0
+        Arrays.fill(rank, 1.0 / n);
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        double[] partial = new double[chunks];
+        for (int iter = 0; iter < maxIterations; iter++) {
+            //1.计算每个顶点的贡献，同时按块汇总悬挂顶点的rank
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                double dangling = 0;
+                for (int u = c * CHUNK_SIZE; u < Math.min(n, (c + 1) * CHUNK_SIZE); u++) {
+                    if (outDegree[u] == 0) {
+                        dangling += rank[u];
+                        contrib[u] = 0;
+                    } else {
+                        contrib[u] = rank[u] / outDegree[u];
+                    }
+                }
+                partial[c] = dangling;
+            });
+            double dangling = sum(partial);
+            double base = (1 - damping) / n + damping * dangling / n;
+
+            //2.拉取入边贡献，按块汇总L1误差
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                double error = 0;
+                for (int v = c * CHUNK_SIZE; v < Math.min(n, (c + 1) * CHUNK_SIZE); v++) {
+                    double s = 0;
+                    for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++) {
+                        s += contrib[inSources[i]];
+                    }
+                    next[v] = base + damping * s;
+                    error += Math.abs(next[v] - rank[v]);
+                }
+                partial[c] = error;
+            });
+            System.arraycopy(next, 0, rank, 0, n);
+            if (sum(partial) < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * 个性化PageRank（前向推送）：只从种子附近残差足够大的顶点推送，推送次数与图的规模无关（只需O(V)的数组分配）
+     * 随机游走以(1-damping)的概率跳回种子，悬挂顶点的残差也回到种子
+     * 结果满足：对每个顶点v，|估计值 - 精确值| <= epsilon * max(出度, 1) 量级
+     * @param seed 种子顶点
+     * @param damping 阻尼系数
+     * @param epsilon 推送阈值：残差小于epsilon * 出度的顶点不再推送
+     * @return 各顶点的个性化rank估计值（未访问的顶点为0）
+     */
+    public static double[] personalized(GraphView graph, int seed, double damping, double epsilon) {
+        int n = graph.getVertexCount();
+        if (seed < 0 || seed >= n) {
+            throw new IllegalArgumentException("顶点索引超出范围");
+        }
+        double alpha = 1 - damping;
+        double[] estimate = new double[n];
+        double[] residual = new double[n];
+        boolean[] queued = new boolean[n];
+        int[] queue = new int[n]; // 循环队列：每个顶点同时最多在队列中出现一次，容量n足够
+        int head = 0;
+        int size = 0;
+        NeighborCursor cursor = graph.cursor();
+
+        residual[seed] = 1;
+        queue[size++] = seed;
+        queued[seed] = true;
+        while (size > 0) {
+            int u = queue[head];
+            head = head + 1 == n ? 0 : head + 1;
+            size--;
+            queued[u] = false;
+
+            //1.保留alpha比例的残差，其余均分给出边邻居（悬挂顶点全部回到种子）
+            double r = residual[u];
+            residual[u] = 0;
+            estimate[u] += alpha * r;
+            int degree = graph.degree(u);
+            if (degree == 0) {
+                residual[seed] += damping * r;
+                if (!queued[seed] && residual[seed] > epsilon * Math.max(graph.degree(seed), 1)) {
+                    queued[seed] = true;
+                    queue[(head + size++) % n] = seed;
+                }
+                continue;
+            }
+            //2.残差超过阈值的邻居入队
+            double share = damping * r / degree;
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                residual[v] += share;
+                if (!queued[v] && residual[v] > epsilon * Math.max(graph.degree(v), 1)) {
+                    queued[v] = true;
+                    queue[(head + size++) % n] = v;
+                }
+            }
+        }
+        return estimate;
+    }
+
+    private static double sum(double[] values) {
+        double s = 0;
+        for (double v : values) {
+            s += v;
+        }
+        return s;
+    }
+}
+
+class Centrality {
+    /**
+     * 精确介数中心性（Brandes算法）：对每个源点求一次最短路DAG，再按距离从远到近回传依赖值
+     * 源点按需分给各线程，每个线程复用一份工作区并累加自己的结果，最后汇总；无向图的结果除以2
+     * @param weighted true时按边权重求最短路（权重须为正），false时按边数
+     * @param threads 并行线程数
+     * @return 各顶点的介数
+     */
+    public static double[] betweenness(GraphView graph, boolean weighted, int threads) {
+        int n = graph.getVertexCount();
+        int[] sources = new int[n];
+        for (int s = 0; s < n; s++) {
+            sources[s] = s;
+        }
+        return betweenness(graph, weighted, sources, 1.0, threads);
+    }
+
+    /**
+     * 近似介数中心性：随机（有放回）抽取k个枢轴源点，结果按n/k放大为无偏估计
+     * 误差界见errorBound
+     * @param k 枢轴数
+     * @param seed 随机种子
+     */
+    public static double[] approximateBetweenness(GraphView graph, boolean weighted, int k, long seed, int threads) {
+        int n = graph.getVertexCount();
+        if (k <= 0) {
+            throw new IllegalArgumentException("枢轴数必须为正数");
+        }
+        Random random = new Random(seed);
+        int[] pivots = new int[k];
+        for (int i = 0; i < k; i++) {
+            pivots[i] = random.nextInt(n);
+        }
+        return betweenness(graph, weighted, pivots, (double) n / k, threads);
+    }
+
+    /**
+     * 近似介数的误差界（Hoeffding不等式 + 对所有顶点取并集界）：
+     * 单个源点对任一顶点的依赖值在[0, n-2]内，因此以至少1-delta的概率，所有顶点的估计误差同时不超过
+     * n(n-2) * sqrt(ln(2n/delta) / (2k))
+     * @param vertexCount 顶点数n
+     * @param k 枢轴数
+     * @param delta 失败概率
+     */
+    public static double errorBound(int vertexCount, int k, double delta) {
+        double n = vertexCount;
+        return n * Math.max(n - 2, 0) * Math.sqrt(Math.log(2 * n / delta) / (2.0 * k));
+    }
+
+    /**
+     * 接近中心性（Wasserman-Faust形式，适用于非连通图）：
+     * closeness(u) = (r-1)/(n-1) * (r-1)/sum(dist)，r为u能到达的顶点数（含u），孤立顶点为0
+     * @param weighted true时按边权重计算距离
+     */
+    public static double[] closeness(GraphView graph, boolean weighted, int threads) {
+        int n = graph.getVertexCount();
+        double[] closeness = new double[n];
+        forEachSource(graph, n, threads, (ws, next) -> {
+            for (int s = next.getAndIncrement(); s < n; s = next.getAndIncrement()) {
+                ws.shortestPaths(s, weighted);
+                long total = 0;
+                for (int i = 0; i < ws.settled; i++) {
+                    total += ws.dist[ws.order[i]];
+                }
+                int reached = ws.settled - 1;
+                closeness[s] = total == 0 ? 0 : (double) reached / (n - 1) * reached / total;
+                ws.reset();
+            }
+            return null;
+        });
+        return closeness;
+    }
+
+    private static double[] betweenness(GraphView graph, boolean weighted, int[] sources, double scale, int threads) {
+        int n = graph.getVertexCount();
+        List<double[]> partials = forEachSource(graph, sources.length, threads, (ws, next) -> {
+            double[] centrality = new double[n];
+            for (int i = next.getAndIncrement(); i < sources.length; i = next.getAndIncrement()) {
+                ws.accumulate(sources[i], weighted, centrality);
+            }
+            return centrality;
+        });
+        double[] result = new double[n];
+        for (double[] partial : partials) {
+            for (int u = 0; u < n; u++) {
+                result[u] += partial[u];
+            }
+        }
+        double factor = graph.getGraphType() == GraphType.UNDIRECTED ? scale / 2 : scale;
+        for (int u = 0; u < n; u++) {
+            result[u] *= factor;
+        }
+        return result;
+    }
+
+    /**
+     * 每个线程的任务：拿到自己的工作区和共享的源点计数器，返回该线程的结果
+     */
+    private interface SourceTask {
+        double[] run(Workspace ws, AtomicInteger next);
+    }
+
+    // 启动threads个线程（不超过源点数），各自从计数器领取源点
+    private static List<double[]> forEachSource(GraphView graph, int sourceCount, int threads, SourceTask task) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须为正数");
+        }
+        int workers = Math.max(1, Math.min(threads, sourceCount));
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<double[]>> futures = new ArrayList<>();
+            for (int t = 0; t < workers; t++) {
+                futures.add(pool.submit(() -> task.run(new Workspace(graph), next)));
+            }
+            List<double[]> results = new ArrayList<>();
+            for (Future<double[]> future : futures) {
+                double[] result = future.get();
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("中心性计算被中断", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("中心性计算失败", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 单线程工作区：所有数组只分配一次，每个源点结束后只重置访问过的顶点
+     */
+    private static class Workspace {
+        final NeighborCursor cursor;
+        final int[] dist;      // -1表示未到达
+        final double[] sigma;  // 最短路条数（用double避免溢出）
+        final double[] delta;  // 依赖值
+        final int[] order;     // 按距离非降序排列的已确定顶点（BFS时兼作队列）
+        final LongMinHeap heap = new LongMinHeap();
+        int settled;
+
+        Workspace(GraphView graph) {
+            int n = graph.getVertexCount();
+            this.cursor = graph.cursor();
+            this.dist = new int[n];
+            this.sigma = new double[n];
+            this.delta = new double[n];
+            this.order = new int[n];
+            Arrays.fill(dist, -1);
+        }
+
+        // 求源点s的最短路距离、最短路条数和确定顺序
+        void shortestPaths(int s, boolean weighted) {
+            dist[s] = 0;
+            sigma[s] = 1;
+            if (!weighted) {
+                int head = 0;
+                order[settled++] = s;
+                while (head < settled) {
+                    int u = order[head++];
+                    cursor.reset(u);
+                    for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                        if (dist[v] == -1) {
+                            dist[v] = dist[u] + 1;
+                            order[settled++] = v;
+                        }
+                        if (dist[v] == dist[u] + 1) {
+                            sigma[v] += sigma[u];
+                        }
+                    }
+                }
+                return;
+            }
+
+            heap.push(s);
+            while (!heap.isEmpty()) {
+                long top = heap.pop();
+                int u = (int) top;
+                if ((int) (top >>> 32) > dist[u]) {
+                    continue; //过期的堆元素
+                }
+                order[settled++] = u;
+                cursor.reset(u);
+                for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                    long nd = (long) dist[u] + cursor.weight();
+                    if (dist[v] == -1 || nd < dist[v]) {
+                        dist[v] = (int) nd;
+                        sigma[v] = sigma[u];
+                        heap.push(nd << 32 | v);
+                    } else if (nd == dist[v]) {
+                        sigma[v] += sigma[u];
+                    }
+                }
+            }
+        }
+
+        // 以s为源点跑一次Brandes，把依赖值累加进centrality
+        void accumulate(int s, boolean weighted, double[] centrality) {
+            shortestPaths(s, weighted);
+            //按距离从远到近回传：v的依赖值来自所有满足dist[w] = dist[v] + w(v,w)的后继w
+            for (int i = settled - 1; i >= 0; i--) {
+                int v = order[i];
+                double sum = 0;
+                cursor.reset(v);
+                for (int w = cursor.next(); w != -1; w = cursor.next()) {
+                    int step = weighted ? cursor.weight() : 1;
+                    if (dist[w] != -1 && (long) dist[v] + step == dist[w]) {
+                        sum += (1 + delta[w]) / sigma[w];
+                    }
+                }
+                delta[v] = sigma[v] * sum;
+                if (v != s) {
+                    centrality[v] += delta[v];
+                }
+            }
+            reset();
+        }
+
+        void reset() {
+            for (int i = 0; i < settled; i++) {
+                int v = order[i];
+                dist[v] = -1;
+                sigma[v] = 0;
+                delta[v] = 0;
+            }
+            settled = 0;
+            heap.clear();
+        }
+    }
+}
+
+class TriangleCounting {
+    static final int CHUNK_SIZE = 256;        // 每个任务处理的顶点数（度数分布不均，块取小一些）
+    static final int BITSET_THRESHOLD = 256;  // 前向邻居数不少于该值的顶点用位图求交集
+    static final int GALLOP_RATIO = 32;       // 两个列表长度相差超过该倍数时用倍增查找
+
+    /**
+     * 三角形计数结果
+     */
+    static class Result {
+        final long triangles;        // 全图三角形总数
+        final long[] perVertex;      // 每个顶点参与的三角形数
+        final double[] clustering;   // 局部聚类系数：perVertex / C(度数, 2)，度数小于2时为0
+
+        Result(long triangles, long[] perVertex, double[] clustering) {
+            this.triangles = triangles;
+            this.perVertex = perVertex;
+            this.clustering = clustering;
+        }
+    }
+
+    /**
+     * 三角形计数：按(度数, 编号)给顶点定序，每条边只保留从低序指向高序的方向，
+     * 每个三角形恰好在其最低序顶点处被数一次；相邻顶点的前向邻居列表按编号有序，用归并/倍增查找求交集，
+     * 前向邻居很多的顶点改用位图。按顶点块并行
+     * 图按忽略方向、去掉自环和重复边后的简单无向图处理
+     */
+    public static Result count(GraphView graph) {
+        int n = graph.getVertexCount();
+        //1.简单无向图（邻居升序、去重）
+        CSRGraph simple = simpleUndirected(graph);
+        int[] offsets = simple.getOffsets();
+        int[] targets = simple.getTargets();
+
+        //2.定向：只保留rank更高的邻居，列表仍按编号升序
+        int[] fwdOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int count = 0;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                if (before(simple, u, targets[i])) {
+                    count++;
+                }
+            }
+            fwdOffsets[u + 1] = fwdOffsets[u] + count;
+        }
+        int[] fwd = new int[fwdOffsets[n]];
+        for (int u = 0; u < n; u++) {
+            int pos = fwdOffsets[u];
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                if (before(simple, u, targets[i])) {
+                    fwd[pos++] = targets[i];
+                }
+            }
+        }
+
+        //3.并行求交集：u处数到的三角形(u, v, w)计入三个顶点
+        AtomicLongArray perVertex = new AtomicLongArray(n);
+        ThreadLocal<long[]> bitsets = ThreadLocal.withInitial(() -> new long[(n + 63) >>> 6]);
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        long total = IntStream.range(0, chunks).parallel().mapToLong(c -> {
+            long sum = 0;
+            for (int u = c * CHUNK_SIZE; u < Math.min(n, (c + 1) * CHUNK_SIZE); u++) {
+                int from = fwdOffsets[u];
+                int to = fwdOffsets[u + 1];
+                long found = to - from >= BITSET_THRESHOLD
+                        ? countWithBitset(u, fwd, fwdOffsets, bitsets.get(), perVertex)
+                        : countWithMerge(u, fwd, fwdOffsets, perVertex);
+                if (found > 0) {
+                    perVertex.addAndGet(u, found);
+                }
+                sum += found;
+            }
+            return sum;
+        }).sum();
+
+        long[] counts = new long[n];
+        double[] clustering = new double[n];
+        for (int u = 0; u < n; u++) {
+            counts[u] = perVertex.get(u);
+            long d = simple.degree(u);
+            clustering[u] = d < 2 ? 0 : 2.0 * counts[u] / (d * (d - 1));
+        }
+        return new Result(total, counts, clustering);
+    }
+
+    // u是否排在v之前：度数小的在前，度数相同按编号
+    private static boolean before(CSRGraph graph, int u, int v) {
+        int du = graph.degree(u);
+        int dv = graph.degree(v);
+        return du < dv || (du == dv && u < v);
+    }
+
+    // 对u的每个前向邻居v，求N+(u)与N+(v)的交集
+    private static long countWithMerge(int u, int[] fwd, int[] offsets, AtomicLongArray perVertex) {
+        long found = 0;
+        int uFrom = offsets[u];
+        int uTo = offsets[u + 1];
+        for (int i = uFrom; i < uTo; i++) {
+            int v = fwd[i];
+            int vFrom = offsets[v];
+            int vTo = offsets[v + 1];
+            int a = uTo - uFrom;
+            int b = vTo - vFrom;
+            long common;
+            if (a > (long) b * GALLOP_RATIO) {
+                common = gallop(fwd, vFrom, vTo, fwd, uFrom, uTo, perVertex);
+            } else if (b > (long) a * GALLOP_RATIO) {
+                common = gallop(fwd, uFrom, uTo, fwd, vFrom, vTo, perVertex);
+            } else {
+                common = merge(fwd, uFrom, uTo, vFrom, vTo, perVertex);
+            }
+            if (common > 0) {
+                perVertex.addAndGet(v, common);
+                found += common;
+            }
+        }
+        return found;
+    }
+
+    // 前向邻居很多时：先把N+(u)标进位图，再逐个检查N+(v)中的顶点
+    private static long countWithBitset(int u, int[] fwd, int[] offsets, long[] bits, AtomicLongArray perVertex) {
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            bits[fwd[i] >>> 6] |= 1L << fwd[i];
+        }
+        long found = 0;
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            int v = fwd[i];
+            long common = 0;
+            for (int j = offsets[v]; j < offsets[v + 1]; j++) {
+                int w = fwd[j];
+                if ((bits[w >>> 6] & (1L << w)) != 0) {
+                    perVertex.addAndGet(w, 1);
+                    common++;
+                }
+            }
+            if (common > 0) {
+                perVertex.addAndGet(v, common);
+                found += common;
+            }
+        }
+        for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+            bits[fwd[i] >>> 6] = 0;
+        }
+        return found;
+    }
+
+    // 两个有序列表归并求交集，公共顶点各计一次
+    private static long merge(int[] fwd, int i, int iEnd, int j, int jEnd, AtomicLongArray perVertex) {
+        long common = 0;
+        while (i < iEnd && j < jEnd) {
+            int a = fwd[i];
+            int b = fwd[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                perVertex.addAndGet(a, 1);
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    // 短列表的每个元素在长列表中倍增查找（长列表的查找起点单调前移）
+    private static long gallop(int[] shortList, int i, int iEnd, int[] longList, int j, int jEnd,
+                               AtomicLongArray perVertex) {
+        long common = 0;
+        for (; i < iEnd && j < jEnd; i++) {
+            int key = shortList[i];
+            int step = 1;
+            int hi = j;
+            while (hi < jEnd && longList[hi] < key) {
+                j = hi + 1;
+                hi += step;
+                step <<= 1;
+            }
+            int pos = Arrays.binarySearch(longList, j, Math.min(hi + 1, jEnd), key);
+            if (pos >= 0) {
+                perVertex.addAndGet(key, 1);
+                common++;
+                j = pos + 1;
+            } else {
+                j = -pos - 1;
+            }
+        }
+        return common;
+    }
+
+    // 忽略方向、去掉自环和重复边，邻居按编号升序
+    private static CSRGraph simpleUndirected(GraphView graph) {
+        CSRGraph csr = CSRGraph.copyOf(graph);
+        int n = csr.getVertexCount();
+        int[] offsets = csr.getOffsets();
+        int[] targets = csr.getTargets();
+        CSRGraph in = graph.getGraphType() == GraphType.DIRECTED ? csr.transpose() : null;
+
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = new int[in == null ? targets.length : targets.length * 2];
+        int pos = 0;
+        for (int u = 0; u < n; u++) {
+            int start = pos;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                newTargets[pos++] = targets[i];
+            }
+            if (in != null) {
+                for (int i = in.getOffsets()[u]; i < in.getOffsets()[u + 1]; i++) {
+                    newTargets[pos++] = in.getTargets()[i];
+                }
+            }
+            Arrays.sort(newTargets, start, pos);
+            int end = start;
+            for (int i = start; i < pos; i++) {
+                int v = newTargets[i];
+                if (v != u && (end == start || newTargets[end - 1] != v)) {
+                    newTargets[end++] = v;
+                }
+            }
+            pos = end;
+            newOffsets[u + 1] = pos;
+        }
+        return new CSRGraph(n, newOffsets, Arrays.copyOf(newTargets, pos), new int[pos], GraphType.UNDIRECTED);
+    }
+}
+
+class FlowNetwork {
+    final int vertexCount;
+    final int[] offsets;   // 顶点u的弧为[offsets[u], offsets[u+1])，包含正向弧和反向弧
+    final int[] from;
+    final int[] to;
+    final int[] rev;       // rev[e]为e的反向弧
+    final long[] capacity; // 原始容量（反向弧为0，无向边两个方向都有容量）
+    final long[] residual; // 残量
+
+    /**
+     * 由图构造残量网络：边权重作为容量，有向边的反向弧容量为0，无向边两个方向容量相同
+     */
+    FlowNetwork(GraphView graph) {
+        int n = graph.getVertexCount();
+        boolean undirected = graph.getGraphType() == GraphType.UNDIRECTED;
+        NeighborCursor cursor = graph.cursor();
+        //1.统计弧数：每条有向边（无向边只取一次）对应一对弧
+        int[] degree = new int[n];
+        for (int u = 0; u < n; u++) {
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                if (cursor.weight() < 0) {
+                    throw new IllegalArgumentException("容量不能为负");
+                }
+                if (!undirected || u < v) {
+                    degree[u]++;
+                    degree[v]++;
+                }
+            }
+        }
+        this.vertexCount = n;
+        this.offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + degree[u];
+        }
+        int arcs = offsets[n];
+        this.from = new int[arcs];
+        this.to = new int[arcs];
+        this.rev = new int[arcs];
+        this.capacity = new long[arcs];
+        //2.按起点连续存放，正反弧互相记录位置
+        int[] pos = Arrays.copyOf(offsets, n);
+        for (int u = 0; u < n; u++) {
+            cursor.reset(u);
+            for (int v = cursor.next(); v != -1; v = cursor.next()) {
+                if (undirected && u >= v) {
+                    continue;
+                }
+                int e = pos[u]++;
+                int r = pos[v]++;
+                from[e] = u;
+                to[e] = v;
+                from[r] = v;
+                to[r] = u;
+                rev[e] = r;
+                rev[r] = e;
+                capacity[e] = cursor.weight();
+                capacity[r] = undirected ? cursor.weight() : 0;
+            }
+        }
+        this.residual = capacity.clone();
+    }
+
+    /**
+     * 在残量网络中从source出发能到达的顶点（最大流求出后即为最小割的源点一侧）
+     */
+    boolean[] reachableFrom(int source) {
+        boolean[] seen = new boolean[vertexCount];
+        int[] queue = new int[vertexCount];
+        int head = 0;
+        int tail = 0;
+        seen[source] = true;
+        queue[tail++] = source;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                if (residual[e] > 0 && !seen[to[e]]) {
+                    seen[to[e]] = true;
+                    queue[tail++] = to[e];
+                }
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * 在残量网络中能到达sink的顶点（预流求出后，其补集即为最小割的源点一侧）
+     */
+    boolean[] reachingTo(int sink) {
+        boolean[] seen = new boolean[vertexCount];
+        int[] queue = new int[vertexCount];
+        int head = 0;
+        int tail = 0;
+        seen[sink] = true;
+        queue[tail++] = sink;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                //弧to[e]->v（即e的反向弧）有残量
+                if (residual[rev[e]] > 0 && !seen[to[e]]) {
+                    seen[to[e]] = true;
+                    queue[tail++] = to[e];
+                }
+            }
+        }
+        return seen;
+    }
+}
+
+class MaxFlow {
+    /**
+     * 最大流结果
+     */
+    static class Result {
+        final long value;           // 最大流值
+        final boolean[] sourceSide; // 最小割中源点一侧的顶点
+        final List<Edge> cutEdges;  // 最小割的边（权重为容量），容量之和等于最大流值
+
+        Result(long value, boolean[] sourceSide, List<Edge> cutEdges) {
+            this.value = value;
+            this.sourceSide = sourceSide;
+            this.cutEdges = cutEdges;
+        }
+    }
+
+    /**
+     * Dinic算法：BFS求分层图，再用当前弧优化的DFS在分层图上找阻塞流，重复直到汇点不可达
+     * DFS用显式栈实现，长路径不会栈溢出
+     * @param graph 边权重为容量（非负）
+     */
+    public static Result dinic(GraphView graph, int source, int sink) {
+        FlowNetwork net = network(graph, source, sink);
+        int n = net.vertexCount;
+        int[] level = new int[n];
+        int[] current = new int[n];  // 当前弧：每个顶点下一条待尝试的弧
+        int[] queue = new int[n];
+        int[] path = new int[n];     // 从source出发的弧栈
+        long flow = 0;
+        while (true) {
+            //1.BFS分层
+            Arrays.fill(level, -1);
+            level[source] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            while (head < tail && level[sink] == -1) {
+                int u = queue[head++];
+                for (int e = net.offsets[u]; e < net.offsets[u + 1]; e++) {
+                    int v = net.to[e];
+                    if (net.residual[e] > 0 && level[v] == -1) {
+                        level[v] = level[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            if (level[sink] == -1) {
+                break;
+            }
+            System.arraycopy(net.offsets, 0, current, 0, n);
+
+            //2.阻塞流：沿当前弧前进，走不通的顶点从分层图中删掉并后退
+            int depth = 0;
+            int u = source;
+            while (true) {
+                if (u == sink) {
+                    long bottleneck = Long.MAX_VALUE;
+                    for (int i = 0; i < depth; i++) {
+                        bottleneck = Math.min(bottleneck, net.residual[path[i]]);
+                    }
+                    int retreat = depth;
+                    for (int i = depth - 1; i >= 0; i--) {
+                        int e = path[i];
+                        net.residual[e] -= bottleneck;
+                        net.residual[net.rev[e]] += bottleneck;
+                        if (net.residual[e] == 0) {
+                            retreat = i; //退回到最靠近源点的饱和弧的起点
+                        }
+                    }
+                    flow += bottleneck;
+                    depth = retreat;
+                    u = depth == 0 ? source : net.to[path[depth - 1]];
+                    continue;
+                }
+                int end = net.offsets[u + 1];
+                while (current[u] < end) {
+                    int e = current[u];
+                    if (net.residual[e] > 0 && level[net.to[e]] == level[u] + 1) {
+                        break;
+                    }
+                    current[u]++;
+                }
+                if (current[u] < end) {
+                    path[depth++] = current[u];
+                    u = net.to[current[u]];
+                } else {
+                    if (u == source) {
+                        break;
+                    }
+                    level[u] = -1;
+                    u = net.from[path[--depth]];
+                    current[u]++;
+                }
+            }
+        }
+        return result(net, net.reachableFrom(source), flow);
+    }
+
+    /**
+     * 最高标号推进-重标号：每次处理高度最高的活跃顶点，配合全局重标号（从汇点反向BFS重算高度）和间隙优化
+     * 只执行第一阶段（预流），足以得到最大流值与最小割，弧上的流量不是合法流
+     * @param graph 边权重为容量（非负）
+     */
+    public static Result pushRelabel(GraphView graph, int source, int sink) {
+        FlowNetwork net = network(graph, source, sink);
+        return new PushRelabel(net, source, sink).run();
+    }
+
+    private static FlowNetwork network(GraphView graph, int source, int sink) {
+        int n = graph.getVertexCount();
+        if (source < 0 || source >= n || sink < 0 || sink >= n) {
+            throw new IllegalArgumentException("顶点索引超出范围");
+        }
+        if (source == sink) {
+            throw new IllegalArgumentException("源点与汇点不能相同");
+        }
+        return new FlowNetwork(graph);
+    }
+
+    private static Result result(FlowNetwork net, boolean[] side, long flow) {
+        List<Edge> cut = new ArrayList<>();
+        for (int e = 0; e < net.to.length; e++) {
+            if (side[net.from[e]] && !side[net.to[e]] && net.capacity[e] > 0) {
+                cut.add(new Edge(net.from[e], net.to[e], (int) net.capacity[e]));
+            }
+        }
+        return new Result(flow, side, cut);
+    }
+
+    private static class PushRelabel {
+        final FlowNetwork net;
+        final int n;
+        final int source;
+        final int sink;
+        final int[] height;
+        final long[] excess;
+        final int[] current;
+        final int[] count;       // 每个高度上的顶点数（用于间隙优化）
+        final int[] bucketHead;  // 每个高度上的活跃顶点链表
+        final int[] nextActive;
+        final int[] queue;
+        int maxActive = -1;
+        int relabelsSinceGlobal;
+
+        PushRelabel(FlowNetwork net, int source, int sink) {
+            this.net = net;
+            this.n = net.vertexCount;
+            this.source = source;
+            this.sink = sink;
+            this.height = new int[n];
+            this.excess = new long[n];
+            this.current = new int[n];
+            this.count = new int[n + 1];
+            this.bucketHead = new int[n + 1];
+            this.nextActive = new int[n];
+            this.queue = new int[n];
+        }
+
+        Result run() {
+            //1.源点的出弧全部推满
+            for (int e = net.offsets[source]; e < net.offsets[source + 1]; e++) {
+                long c = net.residual[e];
+                if (c > 0) {
+                    net.residual[e] = 0;
+                    net.residual[net.rev[e]] += c;
+                    excess[net.to[e]] += c;
+                    excess[source] -= c;
+                }
+            }
+            globalRelabel();
+
+            //2.反复处理最高的活跃顶点
+            while (maxActive >= 0) {
+                int u = bucketHead[maxActive];
+                if (u == -1) {
+                    maxActive--;
+                    continue;
+                }
+                bucketHead[maxActive] = nextActive[u];
+                if (height[u] != maxActive) {
+                    continue; //入桶后因间隙优化被抬到n，已无法到达汇点
+                }
+                discharge(u);
+                if (relabelsSinceGlobal >= n) {
+                    globalRelabel();
+                }
+            }
+            //预流中源点的出弧是饱和的，最小割取不能到达汇点的顶点
+            boolean[] side = net.reachingTo(sink);
+            for (int u = 0; u < n; u++) {
+                side[u] = !side[u];
+            }
+            return result(net, side, excess[sink]);
+        }
+
+        // 推进u的全部盈余，当前弧用完时重标号
+        private void discharge(int u) {
+            int end = net.offsets[u + 1];
+            while (excess[u] > 0) {
+                if (current[u] == end) {
+                    relabel(u);
+                    if (height[u] >= n) {
+                        return; //已无法到达汇点，盈余留在原地
+                    }
+                    current[u] = net.offsets[u];
+                    continue;
+                }
+                int e = current[u];
+                int v = net.to[e];
+                if (net.residual[e] > 0 && height[u] == height[v] + 1) {
+                    long delta = Math.min(excess[u], net.residual[e]);
+                    net.residual[e] -= delta;
+                    net.residual[net.rev[e]] += delta;
+                    if (excess[v] == 0 && v != sink) {
+                        activate(v);
+                    }
+                    excess[u] -= delta;
+                    excess[v] += delta;
+                } else {
+                    current[u]++;
+                }
+            }
+        }
+
+        // 重标号为最低可达邻居的高度+1；若u是原高度上最后一个顶点，出现间隙，高于间隙的顶点都无法到达汇点
+        private void relabel(int u) {
+            relabelsSinceGlobal++;
+            int old = height[u];
+            int lowest = n;
+            for (int e = net.offsets[u]; e < net.offsets[u + 1]; e++) {
+                if (net.residual[e] > 0) {
+                    lowest = Math.min(lowest, height[net.to[e]] + 1);
+                }
+            }
+            count[old]--;
+            if (count[old] == 0) {
+                for (int v = 0; v < n; v++) {
+                    if (height[v] > old && height[v] < n) {
+                        count[height[v]]--;
+                        height[v] = n;
+                        count[n]++;
+                    }
+                }
+                lowest = n;
+            }
+            height[u] = Math.min(lowest, n);
+            count[height[u]]++;
+        }
+
+        private void activate(int v) {
+            if (height[v] >= n) {
+                return;
+            }
+            nextActive[v] = bucketHead[height[v]];
+            bucketHead[height[v]] = v;
+            maxActive = Math.max(maxActive, height[v]);
+        }
+
+        // 全局重标号：从汇点沿残量弧反向BFS求精确高度，并重建活跃顶点桶
+        private void globalRelabel() {
+            relabelsSinceGlobal = 0;
+            Arrays.fill(height, n);
+            Arrays.fill(count, 0);
+            height[sink] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = sink;
+            while (head < tail) {
+                int v = queue[head++];
+                for (int e = net.offsets[v]; e < net.offsets[v + 1]; e++) {
+                    int u = net.to[e];
+                    //弧u->v（即e的反向弧）有残量时u可以推给v
+                    if (u != source && height[u] == n && net.residual[net.rev[e]] > 0) {
+                        height[u] = height[v] + 1;
+                        queue[tail++] = u;
+                    }
+                }
+            }
+            Arrays.fill(bucketHead, -1);
+            maxActive = -1;
+            for (int u = 0; u < n; u++) {
+                count[height[u]]++;
+                current[u] = net.offsets[u];
+                if (u != source && u != sink && excess[u] > 0) {
+                    activate(u);
+                }
+            }
+        }
+    }
+}
@@ -1,6 +1,26 @@
 import lombok.Data;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 public class Tree {
     @Data
@@ -19,6 +39,7 @@ public class Tree {
 
     static class BinaryTree{
         //二叉树工具类
+        private final LevelOrder levelOrder = new LevelOrder(); // 复用层序遍历的环形队列
 
         //先序遍历
         public void preOrder(TreeNode root, List<Integer> res){
@@ -44,28 +65,246 @@ public class Tree {
             res.add(root.val);
         }
 
-        //层序遍历
+        //层序遍历（空树返回空列表）；复用同一个队列，同一个BinaryTree不要在多个线程中同时调用
         public List<Integer> levelOrder(TreeNode root){
             List<Integer> res = new ArrayList<>();
-            Queue<TreeNode> queue = new LinkedList<>();
-            //1.根节点入队
-            queue.offer(root);
+            levelOrder.traverse(root, res::add);
+            return res;
+        }
 
-            while(!queue.isEmpty()){
-                //1.当前节点弹出队列，并加入结果
-                TreeNode node = queue.poll();
-                res.add(node.val);
+        /**
+         * 非递归先序遍历（显式栈，退化成链的深树也不会栈溢出）
+         * @param root 根节点
+         * @param action 按遍历顺序接收节点值
+         */
+        public void preOrderIterative(TreeNode root, IntConsumer action){
+            TreeNode[] stack = new TreeNode[16];
+            int top = 0;
+            TreeNode node = root;
+            while(node != null || top > 0){
+                if(node == null){
+                    node = stack[--top];
+                }
+                //1.访问当前节点，右孩子入栈留待之后处理，继续向左走
+                action.accept(node.val);
+                if(node.right != null){
+                    if(top == stack.length){
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = node.right;
+                }
+                node = node.left;
+            }
+        }
 
-                //处理当前节点的字数
-                if(node.left != null){
-                    queue.offer(node.left);
+        /**
+         * 非递归中序遍历
+         */
+        public void inOrderIterative(TreeNode root, IntConsumer action){
+            TreeNode[] stack = new TreeNode[16];
+            int top = 0;
+            TreeNode node = root;
+            while(node != null || top > 0){
+                //1.一路向左，沿途节点入栈
+                while(node != null){
+                    if(top == stack.length){
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = node;
+                    node = node.left;
                 }
+                //2.弹出最左的节点访问，再转向它的右子树
+                node = stack[--top];
+                action.accept(node.val);
+                node = node.right;
+            }
+        }
 
-                if(node.right != null){
-                    queue.offer(node.right);
+        /**
+         * 非递归后序遍历（用prev记录上一个访问的节点，判断右子树是否已处理）
+         */
+        public void postOrderIterative(TreeNode root, IntConsumer action){
+            TreeNode[] stack = new TreeNode[16];
+            int top = 0;
+            TreeNode node = root;
+            TreeNode prev = null;
+            while(node != null || top > 0){
+                while(node != null){
+                    if(top == stack.length){
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = node;
+                    node = node.left;
+                }
+                TreeNode peek = stack[top - 1];
+                if(peek.right != null && peek.right != prev){
+                    node = peek.right; //右子树还没处理
+                }else{
+                    top--;
+                    action.accept(peek.val);
+                    prev = peek;
                 }
             }
-            return res;
+        }
+
+        /**
+         * Morris先序遍历：O(1)额外空间，借用前驱节点空着的右指针临时指回当前节点，遍历结束后树恢复原样
+         * 与ThreadBinaryTree不同，不会永久改动节点；但遍历期间树被临时修改，不能同时有其他线程读这棵树
+         */
+        public void morrisPreOrder(TreeNode root, IntConsumer action){
+            TreeNode node = root;
+            while(node != null){
+                if(node.left == null){
+                    action.accept(node.val);
+                    node = node.right;
+                    continue;
+                }
+                //1.找左子树中的最右节点（中序前驱）
+                TreeNode pred = node.left;
+                while(pred.right != null && pred.right != node){
+                    pred = pred.right;
+                }
+                if(pred.right == null){
+                    //2.第一次到达：访问当前节点，建立临时线索后进入左子树
+                    action.accept(node.val);
+                    pred.right = node;
+                    node = node.left;
+                }else{
+                    //3.第二次到达：左子树已处理完，拆除线索转向右子树
+                    pred.right = null;
+                    node = node.right;
+                }
+            }
+        }
+
+        /**
+         * Morris中序遍历
+         */
+        public void morrisInOrder(TreeNode root, IntConsumer action){
+            TreeNode node = root;
+            while(node != null){
+                if(node.left == null){
+                    action.accept(node.val);
+                    node = node.right;
+                    continue;
+                }
+                TreeNode pred = node.left;
+                while(pred.right != null && pred.right != node){
+                    pred = pred.right;
+                }
+                if(pred.right == null){
+                    pred.right = node;
+                    node = node.left;
+                }else{
+                    //第二次到达：左子树已处理完，访问当前节点
+                    pred.right = null;
+                    action.accept(node.val);
+                    node = node.right;
+                }
+            }
+        }
+
+        /**
+         * Morris后序遍历：第二次到达节点时，逆序输出其左孩子到前驱这条右链
+         * 用一个临时的哑节点作为根的父节点，使根所在的右链也能输出
+         */
+        public void morrisPostOrder(TreeNode root, IntConsumer action){
+            TreeNode dummy = new TreeNode(0);
+            dummy.left = root;
+            TreeNode node = dummy;
+            while(node != null){
+                if(node.left == null){
+                    node = node.right;
+                    continue;
+                }
+                TreeNode pred = node.left;
+                while(pred.right != null && pred.right != node){
+                    pred = pred.right;
+                }
+                if(pred.right == null){
+                    pred.right = node;
+                    node = node.left;
+                }else{
+                    pred.right = null;
+                    emitReversedRightPath(node.left, action);
+                    node = node.right;
+                }
+            }
+        }
+
+        // 逆序输出从from开始的右链（链尾的线索已拆除，以null结尾）：原地反转、输出、再反转回来
+        private void emitReversedRightPath(TreeNode from, IntConsumer action){
+            TreeNode tail = reverseRightPath(from);
+            for(TreeNode node = tail; node != null; node = node.right){
+                action.accept(node.val);
+            }
+            reverseRightPath(tail);
+        }
+
+        private TreeNode reverseRightPath(TreeNode from){
+            TreeNode prev = null;
+            TreeNode node = from;
+            while(node != null){
+                TreeNode next = node.right;
+                node.right = prev;
+                prev = node;
+                node = next;
+            }
+            return prev;
+        }
+
+        /**
+         * 先序遍历结果写入int数组（非递归）
+         */
+        public int[] preOrderArray(TreeNode root){
+            IntArraySink sink = new IntArraySink();
+            preOrderIterative(root, sink);
+            return sink.toArray();
+        }
+
+        /**
+         * 中序遍历结果写入int数组（非递归）
+         */
+        public int[] inOrderArray(TreeNode root){
+            IntArraySink sink = new IntArraySink();
+            inOrderIterative(root, sink);
+            return sink.toArray();
+        }
+
+        /**
+         * 后序遍历结果写入int数组（非递归）
+         */
+        public int[] postOrderArray(TreeNode root){
+            IntArraySink sink = new IntArraySink();
+            postOrderIterative(root, sink);
+            return sink.toArray();
+        }
+
+        /**
+         * 节点数（显式栈计数：不像Morris遍历那样临时改动树，可以与其他读线程并发调用）
+         */
+        public int size(TreeNode root){
+            int[] count = new int[1];
+            preOrderIterative(root, v -> count[0]++);
+            return count[0];
+        }
+
+        //按顺序写入可增长的数组，一趟遍历即可得到结果，不需要先数节点数
+        private static class IntArraySink implements IntConsumer{
+            int[] values = new int[16];
+            int size;
+
+            @Override
+            public void accept(int value){
+                if(size == values.length){
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                values[size++] = value;
+            }
+
+            int[] toArray(){
+                return size == values.length ? values : Arrays.copyOf(values, size);
+            }
         }
 
         public TreeNode buildTree(int[] preorder,int[] inorder){
@@ -73,39 +312,876 @@ public class Tree {
             if(inorder == null || preorder == null || inorder.length != preorder.length){
                 return null;
             }
-            HashMap<Integer,Integer> map = new HashMap<>();
-            for (int i = 0; i < inorder.length; i++) {
-                map.put(inorder[i],i); //使用map快速存储元素在中序遍历中的位置
+            //非递归建树（不需要查中序位置，也不会因为树退化成链而栈溢出）；序列不匹配时抛出IllegalArgumentException
+            return buildRange(preorder, 0, inorder, 0, preorder.length);
+        }
+
+        /**
+         * 非递归O(n)先序+中序建树（节点值互不相同）：
+         * 栈中是还没有确定右孩子的节点；栈顶与中序当前值不同时，先序的下一个值是栈顶的左孩子，
+         * 相同时说明栈顶的左子树已完成，依次出栈直到不同，下一个值是最后出栈节点的右孩子
+         * 出栈顺序就是所建树的中序，逐个与中序序列比对，两个序列不是同一棵树的遍历时抛出IllegalArgumentException
+         */
+        private static TreeNode buildRange(int[] preorder, int preStart, int[] inorder, int inStart, int length){
+            if(length == 0){
+                return null;
+            }
+            TreeNode[] stack = new TreeNode[16];
+            int top = 0;
+            int in = inStart;
+            int inEnd = inStart + length;
+            TreeNode root = new TreeNode(preorder[preStart]);
+            stack[top++] = root;
+            for (int i = preStart + 1; i < preStart + length; i++) {
+                TreeNode node = new TreeNode(preorder[i]);
+                TreeNode parent = stack[top - 1];
+                if(parent.val != inorder[in]){
+                    parent.left = node;
+                }else{
+                    while(top > 0 && stack[top - 1].val == inorder[in]){
+                        parent = stack[--top];
+                        if(++in == inEnd){
+                            throw new IllegalArgumentException("先序与中序序列不匹配");
+                        }
+                    }
+                    parent.right = node;
+                }
+                if(top == stack.length){
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = node;
+            }
+            //栈中剩下的节点都没有右孩子，依次出栈应恰好是中序剩余的部分
+            while(top > 0){
+                if(stack[--top].val != inorder[in++]){
+                    throw new IllegalArgumentException("先序与中序序列不匹配");
+                }
+            }
+            return root;
+        }
+
+        /**
+         * 非递归O(n)后序+中序建树：与先序+中序对称，从后往前扫描，先建右孩子
+         */
+        public TreeNode buildTreeFromPostorder(int[] postorder, int[] inorder){
+            if(inorder == null || postorder == null || inorder.length != postorder.length || postorder.length == 0){
+                return null;
+            }
+            int n = postorder.length;
+            TreeNode[] stack = new TreeNode[16];
+            int top = 0;
+            int in = n - 1;
+            TreeNode root = new TreeNode(postorder[n - 1]);
+            stack[top++] = root;
+            for (int i = n - 2; i >= 0; i--) {
+                TreeNode node = new TreeNode(postorder[i]);
+                TreeNode parent = stack[top - 1];
+                if(parent.val != inorder[in]){
+                    parent.right = node;
+                }else{
+                    while(top > 0 && stack[top - 1].val == inorder[in]){
+                        parent = stack[--top];
+                        if(--in < 0){
+                            throw new IllegalArgumentException("后序与中序序列不匹配");
+                        }
+                    }
+                    parent.left = node;
+                }
+                if(top == stack.length){
+                    stack = Arrays.copyOf(stack, top * 2);
+                }
+                stack[top++] = node;
+            }
+            while(top > 0){
+                if(stack[--top].val != inorder[in--]){
+                    throw new IllegalArgumentException("后序与中序序列不匹配");
+                }
+            }
+            return root;
+        }
+
+        /**
+         * O(n)层序+中序建树：按层序依次出队，每个节点在中序中的区间确定它有没有左右孩子，
+         * 层序中接下来的值依次就是这些孩子
+         */
+        public TreeNode buildTreeFromLevelOrder(int[] levelorder, int[] inorder){
+            if(inorder == null || levelorder == null || inorder.length != levelorder.length || levelorder.length == 0){
+                return null;
+            }
+            int n = levelorder.length;
+            IntIndexMap index = new IntIndexMap(inorder);
+            //队列中每个节点对应的中序区间[lo, hi]
+            TreeNode[] queue = new TreeNode[n];
+            int[] lo = new int[n];
+            int[] hi = new int[n];
+            int head = 0;
+            int tail = 0;
+            queue[tail] = new TreeNode(levelorder[0]);
+            lo[tail] = 0;
+            hi[tail++] = n - 1;
+            int next = 1;
+            while(head < tail){
+                TreeNode node = queue[head];
+                int l = lo[head];
+                int h = hi[head++];
+                int p = index.get(node.val);
+                if(p < l || p > h){
+                    throw new IllegalArgumentException("层序与中序序列不匹配");
+                }
+                if(p > l){
+                    node.left = new TreeNode(levelorder[next++]);
+                    queue[tail] = node.left;
+                    lo[tail] = l;
+                    hi[tail++] = p - 1;
+                }
+                if(p < h){
+                    node.right = new TreeNode(levelorder[next++]);
+                    queue[tail] = node.right;
+                    lo[tail] = p + 1;
+                    hi[tail++] = h;
+                }
             }
-            //递归建树
-            return build(preorder,0,preorder.length-1,inorder,0,inorder.length-1,
-                    map);
+            return queue[0];
         }
 
-        private TreeNode build(int[] preorder, int preStart, int preEnd,
-                               int[] inorder, int inStart, int inEnd, HashMap<Integer, Integer> map)
-        {
-            //边界条件处理
-            if(preStart > preEnd || inStart > inEnd){
+        /**
+         * 并行先序+中序建树：子树规模超过阈值时左右子树用fork/join并发构造，小子树用非递归方法
+         * 只有一侧很大时不分叉而是沿大的一侧循环下去，退化的输入也不会递归过深
+         */
+        public TreeNode buildTreeParallel(int[] preorder, int[] inorder){
+            if(inorder == null || preorder == null || inorder.length != preorder.length){
                 return null;
             }
+            IntIndexMap index = new IntIndexMap(inorder);
+            return ForkJoinPool.commonPool().invoke(new BuildTask(preorder, inorder, index, 0, 0, preorder.length));
+        }
+
+        @SuppressWarnings("serial")
+        private static class BuildTask extends RecursiveTask<TreeNode>{
+            static final int THRESHOLD = 1 << 14;
+            private final int[] preorder;
+            private final int[] inorder;
+            private final IntIndexMap index;
+            private final int preStart;
+            private final int inStart;
+            private final int length;
+
+            BuildTask(int[] preorder, int[] inorder, IntIndexMap index, int preStart, int inStart, int length){
+                this.preorder = preorder;
+                this.inorder = inorder;
+                this.index = index;
+                this.preStart = preStart;
+                this.inStart = inStart;
+                this.length = length;
+            }
+
+            @Override
+            protected TreeNode compute(){
+                TreeNode result = null;
+                TreeNode parent = null;
+                boolean asLeft = false;
+                int ps = preStart;
+                int is = inStart;
+                int len = length;
+                while(true){
+                    TreeNode sub;
+                    boolean done = true;
+                    boolean nextLeft = false;
+                    if(len <= THRESHOLD){
+                        sub = buildRange(preorder, ps, inorder, is, len);
+                    }else{
+                        //1.找根在中序中的位置，划分左右子树
+                        sub = new TreeNode(preorder[ps]);
+                        int p = index.get(sub.val);
+                        if(p < is || p >= is + len){
+                            throw new IllegalArgumentException("先序与中序序列不匹配");
+                        }
+                        int leftLen = p - is;
+                        int rightLen = len - 1 - leftLen;
+                        if(leftLen > THRESHOLD && rightLen > THRESHOLD){
+                            //2.两侧都大：左子树分叉出去，右子树在本线程构造
+                            BuildTask left = new BuildTask(preorder, inorder, index, ps + 1, is, leftLen);
+                            left.fork();
+                            sub.right = new BuildTask(preorder, inorder, index, ps + 1 + leftLen, p + 1, rightLen).compute();
+                            sub.left = left.join();
+                        }else if(leftLen >= rightLen){
+                            //3.只有一侧大：小的一侧直接构造，沿大的一侧继续循环
+                            sub.right = buildRange(preorder, ps + 1 + leftLen, inorder, p + 1, rightLen);
+                            done = false;
+                            nextLeft = true;
+                            ps = ps + 1;
+                            len = leftLen;
+                        }else{
+                            sub.left = buildRange(preorder, ps + 1, inorder, is, leftLen);
+                            done = false;
+                            nextLeft = false;
+                            ps = ps + 1 + leftLen;
+                            is = p + 1;
+                            len = rightLen;
+                        }
+                    }
+                    if(parent == null){
+                        result = sub;
+                    }else if(asLeft){
+                        parent.left = sub;
+                    }else{
+                        parent.right = sub;
+                    }
+                    if(done){
+                        return result;
+                    }
+                    parent = sub;
+                    asLeft = nextLeft;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * int -> int 的下标映射（值 -> 在数组中的位置），替代HashMap<Integer,Integer>避免装箱
+     * 值域不超过元素数的4倍时直接用数组按值寻址，否则用线性探测的开放寻址表；重复的值保留最后一个位置
+     */
+    static class IntIndexMap {
+        private final int min;      // 直接寻址时的值域起点
+        private final int[] direct; // 直接寻址表，未用时为null
+        private final int[] keys;   // 开放寻址表
+        private final int[] slots;  // 位置，-1表示空槽
+        private final int mask;
+
+        IntIndexMap(int[] values) {
+            int n = values.length;
+            int lo = Integer.MAX_VALUE;
+            int hi = Integer.MIN_VALUE;
+            for (int v : values) {
+                lo = Math.min(lo, v);
+                hi = Math.max(hi, v);
+            }
+            long range = n == 0 ? 0 : (long) hi - lo + 1;
+            if (range <= 4L * n + 16) {
+                //1.值域稠密：直接寻址
+                min = lo;
+                direct = new int[(int) range];
+                Arrays.fill(direct, -1);
+                for (int i = 0; i < n; i++) {
+                    direct[values[i] - lo] = i;
+                }
+                keys = null;
+                slots = null;
+                mask = 0;
+                return;
+            }
+            //2.值域稀疏：容量为不小于2n的2的幂，装载因子不超过1/2
+            min = 0;
+            direct = null;
+            int capacity = Integer.highestOneBit(Math.max(2, 2 * n - 1)) << 1;
+            keys = new int[capacity];
+            slots = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(slots, -1);
+            for (int i = 0; i < n; i++) {
+                int h = hash(values[i]) & mask;
+                while (slots[h] != -1 && keys[h] != values[i]) {
+                    h = (h + 1) & mask;
+                }
+                keys[h] = values[i];
+                slots[h] = i;
+            }
+        }
 
-            int rootval = preorder[preStart]; //先序遍历中第一位是根节点的值
-            TreeNode root = new TreeNode(rootval);
+        /**
+         * 值key的位置，不存在返回-1
+         */
+        public int get(int key) {
+            if (direct != null) {
+                long offset = (long) key - min;
+                return offset < 0 || offset >= direct.length ? -1 : direct[(int) offset];
+            }
+            int h = hash(key) & mask;
+            while (slots[h] != -1) {
+                if (keys[h] == key) {
+                    return slots[h];
+                }
+                h = (h + 1) & mask;
+            }
+            return -1;
+        }
 
-            //找到根节点在中序遍历中的位置，方便划分左右子树
-            int index = map.get(rootval);
-            int leftsize = index - inStart;//左子树规模
+        // 乘法哈希后取高位与低位混合，连续的值也能散开
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
 
-            root.left = build(preorder,preStart+1,preStart + leftsize,
-                    inorder,inStart,index-1,map);
+    /**
+     * 层序遍历引擎：队列是可复用的环形数组（不为每次入队分配节点），并给出每层的边界
+     * 一个实例内部缓冲区会复用，不能被多个线程同时使用；并行模式是静态方法，没有这个限制
+     */
+    static class LevelOrder {
+        static final int PARALLEL_THRESHOLD = 4096; // 层宽达到该值才并行展开下一层
+        private static final int CHUNK_SIZE = 1024;
+
+        private TreeNode[] ring = new TreeNode[16]; // 容量始终为2的幂
+        private int head;
+        private int size;
+        private int[] batch = new int[16];
+
+        /**
+         * 逐层回调：values[0..count)是第level层从左到右的节点值（数组会被复用，回调返回后不要保留）
+         */
+        interface LevelVisitor {
+            void visit(int level, int[] values, int count);
+        }
 
-            root.right = build(preorder,preStart + leftsize + 1,preEnd,
-                    inorder,index+1,inEnd,map);
+        /**
+         * 层序遍历
+         * @param root 根节点，可以为null
+         * @param action 按层序接收节点值
+         * @return 层边界：第k层是输出中的[boundaries[k], boundaries[k+1])，最后一项为节点总数
+         */
+        public int[] traverse(TreeNode root, IntConsumer action) {
+            int[] boundaries = new int[8];
+            int levels = 0;
+            int emitted = 0;
+            clear();
+            if (root != null) {
+                offer(root);
+            }
+            while (size > 0) {
+                //1.当前队列里恰好是一整层
+                if (levels + 2 > boundaries.length) {
+                    boundaries = Arrays.copyOf(boundaries, boundaries.length * 2);
+                }
+                boundaries[levels++] = emitted;
+                for (int width = size; width > 0; width--) {
+                    TreeNode node = poll();
+                    action.accept(node.val);
+                    emitted++;
+                    //2.孩子入队，构成下一层
+                    if (node.left != null) {
+                        offer(node.left);
+                    }
+                    if (node.right != null) {
+                        offer(node.right);
+                    }
+                }
+            }
+            boundaries[levels] = emitted;
+            return Arrays.copyOf(boundaries, levels + 1);
+        }
 
-            return root;
+        /**
+         * 逐层批量处理
+         * @return 层数
+         */
+        public int forEachLevel(TreeNode root, LevelVisitor visitor) {
+            int level = 0;
+            clear();
+            if (root != null) {
+                offer(root);
+            }
+            while (size > 0) {
+                int width = size;
+                if (batch.length < width) {
+                    batch = new int[Math.max(width, batch.length * 2)];
+                }
+                for (int i = 0; i < width; i++) {
+                    TreeNode node = poll();
+                    batch[i] = node.val;
+                    if (node.left != null) {
+                        offer(node.left);
+                    }
+                    if (node.right != null) {
+                        offer(node.right);
+                    }
+                }
+                visitor.visit(level++, batch, width);
+            }
+            return level;
+        }
+
+        // 出队时已清空槽位，只需清掉上次异常中断时残留的节点引用，不随容量增长
+        private void clear() {
+            while (size > 0) {
+                poll();
+            }
+            head = 0;
+        }
+
+        private void offer(TreeNode node) {
+            if (size == ring.length) {
+                //扩容时把环展开成从0开始
+                TreeNode[] grown = new TreeNode[ring.length * 2];
+                int first = ring.length - head;
+                System.arraycopy(ring, head, grown, 0, first);
+                System.arraycopy(ring, 0, grown, first, head);
+                ring = grown;
+                head = 0;
+            }
+            ring[(head + size++) & (ring.length - 1)] = node;
+        }
+
+        private TreeNode poll() {
+            TreeNode node = ring[head];
+            ring[head] = null;
+            head = (head + 1) & (ring.length - 1);
+            size--;
+            return node;
+        }
+
+        /**
+         * 并行层序遍历的结果：values为层序的节点值，第k层是[levelStart[k], levelStart[k+1])
+         */
+        static class Result {
+            final int[] values;
+            final int[] levelStart;
+
+            Result(int[] values, int[] levelStart) {
+                this.values = values;
+                this.levelStart = levelStart;
+            }
+
+            public int levelCount() {
+                return levelStart.length - 1;
+            }
+        }
+
+        /**
+         * 并行层序遍历：逐层同步展开，宽的层分块并行统计孩子数、前缀和定位、再并行写入下一层
+         * 适合很茂密的树；窄的层直接顺序展开
+         */
+        public static Result parallel(TreeNode root) {
+            int[] values = new int[16];
+            int[] levelStart = new int[8];
+            int levels = 0;
+            int total = 0;
+            TreeNode[] level = root == null ? new TreeNode[0] : new TreeNode[]{root};
+            int width = level.length;
+            while (width > 0) {
+                if (levels + 2 > levelStart.length) {
+                    levelStart = Arrays.copyOf(levelStart, levelStart.length * 2);
+                }
+                levelStart[levels++] = total;
+                if (total + width > values.length) {
+                    values = Arrays.copyOf(values, Math.max(total + width, values.length * 2));
+                }
+                TreeNode[] current = level;
+                int currentWidth = width;
+                int[] out = values;
+                int base = total;
+                total += width;
+
+                if (width < PARALLEL_THRESHOLD) {
+                    //1.窄层：顺序写值并收集下一层
+                    int next = 0;
+                    for (int i = 0; i < width; i++) {
+                        TreeNode node = current[i];
+                        out[base + i] = node.val;
+                        next += (node.left != null ? 1 : 0) + (node.right != null ? 1 : 0);
+                    }
+                    TreeNode[] nextLevel = new TreeNode[next];
+                    int k = 0;
+                    for (int i = 0; i < width; i++) {
+                        TreeNode node = current[i];
+                        if (node.left != null) {
+                            nextLevel[k++] = node.left;
+                        }
+                        if (node.right != null) {
+                            nextLevel[k++] = node.right;
+                        }
+                    }
+                    level = nextLevel;
+                    width = next;
+                    continue;
+                }
+
+                //2.宽层：每块统计孩子数并写值
+                int chunks = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                int[] offset = new int[chunks + 1];
+                IntStream.range(0, chunks).parallel().forEach(c -> {
+                    int count = 0;
+                    for (int i = c * CHUNK_SIZE; i < Math.min(currentWidth, (c + 1) * CHUNK_SIZE); i++) {
+                        TreeNode node = current[i];
+                        out[base + i] = node.val;
+                        count += (node.left != null ? 1 : 0) + (node.right != null ? 1 : 0);
+                    }
+                    offset[c + 1] = count;
+                });
+                //3.前缀和得到每块孩子在下一层中的起始位置，各块并行写入
+                for (int c = 0; c < chunks; c++) {
+                    offset[c + 1] += offset[c];
+                }
+                TreeNode[] nextLevel = new TreeNode[offset[chunks]];
+                IntStream.range(0, chunks).parallel().forEach(c -> {
+                    int k = offset[c];
+                    for (int i = c * CHUNK_SIZE; i < Math.min(currentWidth, (c + 1) * CHUNK_SIZE); i++) {
+                        TreeNode node = current[i];
+                        if (node.left != null) {
+                            nextLevel[k++] = node.left;
+                        }
+                        if (node.right != null) {
+                            nextLevel[k++] = node.right;
+                        }
+                    }
+                });
+                level = nextLevel;
+                width = nextLevel.length;
+            }
+            levelStart[levels] = total;
+            return new Result(Arrays.copyOf(values, total), Arrays.copyOf(levelStart, levels + 1));
+        }
+    }
+
+    /**
+     * 数组存储的二叉树（结构数组）：节点i的值、左右孩子分别存在val[i]、left[i]、right[i]，-1表示没有孩子
+     * 每个节点12字节，没有对象头和引用；遍历全部用显式int栈，深树不会栈溢出
+     */
+    static class ArrayTree {
+        final int[] val;
+        final int[] left;
+        final int[] right;
+        final int root; // 空树为-1
+
+        ArrayTree(int[] val, int[] left, int[] right, int root) {
+            this.val = val;
+            this.left = left;
+            this.right = right;
+            this.root = root;
+        }
+
+        public int size() {
+            return val.length;
+        }
+
+        /**
+         * 从链式二叉树转换，节点按先序编号（先序/深度优先访问时内存连续）
+         * 一趟显式栈遍历，边编号边扩容数组，只读原树，可以与其他读线程并发
+         */
+        public static ArrayTree fromNodes(TreeNode root) {
+            if (root == null) {
+                return new ArrayTree(new int[0], new int[0], new int[0], -1);
+            }
+            int[] val = new int[16];
+            int[] left = new int[16];
+            int[] right = new int[16];
+            //栈中保存(节点, 它在父节点中的位置)：编号在出栈时分配，即先序编号
+            TreeNode[] stack = new TreeNode[16];
+            int[] slot = new int[16]; // 父编号*2 + (0左/1右)，根为-1
+            int top = 0;
+            int next = 0;
+            stack[top] = root;
+            slot[top++] = -1;
+            while (top > 0) {
+                TreeNode node = stack[--top];
+                int s = slot[top];
+                int id = next++;
+                if (id == val.length) {
+                    val = Arrays.copyOf(val, id * 2);
+                    left = Arrays.copyOf(left, id * 2);
+                    right = Arrays.copyOf(right, id * 2);
+                }
+                val[id] = node.val;
+                left[id] = -1;
+                right[id] = -1;
+                if (s >= 0) {
+                    if ((s & 1) == 0) {
+                        left[s >> 1] = id;
+                    } else {
+                        right[s >> 1] = id;
+                    }
+                }
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                    slot = Arrays.copyOf(slot, slot.length * 2);
+                }
+                //右孩子先入栈，左孩子先出栈
+                if (node.right != null) {
+                    stack[top] = node.right;
+                    slot[top++] = id * 2 + 1;
+                }
+                if (node.left != null) {
+                    stack[top] = node.left;
+                    slot[top++] = id * 2;
+                }
+            }
+            if (next < val.length) {
+                val = Arrays.copyOf(val, next);
+                left = Arrays.copyOf(left, next);
+                right = Arrays.copyOf(right, next);
+            }
+            return new ArrayTree(val, left, right, 0);
+        }
+
+        /**
+         * 转换回链式二叉树
+         */
+        public TreeNode toNodes() {
+            int n = size();
+            TreeNode[] nodes = new TreeNode[n];
+            for (int i = 0; i < n; i++) {
+                nodes[i] = new TreeNode(val[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                nodes[i].left = left[i] < 0 ? null : nodes[left[i]];
+                nodes[i].right = right[i] < 0 ? null : nodes[right[i]];
+            }
+            return root < 0 ? null : nodes[root];
+        }
+
+        /**
+         * 由升序数组构造平衡二叉搜索树（先序编号）
+         */
+        public static ArrayTree fromSorted(int[] sorted) {
+            int n = sorted.length;
+            int[] val = new int[n];
+            int[] left = new int[n];
+            int[] right = new int[n];
+            if (n == 0) {
+                return new ArrayTree(val, left, right, -1);
+            }
+            //栈中保存待建子树的区间[lo, hi]和父节点槽位，树高只有log n
+            int[] stack = new int[3 * 64];
+            int top = 0;
+            int next = 0;
+            stack[top++] = 0;
+            stack[top++] = n - 1;
+            stack[top++] = -1;
+            while (top > 0) {
+                int s = stack[--top];
+                int hi = stack[--top];
+                int lo = stack[--top];
+                int mid = (lo + hi) >>> 1;
+                int id = next++;
+                val[id] = sorted[mid];
+                left[id] = -1;
+                right[id] = -1;
+                if (s >= 0) {
+                    if ((s & 1) == 0) {
+                        left[s >> 1] = id;
+                    } else {
+                        right[s >> 1] = id;
+                    }
+                }
+                if (mid < hi) {
+                    stack[top++] = mid + 1;
+                    stack[top++] = hi;
+                    stack[top++] = id * 2 + 1;
+                }
+                if (lo < mid) {
+                    stack[top++] = lo;
+                    stack[top++] = mid - 1;
+                    stack[top++] = id * 2;
+                }
+            }
+            return new ArrayTree(val, left, right, 0);
+        }
+
+        /**
+         * 先序遍历
+         */
+        public void preOrder(IntConsumer action) {
+            int[] stack = new int[16];
+            int top = 0;
+            if (root >= 0) {
+                stack[top++] = root;
+            }
+            while (top > 0) {
+                int node = stack[--top];
+                action.accept(val[node]);
+                if (top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                if (right[node] >= 0) {
+                    stack[top++] = right[node];
+                }
+                if (left[node] >= 0) {
+                    stack[top++] = left[node];
+                }
+            }
+        }
+
+        /**
+         * 中序遍历
+         */
+        public void inOrder(IntConsumer action) {
+            int[] stack = new int[16];
+            int top = 0;
+            int node = root;
+            while (node >= 0 || top > 0) {
+                while (node >= 0) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = node;
+                    node = left[node];
+                }
+                node = stack[--top];
+                action.accept(val[node]);
+                node = right[node];
+            }
+        }
+
+        /**
+         * 后序遍历
+         */
+        public void postOrder(IntConsumer action) {
+            int[] stack = new int[16];
+            int top = 0;
+            int node = root;
+            int prev = -1;
+            while (node >= 0 || top > 0) {
+                while (node >= 0) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = node;
+                    node = left[node];
+                }
+                int peek = stack[top - 1];
+                if (right[peek] >= 0 && right[peek] != prev) {
+                    node = right[peek];
+                } else {
+                    top--;
+                    action.accept(val[peek]);
+                    prev = peek;
+                }
+            }
+        }
+
+        /**
+         * 层序遍历（队列就是一个int数组，每个节点只入队一次）
+         */
+        public int[] levelOrder() {
+            int[] queue = bfsOrder();
+            int[] res = new int[queue.length];
+            for (int i = 0; i < queue.length; i++) {
+                res[i] = val[queue[i]];
+            }
+            return res;
+        }
+
+        // 层序的节点编号
+        private int[] bfsOrder() {
+            int[] queue = new int[size()];
+            int head = 0;
+            int tail = 0;
+            if (root >= 0) {
+                queue[tail++] = root;
+            }
+            while (head < tail) {
+                int node = queue[head++];
+                if (left[node] >= 0) {
+                    queue[tail++] = left[node];
+                }
+                if (right[node] >= 0) {
+                    queue[tail++] = right[node];
+                }
+            }
+            return queue;
+        }
+
+        /**
+         * 树高（空树为0）
+         */
+        public int height() {
+            int[] depth = new int[size()];
+            int height = 0;
+            for (int node : bfsOrder()) {
+                //层序中父节点先于孩子出现
+                height = Math.max(height, depth[node] + 1);
+                if (left[node] >= 0) {
+                    depth[left[node]] = depth[node] + 1;
+                }
+                if (right[node] >= 0) {
+                    depth[right[node]] = depth[node] + 1;
+                }
+            }
+            return height;
+        }
+
+        /**
+         * 在二叉搜索树中查找key
+         * @return 节点编号，不存在返回-1
+         */
+        public int find(int key) {
+            int node = root;
+            while (node >= 0 && val[node] != key) {
+                node = key < val[node] ? left[node] : right[node];
+            }
+            return node;
+        }
+
+        /**
+         * 按层序重新编号：上面几层集中在数组开头，查找时前几次访问都落在同几个缓存行
+         */
+        public ArrayTree bfsLayout() {
+            return relabel(bfsOrder());
+        }
+
+        /**
+         * 按van Emde Boas布局重新编号：把树从中间高度切开，先放上半棵树，再依次放下面的各棵子树，递归进行
+         * 任意高度为h的子树都连续存放，查找路径访问的缓存行数与缓存行大小无关地接近最优
+         */
+        public ArrayTree vebLayout() {
+            int[] order = new int[size()];
+            int[] next = new int[1];
+            if (root >= 0) {
+                veb(root, height(), order, next);
+            }
+            return relabel(order);
+        }
+
+        // 按vEB顺序输出以r为根、高度不超过h的部分；递归深度只有log h
+        private void veb(int r, int h, int[] order, int[] next) {
+            if (h == 1) {
+                order[next[0]++] = r;
+                return;
+            }
+            int topHeight = h / 2;
+            veb(r, topHeight, order, next);
+            //深度为topHeight的节点是下半部分各子树的根，从左到右依次处理
+            int[] level = {r};
+            for (int d = 0; d < topHeight && level.length > 0; d++) {
+                int count = 0;
+                for (int node : level) {
+                    count += (left[node] >= 0 ? 1 : 0) + (right[node] >= 0 ? 1 : 0);
+                }
+                int[] children = new int[count];
+                int k = 0;
+                for (int node : level) {
+                    if (left[node] >= 0) {
+                        children[k++] = left[node];
+                    }
+                    if (right[node] >= 0) {
+                        children[k++] = right[node];
+                    }
+                }
+                level = children;
+            }
+            for (int child : level) {
+                veb(child, h - topHeight, order, next);
+            }
         }
 
+        // order[新编号] = 旧编号
+        private ArrayTree relabel(int[] order) {
+            int n = size();
+            int[] newId = new int[n];
+            for (int i = 0; i < n; i++) {
+                newId[order[i]] = i;
+            }
+            int[] v = new int[n];
+            int[] l = new int[n];
+            int[] r = new int[n];
+            for (int i = 0; i < n; i++) {
+                int old = order[i];
+                v[i] = val[old];
+                l[i] = left[old] < 0 ? -1 : newId[left[old]];
+                r[i] = right[old] < 0 ? -1 : newId[right[old]];
+            }
+            return new ArrayTree(v, l, r, root < 0 ? -1 : newId[root]);
+        }
     }
 
     class ThreadTreeNode{
@@ -310,62 +1386,2111 @@ public class Tree {
 
     }
 
-    static class HuffmanNode implements Comparable<HuffmanNode> {
-        int weight; // 节点权重（关键：用于排序选择最小节点）
-        HuffmanNode left;  // 左子树
-        HuffmanNode right; // 右子树
+    /**
+     * 不可变的线索二叉树：线索存放在单独的int数组里（每种遍历顺序一个后继数组），不改动原树的left/right
+     * 构造完成后只读，迭代器只持有一个当前位置，不用栈，多个线程可以同时在同一棵树上迭代
+     */
+    static class ImmutableThreadedTree {
+        private final int[] val;
+        private final int[] preNext;  // 先序后继，-1表示结束
+        private final int[] inNext;   // 中序后继
+        private final int[] postNext; // 后序后继
+        private final int preFirst;
+        private final int inFirst;
+        private final int postFirst;
+
+        /**
+         * 由链式二叉树构造（先转成数组树，原树不受影响）
+         */
+        public static ImmutableThreadedTree of(TreeNode root) {
+            return of(ArrayTree.fromNodes(root));
+        }
 
-        // 构造器：初始化单节点树（无左右子树）
-        public HuffmanNode(int weight) {
-            this.weight = weight;
-            this.left = null;
-            this.right = null;
+        /**
+         * 由数组树构造
+         */
+        public static ImmutableThreadedTree of(ArrayTree tree) {
+            return new ImmutableThreadedTree(tree);
         }
 
-        // 实现Comparable接口：按权重升序排序（方便选择最小节点）
-        @Override
+        private ImmutableThreadedTree(ArrayTree tree) {
+            int n = tree.size();
+            val = tree.val.clone();
+            //节点值换成节点编号，复用数组树的非递归遍历得到三种顺序的节点序列
+            int[] ids = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = i;
+            }
+            ArrayTree idTree = new ArrayTree(ids, tree.left, tree.right, tree.root);
+            preNext = new int[n];
+            inNext = new int[n];
+            postNext = new int[n];
+            preFirst = link(idTree::preOrder, preNext);
+            inFirst = link(idTree::inOrder, inNext);
+            postFirst = link(idTree::postOrder, postNext);
+        }
+
+        // 按遍历顺序把每个节点的后继写入next，返回第一个节点
+        private static int link(Consumer<IntConsumer> traversal, int[] next) {
+            int[] state = {-1, -1}; // 第一个节点、上一个节点
+            traversal.accept(node -> {
+                if (state[1] < 0) {
+                    state[0] = node;
+                } else {
+                    next[state[1]] = node;
+                }
+                state[1] = node;
+            });
+            if (state[1] >= 0) {
+                next[state[1]] = -1;
+            }
+            return state[0];
+        }
+
+        public int size() {
+            return val.length;
+        }
+
+        /**
+         * 先序迭代器
+         */
+        public PrimitiveIterator.OfInt preOrder() {
+            return new ThreadIterator(val, preNext, preFirst);
+        }
+
+        /**
+         * 中序迭代器
+         */
+        public PrimitiveIterator.OfInt inOrder() {
+            return new ThreadIterator(val, inNext, inFirst);
+        }
+
+        /**
+         * 后序迭代器
+         */
+        public PrimitiveIterator.OfInt postOrder() {
+            return new ThreadIterator(val, postNext, postFirst);
+        }
+
+        //沿线索前进的迭代器，每个线程各用各的实例
+        private static class ThreadIterator implements PrimitiveIterator.OfInt {
+            private final int[] val;
+            private final int[] next;
+            private int node;
+
+            ThreadIterator(int[] val, int[] next, int first) {
+                this.val = val;
+                this.next = next;
+                this.node = first;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return node >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (node < 0) {
+                    throw new NoSuchElementException();
+                }
+                int v = val[node];
+                node = next[node];
+                return v;
+            }
+        }
+    }
+
+    /**
+     * 有序表的(键, 值)回调
+     */
+    interface IntLongVisitor {
+        void visit(int key, long value);
+    }
+
+    /**
+     * int键、long值的有序索引（IntAvlTree与IntBPlusTree的公共操作）
+     */
+    interface IntLongIndex {
+        boolean put(int key, long value);
+
+        long get(int key, long missing);
+
+        boolean remove(int key);
+
+        void range(int from, int to, IntLongVisitor visitor);
+
+        int size();
+    }
+
+    /**
+     * int键、long值的AVL树：节点存放在数组里（与ArrayTree相同的结构数组），没有装箱和节点对象
+     * 插入和删除都沿记录下来的路径自底向上调整，不用递归；删除的节点编号放入空闲链表复用
+     * 非线程安全
+     */
+    static class IntAvlTree implements IntLongIndex {
+        private static final int MAX_HEIGHT = 64; // AVL树高不超过1.44log2(n)，64足够
+
+        private int[] key = new int[16];
+        private long[] value = new long[16];
+        private int[] left = new int[16];  // 空闲节点用left串成链表
+        private int[] right = new int[16];
+        private int[] height = new int[16];
+        private int root = -1;
+        private int size;
+        private int allocated;
+        private int free = -1;
+        private final int[] path = new int[MAX_HEIGHT];
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * 查找
+         * @param missing 键不存在时的返回值
+         */
+        public long get(int k, long missing) {
+            int node = find(k);
+            return node < 0 ? missing : value[node];
+        }
+
+        public boolean containsKey(int k) {
+            return find(k) >= 0;
+        }
+
+        private int find(int k) {
+            int node = root;
+            while (node >= 0 && key[node] != k) {
+                node = k < key[node] ? left[node] : right[node];
+            }
+            return node;
+        }
+
+        /**
+         * 插入或覆盖
+         * @return true表示新插入，false表示覆盖了已有的值
+         */
+        public boolean put(int k, long v) {
+            //1.自顶向下找插入位置，记录路径
+            int depth = 0;
+            int node = root;
+            while (node >= 0) {
+                if (key[node] == k) {
+                    value[node] = v;
+                    return false;
+                }
+                path[depth++] = node;
+                node = k < key[node] ? left[node] : right[node];
+            }
+            int created = allocate(k, v);
+            if (depth == 0) {
+                root = created;
+            } else {
+                int parent = path[depth - 1];
+                if (k < key[parent]) {
+                    left[parent] = created;
+                } else {
+                    right[parent] = created;
+                }
+            }
+            size++;
+            //2.沿路径向上更新高度并旋转
+            rebalancePath(depth);
+            return true;
+        }
+
+        /**
+         * 删除
+         * @return 键是否存在
+         */
+        public boolean remove(int k) {
+            int depth = 0;
+            int node = root;
+            while (node >= 0 && key[node] != k) {
+                path[depth++] = node;
+                node = k < key[node] ? left[node] : right[node];
+            }
+            if (node < 0) {
+                return false;
+            }
+            //1.有两个孩子：用右子树的最小节点顶替，转为删除那个最多只有右孩子的节点
+            if (left[node] >= 0 && right[node] >= 0) {
+                path[depth++] = node;
+                int successor = right[node];
+                while (left[successor] >= 0) {
+                    path[depth++] = successor;
+                    successor = left[successor];
+                }
+                key[node] = key[successor];
+                value[node] = value[successor];
+                node = successor;
+            }
+            //2.用唯一的孩子（或空）替换该节点
+            int child = left[node] >= 0 ? left[node] : right[node];
+            if (depth == 0) {
+                root = child;
+            } else {
+                int parent = path[depth - 1];
+                if (left[parent] == node) {
+                    left[parent] = child;
+                } else {
+                    right[parent] = child;
+                }
+            }
+            release(node);
+            size--;
+            rebalancePath(depth);
+            return true;
+        }
+
+        /**
+         * 按键升序访问[from, to)内的所有项（显式栈，不递归）
+         */
+        public void range(int from, int to, IntLongVisitor visitor) {
+            int[] stack = new int[MAX_HEIGHT];
+            int top = 0;
+            int node = root;
+            while (node >= 0 || top > 0) {
+                //只向可能含有>=from的键的方向下探
+                while (node >= 0) {
+                    if (key[node] < from) {
+                        node = right[node];
+                    } else {
+                        stack[top++] = node;
+                        node = left[node];
+                    }
+                }
+                if (top == 0) {
+                    break;
+                }
+                node = stack[--top];
+                if (key[node] >= to) {
+                    return;
+                }
+                visitor.visit(key[node], value[node]);
+                node = right[node];
+            }
+        }
+
+        /**
+         * 最小的键（空树抛出NoSuchElementException）
+         */
+        public int firstKey() {
+            if (root < 0) {
+                throw new NoSuchElementException();
+            }
+            int node = root;
+            while (left[node] >= 0) {
+                node = left[node];
+            }
+            return key[node];
+        }
+
+        // path[0..depth)自底向上重新计算高度并做旋转，旋转后的子树根接回父节点
+        private void rebalancePath(int depth) {
+            for (int i = depth - 1; i >= 0; i--) {
+                int node = path[i];
+                int balanced = balance(node);
+                if (balanced != node) {
+                    if (i == 0) {
+                        root = balanced;
+                    } else {
+                        int parent = path[i - 1];
+                        if (left[parent] == node) {
+                            left[parent] = balanced;
+                        } else {
+                            right[parent] = balanced;
+                        }
+                    }
+                }
+            }
+        }
+
+        private int h(int node) {
+            return node < 0 ? 0 : height[node];
+        }
+
+        private void update(int node) {
+            height[node] = Math.max(h(left[node]), h(right[node])) + 1;
+        }
+
+        private int balance(int node) {
+            update(node);
+            int factor = h(left[node]) - h(right[node]);
+            if (factor > 1) {
+                if (h(left[left[node]]) < h(right[left[node]])) {
+                    left[node] = rotateLeft(left[node]); //LR型先左旋左孩子
+                }
+                return rotateRight(node);
+            }
+            if (factor < -1) {
+                if (h(right[right[node]]) < h(left[right[node]])) {
+                    right[node] = rotateRight(right[node]); //RL型先右旋右孩子
+                }
+                return rotateLeft(node);
+            }
+            return node;
+        }
+
+        private int rotateRight(int y) {
+            int x = left[y];
+            left[y] = right[x];
+            right[x] = y;
+            update(y);
+            update(x);
+            return x;
+        }
+
+        private int rotateLeft(int x) {
+            int y = right[x];
+            right[x] = left[y];
+            left[y] = x;
+            update(x);
+            update(y);
+            return y;
+        }
+
+        private int allocate(int k, long v) {
+            int node;
+            if (free >= 0) {
+                node = free;
+                free = left[node];
+            } else {
+                if (allocated == key.length) {
+                    int capacity = allocated * 2;
+                    key = Arrays.copyOf(key, capacity);
+                    value = Arrays.copyOf(value, capacity);
+                    left = Arrays.copyOf(left, capacity);
+                    right = Arrays.copyOf(right, capacity);
+                    height = Arrays.copyOf(height, capacity);
+                }
+                node = allocated++;
+            }
+            key[node] = k;
+            value[node] = v;
+            left[node] = -1;
+            right[node] = -1;
+            height[node] = 1;
+            return node;
+        }
+
+        private void release(int node) {
+            left[node] = free;
+            free = node;
+        }
+    }
+
+    /**
+     * int键、long值的B+树：每个节点最多16个键，键数组正好占一个64字节缓存行，节点内顺序扫描；
+     * 叶子通过next串成链表用于范围扫描。内部节点和叶子分别存放在两组平铺的数组里（节点i的第j个键在keys[i*16+j]），
+     * 所有叶子在同一深度，下降时由层数判断孩子是内部节点还是叶子
+     * 删除时向兄弟借项或与兄弟合并，保持除根以外的节点至少半满。非线程安全
+     */
+    static class IntBPlusTree implements IntLongIndex {
+        static final int B = 16;                 // 每个节点最多的键数
+        private static final int MIN_LEAF = B / 2;
+        private static final int MIN_INNER = B / 2 - 1;
+
+        //叶子
+        private int[] leafKeys = new int[B * 16];
+        private long[] leafValues = new long[B * 16];
+        private int[] leafCount = new int[16];
+        private int[] leafNext = new int[16];
+        private int leafAllocated;
+        private int leafFree = -1; // 空闲叶子用leafNext串成链表
+        //内部节点：第j个孩子中的键在[keys[j-1], keys[j])内
+        private int[] innerKeys = new int[B * 16];
+        private int[] innerChildren = new int[(B + 1) * 16];
+        private int[] innerCount = new int[16];
+        private int innerAllocated;
+        private int innerFree = -1;
+
+        private int root;
+        private int levels = 1; // 1表示根就是叶子
+        private int size;
+        //下降路径：各层内部节点及走向的孩子下标
+        private int[] pathNode = new int[8];
+        private int[] pathIndex = new int[8];
+        //分裂时的临时缓冲
+        private final int[] tmpKeys = new int[B + 1];
+        private final long[] tmpValues = new long[B + 1];
+        private final int[] tmpChildren = new int[B + 2];
+
+        IntBPlusTree() {
+            root = allocateLeaf();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * 树的层数（1表示根就是叶子）
+         */
+        int height() {
+            return levels;
+        }
+
+        /**
+         * 查找
+         * @param missing 键不存在时的返回值
+         */
+        public long get(int key, long missing) {
+            int leaf = findLeaf(key);
+            int base = leaf * B;
+            int count = leafCount[leaf];
+            for (int i = 0; i < count; i++) {
+                if (leafKeys[base + i] == key) {
+                    return leafValues[base + i];
+                }
+            }
+            return missing;
+        }
+
+        public boolean containsKey(int key) {
+            int leaf = findLeaf(key);
+            int base = leaf * B;
+            for (int i = 0; i < leafCount[leaf]; i++) {
+                if (leafKeys[base + i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // 只下降不记录路径
+        private int findLeaf(int key) {
+            int node = root;
+            for (int level = levels; level > 1; level--) {
+                node = innerChildren[node * (B + 1) + childIndex(node, key)];
+            }
+            return node;
+        }
+
+        // 内部节点中不大于key的分隔键个数，即应走的孩子下标（键只有16个，顺序扫描比二分更快）
+        private int childIndex(int node, int key) {
+            int base = node * B;
+            int count = innerCount[node];
+            int i = 0;
+            while (i < count && innerKeys[base + i] <= key) {
+                i++;
+            }
+            return i;
+        }
+
+        // 下降到叶子并记录路径
+        private int descend(int key) {
+            if (pathNode.length < levels) {
+                pathNode = new int[levels * 2];
+                pathIndex = new int[levels * 2];
+            }
+            int node = root;
+            for (int depth = 0; depth < levels - 1; depth++) {
+                int index = childIndex(node, key);
+                pathNode[depth] = node;
+                pathIndex[depth] = index;
+                node = innerChildren[node * (B + 1) + index];
+            }
+            return node;
+        }
+
+        /**
+         * 插入或覆盖
+         * @return true表示新插入，false表示覆盖了已有的值
+         */
+        public boolean put(int key, long value) {
+            int leaf = descend(key);
+            int base = leaf * B;
+            int count = leafCount[leaf];
+            int pos = 0;
+            while (pos < count && leafKeys[base + pos] < key) {
+                pos++;
+            }
+            if (pos < count && leafKeys[base + pos] == key) {
+                leafValues[base + pos] = value;
+                return false;
+            }
+            size++;
+            //1.叶子未满：后移腾出位置
+            if (count < B) {
+                System.arraycopy(leafKeys, base + pos, leafKeys, base + pos + 1, count - pos);
+                System.arraycopy(leafValues, base + pos, leafValues, base + pos + 1, count - pos);
+                leafKeys[base + pos] = key;
+                leafValues[base + pos] = value;
+                leafCount[leaf]++;
+                return true;
+            }
+            //2.叶子已满：连同新项共B+1项，前一半留下，后一半移到新叶子，新叶子的第一个键插入父节点
+            System.arraycopy(leafKeys, base, tmpKeys, 0, pos);
+            System.arraycopy(leafValues, base, tmpValues, 0, pos);
+            tmpKeys[pos] = key;
+            tmpValues[pos] = value;
+            System.arraycopy(leafKeys, base + pos, tmpKeys, pos + 1, count - pos);
+            System.arraycopy(leafValues, base + pos, tmpValues, pos + 1, count - pos);
+            int sibling = allocateLeaf();
+            base = leaf * B; //分配可能扩容
+            int keep = (B + 1) / 2;
+            int moved = B + 1 - keep;
+            System.arraycopy(tmpKeys, 0, leafKeys, base, keep);
+            System.arraycopy(tmpValues, 0, leafValues, base, keep);
+            System.arraycopy(tmpKeys, keep, leafKeys, sibling * B, moved);
+            System.arraycopy(tmpValues, keep, leafValues, sibling * B, moved);
+            leafCount[leaf] = keep;
+            leafCount[sibling] = moved;
+            leafNext[sibling] = leafNext[leaf];
+            leafNext[leaf] = sibling;
+            insertIntoParent(levels - 2, leafKeys[sibling * B], sibling);
+            return true;
+        }
+
+        // 在路径第depth层的内部节点中，紧接原孩子之后插入(分隔键, 新孩子)，满了继续向上分裂
+        private void insertIntoParent(int depth, int separator, int child) {
+            while (true) {
+                if (depth < 0) {
+                    //根分裂：长出新的根
+                    int newRoot = allocateInner();
+                    innerKeys[newRoot * B] = separator;
+                    innerChildren[newRoot * (B + 1)] = root;
+                    innerChildren[newRoot * (B + 1) + 1] = child;
+                    innerCount[newRoot] = 1;
+                    root = newRoot;
+                    levels++;
+                    return;
+                }
+                int node = pathNode[depth];
+                int pos = pathIndex[depth]; //分隔键插在keys[pos]，新孩子在children[pos+1]
+                int count = innerCount[node];
+                int kb = node * B;
+                int cb = node * (B + 1);
+                if (count < B) {
+                    System.arraycopy(innerKeys, kb + pos, innerKeys, kb + pos + 1, count - pos);
+                    System.arraycopy(innerChildren, cb + pos + 1, innerChildren, cb + pos + 2, count - pos);
+                    innerKeys[kb + pos] = separator;
+                    innerChildren[cb + pos + 1] = child;
+                    innerCount[node]++;
+                    return;
+                }
+                //内部节点已满：B+1个键，中间的键上移，其余平分
+                System.arraycopy(innerKeys, kb, tmpKeys, 0, pos);
+                tmpKeys[pos] = separator;
+                System.arraycopy(innerKeys, kb + pos, tmpKeys, pos + 1, count - pos);
+                System.arraycopy(innerChildren, cb, tmpChildren, 0, pos + 1);
+                tmpChildren[pos + 1] = child;
+                System.arraycopy(innerChildren, cb + pos + 1, tmpChildren, pos + 2, count - pos);
+                int sibling = allocateInner();
+                kb = node * B;
+                cb = node * (B + 1);
+                int keep = (B + 1) / 2;
+                int moved = B - keep; //去掉上移的一个键
+                System.arraycopy(tmpKeys, 0, innerKeys, kb, keep);
+                System.arraycopy(tmpChildren, 0, innerChildren, cb, keep + 1);
+                System.arraycopy(tmpKeys, keep + 1, innerKeys, sibling * B, moved);
+                System.arraycopy(tmpChildren, keep + 1, innerChildren, sibling * (B + 1), moved + 1);
+                innerCount[node] = keep;
+                innerCount[sibling] = moved;
+                separator = tmpKeys[keep];
+                child = sibling;
+                depth--;
+            }
+        }
+
+        /**
+         * 删除
+         * @return 键是否存在
+         */
+        public boolean remove(int key) {
+            int leaf = descend(key);
+            int base = leaf * B;
+            int count = leafCount[leaf];
+            int pos = 0;
+            while (pos < count && leafKeys[base + pos] != key) {
+                pos++;
+            }
+            if (pos == count) {
+                return false;
+            }
+            System.arraycopy(leafKeys, base + pos + 1, leafKeys, base + pos, count - pos - 1);
+            System.arraycopy(leafValues, base + pos + 1, leafValues, base + pos, count - pos - 1);
+            leafCount[leaf]--;
+            size--;
+            if (levels > 1 && leafCount[leaf] < MIN_LEAF) {
+                fixLeaf(leaf);
+            }
+            return true;
+        }
+
+        // 叶子不足半满：先向左右兄弟借一项，借不到就合并，合并使父节点少一个键
+        private void fixLeaf(int leaf) {
+            int depth = levels - 2;
+            int parent = pathNode[depth];
+            int index = pathIndex[depth];
+            int kb = parent * B;
+            int cb = parent * (B + 1);
+            int count = leafCount[leaf];
+            if (index > 0) {
+                int left = innerChildren[cb + index - 1];
+                int lc = leafCount[left];
+                if (lc > MIN_LEAF) {
+                    //向左兄弟借最后一项
+                    System.arraycopy(leafKeys, leaf * B, leafKeys, leaf * B + 1, count);
+                    System.arraycopy(leafValues, leaf * B, leafValues, leaf * B + 1, count);
+                    leafKeys[leaf * B] = leafKeys[left * B + lc - 1];
+                    leafValues[leaf * B] = leafValues[left * B + lc - 1];
+                    leafCount[left]--;
+                    leafCount[leaf]++;
+                    innerKeys[kb + index - 1] = leafKeys[leaf * B];
+                    return;
+                }
+            }
+            if (index < innerCount[parent]) {
+                int right = innerChildren[cb + index + 1];
+                int rc = leafCount[right];
+                if (rc > MIN_LEAF) {
+                    //向右兄弟借第一项
+                    leafKeys[leaf * B + count] = leafKeys[right * B];
+                    leafValues[leaf * B + count] = leafValues[right * B];
+                    System.arraycopy(leafKeys, right * B + 1, leafKeys, right * B, rc - 1);
+                    System.arraycopy(leafValues, right * B + 1, leafValues, right * B, rc - 1);
+                    leafCount[right]--;
+                    leafCount[leaf]++;
+                    innerKeys[kb + index] = leafKeys[right * B];
+                    return;
+                }
+            }
+            //合并：右边的并入左边，去掉它们之间的分隔键
+            int into = index > 0 ? innerChildren[cb + index - 1] : leaf;
+            int from = index > 0 ? leaf : innerChildren[cb + index + 1];
+            int separatorIndex = index > 0 ? index - 1 : index;
+            System.arraycopy(leafKeys, from * B, leafKeys, into * B + leafCount[into], leafCount[from]);
+            System.arraycopy(leafValues, from * B, leafValues, into * B + leafCount[into], leafCount[from]);
+            leafCount[into] += leafCount[from];
+            leafNext[into] = leafNext[from];
+            releaseLeaf(from);
+            removeFromInner(depth, separatorIndex);
+        }
+
+        // 从第depth层的内部节点中删除keys[k]和children[k+1]，不足时向兄弟借或合并，逐层向上
+        private void removeFromInner(int depth, int k) {
+            while (true) {
+                int node = pathNode[depth];
+                int kb = node * B;
+                int cb = node * (B + 1);
+                int count = innerCount[node];
+                System.arraycopy(innerKeys, kb + k + 1, innerKeys, kb + k, count - k - 1);
+                System.arraycopy(innerChildren, cb + k + 2, innerChildren, cb + k + 1, count - k - 1);
+                count = --innerCount[node];
+                if (depth == 0) {
+                    if (count == 0) {
+                        //根只剩一个孩子：树降低一层
+                        root = innerChildren[cb];
+                        releaseInner(node);
+                        levels--;
+                    }
+                    return;
+                }
+                if (count >= MIN_INNER) {
+                    return;
+                }
+                int parent = pathNode[depth - 1];
+                int index = pathIndex[depth - 1];
+                int pkb = parent * B;
+                int pcb = parent * (B + 1);
+                if (index > 0) {
+                    int left = innerChildren[pcb + index - 1];
+                    int lc = innerCount[left];
+                    if (lc > MIN_INNER) {
+                        //父节点的分隔键下移到本节点最前，左兄弟的最后一个键上移
+                        System.arraycopy(innerKeys, kb, innerKeys, kb + 1, count);
+                        System.arraycopy(innerChildren, cb, innerChildren, cb + 1, count + 1);
+                        innerKeys[kb] = innerKeys[pkb + index - 1];
+                        innerChildren[cb] = innerChildren[left * (B + 1) + lc];
+                        innerKeys[pkb + index - 1] = innerKeys[left * B + lc - 1];
+                        innerCount[left]--;
+                        innerCount[node]++;
+                        return;
+                    }
+                }
+                if (index < innerCount[parent]) {
+                    int right = innerChildren[pcb + index + 1];
+                    int rc = innerCount[right];
+                    if (rc > MIN_INNER) {
+                        innerKeys[kb + count] = innerKeys[pkb + index];
+                        innerChildren[cb + count + 1] = innerChildren[right * (B + 1)];
+                        innerKeys[pkb + index] = innerKeys[right * B];
+                        System.arraycopy(innerKeys, right * B + 1, innerKeys, right * B, rc - 1);
+                        System.arraycopy(innerChildren, right * (B + 1) + 1, innerChildren, right * (B + 1), rc);
+                        innerCount[right]--;
+                        innerCount[node]++;
+                        return;
+                    }
+                }
+                //合并：右边的并入左边，父节点的分隔键下移到两者之间
+                int into = index > 0 ? innerChildren[pcb + index - 1] : node;
+                int from = index > 0 ? node : innerChildren[pcb + index + 1];
+                int separatorIndex = index > 0 ? index - 1 : index;
+                int ic = innerCount[into];
+                int fc = innerCount[from];
+                innerKeys[into * B + ic] = innerKeys[pkb + separatorIndex];
+                System.arraycopy(innerKeys, from * B, innerKeys, into * B + ic + 1, fc);
+                System.arraycopy(innerChildren, from * (B + 1), innerChildren, into * (B + 1) + ic + 1, fc + 1);
+                innerCount[into] = ic + 1 + fc;
+                releaseInner(from);
+                depth--;
+                k = separatorIndex;
+            }
+        }
+
+        /**
+         * 按键升序访问[from, to)内的所有项：定位到起始叶子后沿叶子链表顺序扫描
+         */
+        public void range(int from, int to, IntLongVisitor visitor) {
+            int leaf = findLeaf(from);
+            while (leaf >= 0) {
+                int base = leaf * B;
+                int count = leafCount[leaf];
+                for (int i = 0; i < count; i++) {
+                    int k = leafKeys[base + i];
+                    if (k >= to) {
+                        return;
+                    }
+                    if (k >= from) {
+                        visitor.visit(k, leafValues[base + i]);
+                    }
+                }
+                leaf = leafNext[leaf];
+            }
+        }
+
+        private int allocateLeaf() {
+            int leaf;
+            if (leafFree >= 0) {
+                leaf = leafFree;
+                leafFree = leafNext[leaf];
+            } else {
+                if (leafAllocated == leafCount.length) {
+                    int capacity = leafAllocated * 2;
+                    leafKeys = Arrays.copyOf(leafKeys, capacity * B);
+                    leafValues = Arrays.copyOf(leafValues, capacity * B);
+                    leafCount = Arrays.copyOf(leafCount, capacity);
+                    leafNext = Arrays.copyOf(leafNext, capacity);
+                }
+                leaf = leafAllocated++;
+            }
+            leafCount[leaf] = 0;
+            leafNext[leaf] = -1;
+            return leaf;
+        }
+
+        private void releaseLeaf(int leaf) {
+            leafNext[leaf] = leafFree;
+            leafFree = leaf;
+        }
+
+        private int allocateInner() {
+            int node;
+            if (innerFree >= 0) {
+                node = innerFree;
+                innerFree = innerChildren[node * (B + 1)];
+            } else {
+                if (innerAllocated == innerCount.length) {
+                    int capacity = innerAllocated * 2;
+                    innerKeys = Arrays.copyOf(innerKeys, capacity * B);
+                    innerChildren = Arrays.copyOf(innerChildren, capacity * (B + 1));
+                    innerCount = Arrays.copyOf(innerCount, capacity);
+                }
+                node = innerAllocated++;
+            }
+            innerCount[node] = 0;
+            return node;
+        }
+
+        private void releaseInner(int node) {
+            innerChildren[node * (B + 1)] = innerFree;
+            innerFree = node;
+        }
+    }
+
+    /**
+     * 并发的有序int -> long映射：无锁跳表，插入/查找/范围扫描都不加锁
+     * 每个键保存一条版本链（新版本在前），快照按版本号读取，打开快照和迭代都不阻塞写线程
+     *
+     * 版本号：写线程先把版本（版本号待定）CAS到链头，再把版本号定为当时的全局时钟；
+     * 读到待定版本的线程会帮它定下版本号。打开快照时先登记再把时钟加1，之后才定下的版本号都大于快照，
+     * 因此快照看到的正好是打开那一刻之前完成的写入，且先完成的写入版本号不大于后完成的写入
+     *
+     * 删除只在版本链上写入删除标记，节点留在跳表中，同一键再次插入时复用；
+     * 写线程在链上保留最老的活动快照需要的版本，更老的版本断开由GC回收。快照用完必须close
+     */
+    static class ConcurrentIntLongMap {
+        private static final int MAX_LEVEL = 32;
+        private static final VarHandle NEXT = MethodHandles.arrayElementVarHandle(Node[].class);
+        private static final VarHandle VERSION;
+        private static final VarHandle STAMP;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                VERSION = lookup.findVarHandle(Node.class, "version", Version.class);
+                STAMP = lookup.findVarHandle(Version.class, "stamp", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private static final class Version {
+            final long value;
+            final boolean deleted;
+            volatile long stamp; // 0表示待定
+            volatile Version older;
+
+            Version(long value, boolean deleted, Version older) {
+                this.value = value;
+                this.deleted = deleted;
+                this.older = older;
+            }
+        }
+
+        private static final class Node {
+            final int key;
+            final Node[] next;
+            volatile Version version;
+
+            Node(int key, int level, Version version) {
+                this.key = key;
+                this.next = new Node[level];
+                this.version = version;
+            }
+        }
+
+        private final Node head = new Node(0, MAX_LEVEL, null); // 哨兵，键视为负无穷
+        private final AtomicLong clock = new AtomicLong(1);
+        private final LongAdder size = new LongAdder();
+        private final AtomicInteger topLevel = new AtomicInteger(1); // 已用到的最高层数，只读查找从这里开始
+        //活动快照：版本号 -> 个数，只在打开/关闭快照时加锁
+        private final TreeMap<Long, Integer> snapshots = new TreeMap<>();
+        private volatile long horizon = Long.MAX_VALUE; // 最老的活动快照
+
+        /**
+         * 元素个数（并发修改时为近似值）
+         */
+        public long size() {
+            return size.sum();
+        }
+
+        /**
+         * 插入或覆盖
+         * @return true表示键原来不存在
+         */
+        public boolean put(int key, long value) {
+            Node[] preds = new Node[MAX_LEVEL];
+            Node[] succs = new Node[MAX_LEVEL];
+            while (true) {
+                Node found = find(key, preds, succs);
+                if (found != null) {
+                    return install(found, value, false);
+                }
+                //1.新节点先在第0层链入，链入成功即插入完成
+                int level = randomLevel();
+                Version version = new Version(value, false, null);
+                Node node = new Node(key, level, version);
+                for (int i = 0; i < level; i++) {
+                    node.next[i] = succs[i];
+                }
+                if (!NEXT.compareAndSet(preds[0].next, 0, succs[0], node)) {
+                    continue; //前驱已变化，重新查找
+                }
+                stamp(version);
+                size.increment();
+                //2.再逐层链入上面各层（只影响查找速度）
+                for (int i = 1; i < level; i++) {
+                    while (!NEXT.compareAndSet(preds[i].next, i, succs[i], node)) {
+                        find(key, preds, succs);
+                        node.next[i] = succs[i];
+                    }
+                }
+                topLevel.accumulateAndGet(level, Math::max);
+                return true;
+            }
+        }
+
+        /**
+         * 删除（写入删除标记）
+         * @return 键原来是否存在
+         */
+        public boolean remove(int key) {
+            Node node = findNode(key);
+            return node != null && install(node, 0, true);
+        }
+
+        /**
+         * 查找最新的值
+         * @param missing 键不存在时的返回值
+         */
+        public long get(int key, long missing) {
+            Node node = findNode(key);
+            Version v = node == null ? null : latest(node);
+            return v == null || v.deleted ? missing : v.value;
+        }
+
+        public boolean containsKey(int key) {
+            Node node = findNode(key);
+            return node != null && !latest(node).deleted;
+        }
+
+        /**
+         * 按键升序访问[from, to)内的最新值（弱一致：扫描期间的并发写入可能看到也可能看不到）
+         */
+        public void range(int from, int to, IntLongVisitor visitor) {
+            for (Node node = ceiling(from); node != null && node.key < to; node = next(node, 0)) {
+                Version v = latest(node);
+                if (!v.deleted) {
+                    visitor.visit(node.key, v.value);
+                }
+            }
+        }
+
+        /**
+         * 打开快照：之后的读取只看到此刻之前完成的写入
+         */
+        public Snapshot snapshot() {
+            synchronized (snapshots) {
+                long s = clock.get();
+                snapshots.merge(s, 1, Integer::sum);
+                horizon = snapshots.firstKey();
+                clock.incrementAndGet(); //先登记再推进时钟，写线程读到新时钟时一定能看到这个快照
+                return new Snapshot(s);
+            }
+        }
+
+        /**
+         * 一致的只读快照，多个线程可以同时读取
+         * 关闭后写线程不再为它保留旧版本，之后的读取（包括已打开的Cursor）抛出IllegalStateException
+         */
+        class Snapshot implements AutoCloseable {
+            private final long stamp;
+            private volatile boolean closed;
+
+            Snapshot(long stamp) {
+                this.stamp = stamp;
+            }
+
+            public long get(int key, long missing) {
+                checkOpen();
+                Node node = findNode(key);
+                Version v = node == null ? null : visible(node, stamp);
+                checkOpen(); //读取期间被关闭时，读到的版本链可能已被截断
+                return v == null || v.deleted ? missing : v.value;
+            }
+
+            /**
+             * 按键升序访问快照中[from, to)内的项
+             */
+            public void range(int from, int to, IntLongVisitor visitor) {
+                Cursor cursor = cursor(from);
+                while (cursor.next() && cursor.key() < to) {
+                    visitor.visit(cursor.key(), cursor.value());
+                }
+            }
+
+            /**
+             * 从第一个不小于from的键开始迭代
+             */
+            public Cursor cursor(int from) {
+                checkOpen();
+                return new Cursor(ceiling(from), this);
+            }
+
+            private void checkOpen() {
+                if (closed) {
+                    throw new IllegalStateException("快照已关闭");
+                }
+            }
+
+            @Override
+            public void close() {
+                synchronized (snapshots) {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    if (snapshots.merge(stamp, -1, Integer::sum) == 0) {
+                        snapshots.remove(stamp);
+                    }
+                    horizon = snapshots.isEmpty() ? Long.MAX_VALUE : snapshots.firstKey();
+                }
+            }
+        }
+
+        /**
+         * 快照迭代器：next()前进到下一个在快照中存在的键
+         */
+        class Cursor {
+            private Node node;
+            private final Snapshot snapshot;
+            private Node current;
+            private long value;
+
+            Cursor(Node first, Snapshot snapshot) {
+                this.node = first;
+                this.snapshot = snapshot;
+            }
+
+            public boolean next() {
+                snapshot.checkOpen();
+                while (node != null) {
+                    Node candidate = node;
+                    node = ConcurrentIntLongMap.this.next(candidate, 0);
+                    Version v = visible(candidate, snapshot.stamp);
+                    if (v != null && !v.deleted) {
+                        snapshot.checkOpen();
+                        current = candidate;
+                        value = v.value;
+                        return true;
+                    }
+                }
+                current = null;
+                return false;
+            }
+
+            public int key() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                return current.key;
+            }
+
+            public long value() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                return value;
+            }
+        }
+
+        // 在节点上CAS一个新版本；删除时若当前已是删除标记则返回false
+        private boolean install(Node node, long value, boolean deleted) {
+            while (true) {
+                Version current = latest(node);
+                if (deleted && current.deleted) {
+                    return false;
+                }
+                Version version = new Version(value, deleted, current);
+                if (VERSION.compareAndSet(node, current, version)) {
+                    long s = stamp(version);
+                    trim(version, s);
+                    if (deleted) {
+                        size.decrement();
+                    } else if (current.deleted) {
+                        size.increment();
+                    }
+                    return deleted || current.deleted;
+                }
+            }
+        }
+
+        // 最新版本（版本号待定时帮它定下，保证链上版本号自新到旧不增）
+        private Version latest(Node node) {
+            Version v = node.version;
+            stamp(v);
+            return v;
+        }
+
+        // 快照stamp可见的最新版本，没有返回null
+        private Version visible(Node node, long s) {
+            for (Version v = node.version; v != null; v = v.older) {
+                if (stamp(v) <= s) {
+                    return v;
+                }
+            }
+            return null;
+        }
+
+        private long stamp(Version v) {
+            long s = v.stamp;
+            if (s == 0) {
+                STAMP.compareAndSet(v, 0L, clock.get());
+                s = v.stamp;
+            }
+            return s;
+        }
+
+        // 新版本定号后：保留最老的活动快照可见的那个版本，断开更老的版本
+        private void trim(Version version, long s) {
+            long h = horizon;
+            if (h >= s) {
+                version.older = null; //没有早于本版本的快照
+                return;
+            }
+            for (Version v = version.older; v != null; v = v.older) {
+                if (v.stamp <= h) {
+                    v.older = null;
+                    return;
+                }
+            }
+        }
+
+        private Node next(Node node, int level) {
+            return (Node) NEXT.getAcquire(node.next, level);
+        }
+
+        // 查找各层中key的前驱与后继，返回键等于key的节点（扫描所有层，不依赖topLevel是否已更新）
+        private Node find(int key, Node[] preds, Node[] succs) {
+            Node pred = head;
+            for (int i = MAX_LEVEL - 1; i >= 0; i--) {
+                Node cur = next(pred, i);
+                while (cur != null && cur.key < key) {
+                    pred = cur;
+                    cur = next(pred, i);
+                }
+                preds[i] = pred;
+                succs[i] = cur;
+            }
+            Node found = succs[0];
+            return found != null && found.key == key ? found : null;
+        }
+
+        // 第一个键不小于key的节点（不分配数组）
+        private Node ceiling(int key) {
+            Node pred = head;
+            Node cur = null;
+            for (int i = topLevel.get() - 1; i >= 0; i--) {
+                cur = next(pred, i);
+                while (cur != null && cur.key < key) {
+                    pred = cur;
+                    cur = next(pred, i);
+                }
+            }
+            return cur;
+        }
+
+        private Node findNode(int key) {
+            Node node = ceiling(key);
+            return node != null && node.key == key ? node : null;
+        }
+
+        // 层数服从p=1/2的几何分布
+        private static int randomLevel() {
+            int r = ThreadLocalRandom.current().nextInt();
+            return Math.min(MAX_LEVEL, Integer.numberOfTrailingZeros(r) + 1);
+        }
+    }
+
+    static class HuffmanNode implements Comparable<HuffmanNode> {
+        long weight; // 节点权重（关键：用于排序选择最小节点；用long避免合并后溢出）
+        HuffmanNode left;  // 左子树
+        HuffmanNode right; // 右子树
+
+        // 构造器：初始化单节点树（无左右子树）
+        public HuffmanNode(long weight) {
+            this.weight = weight;
+            this.left = null;
+            this.right = null;
+        }
+
+        // 实现Comparable接口：按权重升序排序（方便选择最小节点）
+        @Override
         public int compareTo(HuffmanNode o) {
-            return this.weight - o.weight;
+            return Long.compare(this.weight, o.weight); //相减在权重很大时会溢出
+        }
+    }
+
+    /**
+     * 数组形式的哈夫曼树：节点0~n-1为叶子（叶子i对应输入的第i个权重），n~2n-2为内部节点，根为2n-2
+     * 孩子的编号总是小于父节点，按编号顺序处理即可自底向上
+     */
+    static class HuffmanArrayTree {
+        final int leafCount; // 叶子数n
+        final long[] weight; // 每个节点的权重
+        final int[] left;    // 内部节点node的左孩子为left[node - n]
+        final int[] right;   // 内部节点node的右孩子为right[node - n]
+
+        HuffmanArrayTree(int leafCount, long[] weight, int[] left, int[] right) {
+            this.leafCount = leafCount;
+            this.weight = weight;
+            this.left = left;
+            this.right = right;
+        }
+
+        public int root() {
+            return weight.length - 1;
+        }
+
+        public boolean isLeaf(int node) {
+            return node < leafCount;
+        }
+
+        /**
+         * 带权路径长度：每次合并的权重都会在其下所有叶子的路径上多算一层，所以等于所有内部节点的权重之和
+         */
+        public long weightedPathLength() {
+            long sum = 0;
+            for (int node = leafCount; node < weight.length; node++) {
+                sum += weight[node];
+            }
+            return sum;
+        }
+
+        /**
+         * 转换为HuffmanNode树（按编号顺序创建节点，不使用递归）
+         */
+        public HuffmanNode toNode() {
+            HuffmanNode[] nodes = new HuffmanNode[weight.length];
+            for (int node = 0; node < weight.length; node++) {
+                nodes[node] = new HuffmanNode(weight[node]);
+                if (!isLeaf(node)) {
+                    nodes[node].left = nodes[left[node - leafCount]];
+                    nodes[node].right = nodes[right[node - leafCount]];
+                }
+            }
+            return nodes[root()];
         }
     }
 
     public class HuffmanTree{
         public static HuffmanNode buildHuffmanTree(int[] weights){
-            //1.将给出的权重值转为单节点
-            List<HuffmanNode> list = new ArrayList<>();
-            for (int weight : weights) {
-                if(weight < 0){
+            //1.检查权重并转为long
+            long[] longWeights = new long[weights.length];
+            for (int i = 0; i < weights.length; i++) {
+                if(weights[i] < 0){
                     throw new RuntimeException("权重为负");
                 }
-                list.add(new HuffmanNode(weight));
+                longWeights[i] = weights[i];
             }
             //2.处理边界条件
-            if(list.isEmpty()){
+            if(longWeights.length == 0){
+                return null;
+            }
+
+            //3.用小根堆构造，再转换为节点
+            return buildWithHeap(longWeights).toNode();
+        }
+
+        /**
+         * 小根堆构造哈夫曼树，O(n log n)
+         * 堆中只存节点编号，按(权重, 编号)比较，结果是确定的
+         * @param weights 各叶子的权重（非负）
+         * @return 数组形式的哈夫曼树，weights为空时返回null
+         */
+        public static HuffmanArrayTree buildWithHeap(long[] weights){
+            int n = weights.length;
+            if(n == 0){
+                return null;
+            }
+            long[] weight = new long[2 * n - 1];
+            for (int i = 0; i < n; i++) {
+                if(weights[i] < 0){
+                    throw new RuntimeException("权重为负");
+                }
+                weight[i] = weights[i];
+            }
+            int[] left = new int[n - 1];
+            int[] right = new int[n - 1];
+
+            //1.所有叶子建堆
+            int[] heap = new int[n];
+            for (int i = 0; i < n; i++) {
+                heap[i] = i;
+            }
+            for (int i = n / 2 - 1; i >= 0; i--) {
+                siftDown(heap, n, i, weight);
+            }
+
+            //2.每次取出最小的两个节点合并，新节点放回堆中
+            int size = n;
+            for (int node = n; node < 2 * n - 1; node++) {
+                int a = heap[0];
+                heap[0] = heap[--size];
+                siftDown(heap, size, 0, weight);
+                int b = heap[0];
+
+                weight[node] = Math.addExact(weight[a], weight[b]);
+                left[node - n] = a;
+                right[node - n] = b;
+                heap[0] = node; //新节点直接替换堆顶再下沉，省一次上浮
+                siftDown(heap, size, 0, weight);
+            }
+            return new HuffmanArrayTree(n, weight, left, right);
+        }
+
+        /**
+         * 双队列构造哈夫曼树，O(n)：权重已按升序排好时，合并产生的内部节点权重也是非降的，
+         * 因此叶子队列和内部节点队列都天然有序，每次从两个队头中取较小者即可
+         * @param sortedWeights 升序排列的权重（非负）
+         * @return 数组形式的哈夫曼树（叶子i对应sortedWeights[i]），sortedWeights为空时返回null
+         */
+        public static HuffmanArrayTree buildTwoQueue(long[] sortedWeights){
+            int n = sortedWeights.length;
+            if(n == 0){
                 return null;
             }
-            if(list.size() == 1){
-                return list.get(0);
+            long[] weight = new long[2 * n - 1];
+            for (int i = 0; i < n; i++) {
+                if(sortedWeights[i] < 0){
+                    throw new RuntimeException("权重为负");
+                }
+                if(i > 0 && sortedWeights[i] < sortedWeights[i - 1]){
+                    throw new IllegalArgumentException("权重未按升序排列");
+                }
+                weight[i] = sortedWeights[i];
+            }
+            int[] left = new int[n - 1];
+            int[] right = new int[n - 1];
+
+            int leafHead = 0;     // 叶子队列：[leafHead, n)
+            int internalHead = n; // 内部节点队列：[internalHead, node)
+            for (int node = n; node < 2 * n - 1; node++) {
+                int a;
+                if(leafHead < n && (internalHead == node || weight[leafHead] <= weight[internalHead])){
+                    a = leafHead++;
+                }else{
+                    a = internalHead++;
+                }
+                int b;
+                if(leafHead < n && (internalHead == node || weight[leafHead] <= weight[internalHead])){
+                    b = leafHead++;
+                }else{
+                    b = internalHead++;
+                }
+                weight[node] = Math.addExact(weight[a], weight[b]);
+                left[node - n] = a;
+                right[node - n] = b;
+            }
+            return new HuffmanArrayTree(n, weight, left, right);
+        }
+
+        // 下沉：按(权重, 编号)维护小根堆
+        private static void siftDown(int[] heap, int size, int i, long[] weight){
+            int node = heap[i];
+            int half = size >>> 1;
+            while(i < half){
+                int child = 2 * i + 1;
+                if(child + 1 < size && less(heap[child + 1], heap[child], weight)){
+                    child++;
+                }
+                if(!less(heap[child], node, weight)){
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = node;
+        }
+
+        private static boolean less(int a, int b, long[] weight){
+            return weight[a] < weight[b] || (weight[a] == weight[b] && a < b);
+        }
+    }
+
+    /**
+     * 范式哈夫曼编码：只需各符号的码长即可确定编码（同码长的符号按符号值依次编号），解码端不需要树结构
+     * 编码按高位在前写入；解码用查表：一级表按接下来的TABLE_BITS位查找，一次最多得到3个符号，
+     * 更长的码字转到二级表
+     */
+    static class CanonicalHuffman {
+        static final int MAX_CODE_LENGTH = 24; // 码长上限（保证64位缓冲中一次补充后足够解码任意码字）
+        static final int TABLE_BITS = 11;      // 一级解码表的索引位数
+        private static final int SYMBOLS_PER_ENTRY = 3;
+
+        final int[] lengths; // 每个符号的码长，0表示不出现
+        final int[] codes;   // 每个符号的码字（低lengths[s]位有效）
+
+        private CanonicalHuffman(int[] lengths, int[] codes) {
+            this.lengths = lengths;
+            this.codes = codes;
+        }
+
+        /**
+         * 按频率构造码长不超过maxLength的最优编码
+         * @param freqs 各符号的频率，0表示不出现
+         * @param maxLength 码长上限（不超过MAX_CODE_LENGTH，且2^maxLength不小于出现的符号数）
+         */
+        public static CanonicalHuffman fromFrequencies(long[] freqs, int maxLength) {
+            return fromLengths(codeLengths(freqs, maxLength));
+        }
+
+        /**
+         * 由码长构造范式编码（解码端读出码长后调用）
+         */
+        public static CanonicalHuffman fromLengths(int[] lengths) {
+            //1.统计各码长的符号数并检查Kraft不等式
+            int[] count = new int[MAX_CODE_LENGTH + 1];
+            for (int len : lengths) {
+                if (len < 0 || len > MAX_CODE_LENGTH) {
+                    throw new IllegalArgumentException("码长超出范围");
+                }
+                count[len]++;
+            }
+            count[0] = 0;
+            long kraft = 0;
+            for (int len = 1; len <= MAX_CODE_LENGTH; len++) {
+                kraft += (long) count[len] << (MAX_CODE_LENGTH - len);
+            }
+            if (kraft > 1L << MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("码长不满足Kraft不等式");
+            }
+
+            //2.每个码长的第一个码字 = (上一码长的第一个码字 + 上一码长的符号数) << 1
+            int[] next = new int[MAX_CODE_LENGTH + 1];
+            int code = 0;
+            for (int len = 1; len <= MAX_CODE_LENGTH; len++) {
+                code = (code + count[len - 1]) << 1;
+                next[len] = code;
+            }
+            int[] codes = new int[lengths.length];
+            for (int s = 0; s < lengths.length; s++) {
+                if (lengths[s] > 0) {
+                    codes[s] = next[lengths[s]]++;
+                }
+            }
+            return new CanonicalHuffman(lengths.clone(), codes);
+        }
+
+        /**
+         * 计算码长：先用HuffmanTree.buildTwoQueue（按(频率, 符号)升序排好后线性合并）求最优码长，超过上限时改用package-merge算法求限长最优码长
+         * 只出现一个符号时码长为1
+         */
+        public static int[] codeLengths(long[] freqs, int maxLength) {
+            if (maxLength <= 0 || maxLength > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("码长上限超出范围");
+            }
+            int[] lengths = new int[freqs.length];
+            //1.只保留出现的符号，按(频率, 符号)升序
+            int m = 0;
+            for (long f : freqs) {
+                if (f < 0) {
+                    throw new RuntimeException("权重为负");
+                }
+                if (f > 0) {
+                    m++;
+                }
+            }
+            if (m == 0) {
+                return lengths;
             }
+            if (m > 1L << maxLength) {
+                throw new IllegalArgumentException("码长上限过小，无法容纳所有符号");
+            }
+            long[] keys = new long[m];
+            int k = 0;
+            for (int s = 0; s < freqs.length; s++) {
+                if (freqs[s] > 0) {
+                    keys[k++] = s;
+                }
+            }
+            int[] symbols = new int[m];
+            long[] weights = new long[m];
+            Integer[] order = new Integer[m];
+            for (int i = 0; i < m; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> freqs[(int) keys[a]] != freqs[(int) keys[b]]
+                    ? Long.compare(freqs[(int) keys[a]], freqs[(int) keys[b]]) : Long.compare(keys[a], keys[b]));
+            for (int i = 0; i < m; i++) {
+                symbols[i] = (int) keys[order[i]];
+                weights[i] = freqs[symbols[i]];
+            }
+            if (m == 1) {
+                lengths[symbols[0]] = 1;
+                return lengths;
+            }
+
+            //2.不限长的最优码长：叶子深度（孩子编号小于父节点，从根往下推）
+            HuffmanArrayTree tree = HuffmanTree.buildTwoQueue(weights);
+            int[] depth = new int[tree.weight.length];
+            int maxDepth = 0;
+            for (int node = tree.root(); node >= m; node--) {
+                int d = depth[node] + 1;
+                depth[tree.left[node - m]] = d;
+                depth[tree.right[node - m]] = d;
+                maxDepth = Math.max(maxDepth, d);
+            }
+            if (maxDepth <= maxLength) {
+                for (int i = 0; i < m; i++) {
+                    lengths[symbols[i]] = depth[i];
+                }
+                return lengths;
+            }
+
+            //3.package-merge：从最深一层开始，每层 = 叶子 与 上一层两两打包 归并
+            long[][] levelWeights = new long[maxLength][];
+            int[][] levelLeaf = new int[maxLength][]; // 叶子项记录叶子下标，打包项为-1
+            levelWeights[0] = weights.clone();
+            levelLeaf[0] = new int[m];
+            for (int i = 0; i < m; i++) {
+                levelLeaf[0][i] = i;
+            }
+            for (int level = 1; level < maxLength; level++) {
+                long[] prev = levelWeights[level - 1];
+                int packages = prev.length / 2;
+                long[] w = new long[m + packages];
+                int[] leaf = new int[m + packages];
+                int i = 0;
+                int p = 0;
+                for (int out = 0; out < w.length; out++) {
+                    long packaged = p < packages ? prev[2 * p] + prev[2 * p + 1] : Long.MAX_VALUE;
+                    if (i < m && weights[i] <= packaged) {
+                        w[out] = weights[i];
+                        leaf[out] = i++;
+                    } else {
+                        w[out] = packaged;
+                        leaf[out] = -1;
+                        p++;
+                    }
+                }
+                levelWeights[level] = w;
+                levelLeaf[level] = leaf;
+            }
+            //取最浅一层的前2m-2项；每层被选中的叶子码长加1，被选中的打包项数决定下一层取多少项
+            int take = 2 * m - 2;
+            int[] len = new int[m];
+            for (int level = maxLength - 1; level >= 0 && take > 0; level--) {
+                int packages = 0;
+                for (int i = 0; i < take; i++) {
+                    int leaf = levelLeaf[level][i];
+                    if (leaf >= 0) {
+                        len[leaf]++;
+                    } else {
+                        packages++;
+                    }
+                }
+                take = 2 * packages;
+            }
+            for (int i = 0; i < m; i++) {
+                lengths[symbols[i]] = len[i];
+            }
+            return lengths;
+        }
 
-            //3.循环处理节点
-           while(list.size() > 1){
-               Collections.sort(list);
-               HuffmanNode left = list.remove(0);
-               HuffmanNode right = list.remove(0);
+        /**
+         * 统计字节频率
+         */
+        public static long[] histogram(byte[] data, int off, int len) {
+            long[] freqs = new long[256];
+            for (int i = off; i < off + len; i++) {
+                freqs[data[i] & 0xFF]++;
+            }
+            return freqs;
+        }
 
-               HuffmanNode parent = new HuffmanNode(left.weight + right.weight);
+        /**
+         * 编码一段字节写入ByteBuffer（末尾补0对齐到字节）
+         * @return 写入的字节数
+         */
+        public int encode(byte[] data, int off, int len, ByteBuffer out) {
+            int start = out.position();
+            BitWriter writer = new BitWriter(out);
+            encode(data, off, len, writer);
+            writer.flush();
+            return out.position() - start;
+        }
 
-               parent.left = left;
-               parent.right = right;
+        /**
+         * 编码一段字节写入输出流（末尾补0对齐到字节）
+         */
+        public void encode(byte[] data, int off, int len, OutputStream out) throws IOException {
+            ByteBuffer staging = ByteBuffer.allocate(1 << 16);
+            BitWriter writer = new BitWriter(staging);
+            int end = off + len;
+            //每批编码的字节保证写入不会超出暂存区（每个符号最多MAX_CODE_LENGTH位）
+            int batch = (staging.capacity() - 8) * 8 / MAX_CODE_LENGTH;
+            for (int i = off; i < end; i += batch) {
+                encode(data, i, Math.min(batch, end - i), writer);
+                out.write(staging.array(), 0, staging.position());
+                staging.clear();
+            }
+            writer.flush();
+            out.write(staging.array(), 0, staging.position());
+        }
 
-               list.add(parent);
-           }
+        private void encode(byte[] data, int off, int len, BitWriter writer) {
+            for (int i = off; i < off + len; i++) {
+                int s = data[i] & 0xFF;
+                if (s >= lengths.length || lengths[s] == 0) {
+                    throw new IllegalArgumentException("符号" + s + "没有编码");
+                }
+                writer.write(codes[s], lengths[s]);
+            }
+        }
 
+        /**
+         * 编码后的位数
+         */
+        public long encodedBits(long[] freqs) {
+            long bits = 0;
+            for (int s = 0; s < freqs.length; s++) {
+                bits += freqs[s] * (s < lengths.length ? lengths[s] : 0);
+            }
+            return bits;
+        }
 
-            //4.剩下的节点即为根节点
-            return list.get(0);
+        /**
+         * 构造解码表（只读，可被多个线程共享）
+         */
+        public Decoder decoder() {
+            return new Decoder(this);
         }
 
+        /**
+         * 64位缓冲的位写入器：码字高位在前，攒满32位写一个int
+         */
+        private static class BitWriter {
+            private final ByteBuffer out;
+            private long acc;  // 低bits位为待写出的位
+            private int bits;
+
+            BitWriter(ByteBuffer out) {
+                this.out = out;
+            }
+
+            void write(int code, int length) {
+                acc = (acc << length) | code;
+                bits += length;
+                if (bits >= 32) {
+                    bits -= 32;
+                    out.putInt((int) (acc >>> bits)); //ByteBuffer默认大端，高位在前
+                }
+            }
+
+            // 写出剩余的位，最后一个字节低位补0
+            void flush() {
+                while (bits >= 8) {
+                    bits -= 8;
+                    out.put((byte) (acc >>> bits));
+                }
+                if (bits > 0) {
+                    out.put((byte) (acc << (8 - bits)));
+                    bits = 0;
+                }
+            }
+        }
+
+        /**
+         * 查表解码器
+         * 表项（long）：低6位为消耗的位数，6~7位为符号数（0表示转二级表），之后每16位一个符号；
+         * 转二级表时8~12位为二级表的索引位数，16~47位为二级表的起始位置
+         */
+        static class Decoder {
+            private final int[] lengths;
+            private final long[] primary = new long[1 << TABLE_BITS];
+            private final long[] secondary;
+
+            Decoder(CanonicalHuffman code) {
+                this.lengths = code.lengths;
+                int[] lengths = code.lengths;
+                int[] codes = code.codes;
+                if (lengths.length > 1 << 16) {
+                    throw new IllegalArgumentException("符号数超过65536");
+                }
+
+                //1.单符号表：TABLE_BITS位前缀 -> (符号, 码长)，只含不超过TABLE_BITS的码字
+                int size = 1 << TABLE_BITS;
+                int[] singleSymbol = new int[size];
+                int[] singleLength = new int[size];
+                int[] subBits = new int[size]; // 需要二级表的前缀对应的二级索引位数
+                for (int s = 0; s < lengths.length; s++) {
+                    int len = lengths[s];
+                    if (len == 0) {
+                        continue;
+                    }
+                    if (len <= TABLE_BITS) {
+                        int first = codes[s] << (TABLE_BITS - len);
+                        for (int i = first; i < first + (1 << (TABLE_BITS - len)); i++) {
+                            singleSymbol[i] = s;
+                            singleLength[i] = len;
+                        }
+                    } else {
+                        int prefix = codes[s] >>> (len - TABLE_BITS);
+                        subBits[prefix] = Math.max(subBits[prefix], len - TABLE_BITS);
+                    }
+                }
+
+                //2.一级表：从前缀开始贪心地连续解出最多3个完整的码字
+                int subSize = 0;
+                for (int prefix = 0; prefix < size; prefix++) {
+                    if (subBits[prefix] > 0) {
+                        primary[prefix] = (long) subSize << 16 | (long) subBits[prefix] << 8 | TABLE_BITS;
+                        subSize += 1 << subBits[prefix];
+                        continue;
+                    }
+                    long entry = 0;
+                    int used = 0;
+                    int count = 0;
+                    while (count < SYMBOLS_PER_ENTRY) {
+                        int index = (prefix << used) & (size - 1); //剩余的位移到高位，低位补0
+                        int len = singleLength[index];
+                        if (len == 0 || len > TABLE_BITS - used) {
+                            break;
+                        }
+                        entry |= (long) singleSymbol[index] << (16 * (count + 1));
+                        used += len;
+                        count++;
+                    }
+                    primary[prefix] = count == 0 ? 0 : entry | (long) count << 6 | used;
+                }
+
+                //3.二级表：前缀之后的subBits位 -> (符号, 码长 - TABLE_BITS)
+                secondary = new long[subSize];
+                for (int s = 0; s < lengths.length; s++) {
+                    int len = lengths[s];
+                    if (len <= TABLE_BITS) {
+                        continue;
+                    }
+                    int prefix = codes[s] >>> (len - TABLE_BITS);
+                    int bits = subBits[prefix];
+                    int rest = len - TABLE_BITS;
+                    int first = (int) (primary[prefix] >>> 16) + ((codes[s] & ((1 << rest) - 1)) << (bits - rest));
+                    for (int i = first; i < first + (1 << (bits - rest)); i++) {
+                        secondary[i] = (long) s << 16 | 1L << 6 | rest;
+                    }
+                }
+            }
+
+            /**
+             * 从in中解码len个字节符号写入out；结束后in的位置在最后一个用到的字节之后
+             * 输入在解出len个符号之前用完时抛出IllegalArgumentException
+             */
+            public void decode(ByteBuffer in, byte[] out, int off, int len) {
+                long buf = 0;   // 左对齐的位缓冲
+                int avail = 0;  // buf中的有效位数（含补的0）
+                int padded = 0; // 输入读完后补的0位数
+                int end = off + len;
+                int o = off;
+                while (o < end) {
+                    //1.补充到至少32位（码字最长24位）
+                    if (avail <= 32) {
+                        if (padded > avail) {
+                            throw new IllegalArgumentException("编码数据不完整");
+                        }
+                        if (in.remaining() >= 4) {
+                            buf |= (in.getInt() & 0xFFFFFFFFL) << (32 - avail);
+                            avail += 32;
+                        } else {
+                            while (avail <= 56) {
+                                if (in.hasRemaining()) {
+                                    buf |= (in.get() & 0xFFL) << (56 - avail);
+                                } else {
+                                    padded += 8;
+                                }
+                                avail += 8;
+                            }
+                        }
+                    }
+                    //2.查一级表
+                    long entry = primary[(int) (buf >>> (64 - TABLE_BITS))];
+                    int count = (int) (entry >>> 6) & 3;
+                    int used;
+                    if (count == 0) {
+                        if (entry == 0) {
+                            throw new IllegalArgumentException("编码数据无效");
+                        }
+                        int bits = (int) (entry >>> 8) & 31;
+                        long sub = secondary[(int) (entry >>> 16) + (int) ((buf << TABLE_BITS) >>> (64 - bits))];
+                        if (sub == 0) {
+                            throw new IllegalArgumentException("编码数据无效");
+                        }
+                        out[o++] = (byte) (sub >>> 16);
+                        used = TABLE_BITS + (int) (sub & 63);
+                    } else if (end - o >= SYMBOLS_PER_ENTRY) {
+                        //空间足够时3个符号位置都写，只前移count个，省去按count分支
+                        out[o] = (byte) (entry >>> 16);
+                        out[o + 1] = (byte) (entry >>> 32);
+                        out[o + 2] = (byte) (entry >>> 48);
+                        o += count;
+                        used = (int) (entry & 63);
+                    } else {
+                        //接近结尾时只取第一个符号，避免多解出不属于本段的符号
+                        int s = (int) (entry >>> 16) & 0xFFFF;
+                        out[o++] = (byte) s;
+                        used = lengths[s];
+                    }
+                    buf <<= used;
+                    avail -= used;
+                }
+                //3.用到了补的0位说明输入被截断；把预读但未用到的整字节退回
+                if (padded > avail) {
+                    throw new IllegalArgumentException("编码数据不完整");
+                }
+                int unread = (avail - padded) / 8;
+                if (unread > 0) {
+                    in.position(in.position() - unread);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分块并行的哈夫曼压缩：输入切成互相独立的块，并行统计频率、构造范式编码并编码，
+     * 写成带索引的容器，可以随机解压任意一块，也可以并行解压全部
+     *
+     * 容器格式（大端）：
+     * 头部：魔数、块大小、原始长度、块数、是否共享编码
+     * 共享编码时：256个码长字节
+     * 索引：每块一项（块数据在容器中的偏移、块数据长度、是否原样存储）
+     * 块数据：不共享编码时先是本块256个码长字节，之后是编码数据；压缩后不更小的块原样存储
+     */
+    static class HuffmanBlockCodec {
+        static final int MAGIC = 0x48554642; // "HUFB"
+        static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+        static final int MAX_CODE_LENGTH = 15;
+        private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 1;
+        private static final int INDEX_ENTRY_BYTES = 8 + 4 + 1;
+
+        /**
+         * 压缩为字节数组
+         * @param blockSize 块大小
+         * @param sharedCode true所有块共用一套编码（按全局频率），false每块单独编码
+         */
+        public static byte[] compress(byte[] data, int blockSize, boolean sharedCode) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                compress(data, blockSize, sharedCode, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); //写内存不会出错
+            }
+            return out.toByteArray();
+        }
+
+        /**
+         * 压缩写入输出流
+         */
+        public static void compress(byte[] data, int blockSize, boolean sharedCode, OutputStream out) throws IOException {
+            if (blockSize <= 0) {
+                throw new IllegalArgumentException("块大小必须为正");
+            }
+            int blockCount = (int) ((data.length + (long) blockSize - 1) / blockSize);
+
+            //1.并行统计每块的频率
+            long[][] histograms = new long[blockCount][];
+            IntStream.range(0, blockCount).parallel().forEach(b -> {
+                int start = b * blockSize;
+                histograms[b] = CanonicalHuffman.histogram(data, start, Math.min(blockSize, data.length - start));
+            });
+
+            //2.构造编码：共享时合并频率只构造一次
+            CanonicalHuffman shared = null;
+            if (sharedCode && blockCount > 0) {
+                long[] total = new long[256];
+                for (long[] h : histograms) {
+                    for (int s = 0; s < 256; s++) {
+                        total[s] += h[s];
+                    }
+                }
+                shared = CanonicalHuffman.fromFrequencies(total, MAX_CODE_LENGTH);
+            }
+
+            //3.并行编码各块，编码后不更小的块原样存储
+            CanonicalHuffman sharedCodec = shared;
+            byte[][] blocks = new byte[blockCount][];
+            boolean[] stored = new boolean[blockCount];
+            IntStream.range(0, blockCount).parallel().forEach(b -> {
+                int start = b * blockSize;
+                int length = Math.min(blockSize, data.length - start);
+                CanonicalHuffman codec = sharedCodec != null
+                        ? sharedCodec : CanonicalHuffman.fromFrequencies(histograms[b], MAX_CODE_LENGTH);
+                int tableBytes = sharedCodec != null ? 0 : 256;
+                long bytes = tableBytes + (codec.encodedBits(histograms[b]) + 7) / 8;
+                if (bytes >= length) {
+                    stored[b] = true;
+                    blocks[b] = Arrays.copyOfRange(data, start, start + length);
+                    return;
+                }
+                ByteBuffer buf = ByteBuffer.allocate((int) bytes);
+                if (sharedCodec == null) {
+                    putLengths(buf, codec);
+                }
+                codec.encode(data, start, length, buf);
+                blocks[b] = buf.array();
+            });
+
+            //4.依次写出头部、编码表、索引和块数据
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            dos.writeInt(MAGIC);
+            dos.writeInt(blockSize);
+            dos.writeLong(data.length);
+            dos.writeInt(blockCount);
+            dos.writeByte(shared != null ? 1 : 0);
+            long offset = HEADER_BYTES + (long) INDEX_ENTRY_BYTES * blockCount;
+            if (shared != null) {
+                ByteBuffer table = ByteBuffer.allocate(256);
+                putLengths(table, shared);
+                dos.write(table.array());
+                offset += 256;
+            }
+            for (int b = 0; b < blockCount; b++) {
+                dos.writeLong(offset);
+                dos.writeInt(blocks[b].length);
+                dos.writeByte(stored[b] ? 1 : 0);
+                offset += blocks[b].length;
+            }
+            for (byte[] block : blocks) {
+                dos.write(block);
+            }
+            dos.flush();
+        }
+
+        private static void putLengths(ByteBuffer buf, CanonicalHuffman codec) {
+            for (int s = 0; s < 256; s++) {
+                buf.put((byte) (s < codec.lengths.length ? codec.lengths[s] : 0));
+            }
+        }
+
+        private static CanonicalHuffman readLengths(ByteBuffer buf, int position) {
+            int[] lengths = new int[256];
+            for (int s = 0; s < 256; s++) {
+                lengths[s] = buf.get(position + s);
+            }
+            return CanonicalHuffman.fromLengths(lengths);
+        }
+
+        /**
+         * 打开容器（只解析头部和索引，块数据按需解压）
+         * @param buf 容器数据，从当前位置开始，可以是内存映射的文件
+         */
+        public static Container open(ByteBuffer buf) {
+            return new Container(buf);
+        }
+
+        /**
+         * 已打开的容器：只读，多个线程可以同时解压不同的块
+         */
+        static class Container {
+            private final ByteBuffer buf;
+            private final int blockSize;
+            private final long length;
+            private final int blockCount;
+            private final int[] offsets;
+            private final int[] sizes;
+            private final boolean[] stored;
+            private final CanonicalHuffman.Decoder shared;
+
+            Container(ByteBuffer source) {
+                this.buf = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+                int base = buf.position();
+                if (buf.remaining() < HEADER_BYTES || buf.getInt(base) != MAGIC) {
+                    throw new IllegalArgumentException("不是哈夫曼分块压缩格式");
+                }
+                blockSize = buf.getInt(base + 4);
+                length = buf.getLong(base + 8);
+                blockCount = buf.getInt(base + 16);
+                boolean sharedCode = buf.get(base + 20) != 0;
+                //1.检查头部：块大小为正，块数与原始长度相符，编码表和索引完整
+                if (blockSize <= 0) {
+                    throw new IllegalArgumentException("块大小必须为正");
+                }
+                if (length < 0 || blockCount < 0 || blockCount != (length + blockSize - 1) / blockSize) {
+                    throw new IllegalArgumentException("块数与原始长度不符");
+                }
+                long dataStart = HEADER_BYTES + (sharedCode ? 256 : 0) + (long) INDEX_ENTRY_BYTES * blockCount;
+                if (dataStart > buf.remaining()) {
+                    throw new IllegalArgumentException("容器数据不完整");
+                }
+                int position = base + HEADER_BYTES;
+                shared = sharedCode ? readLengths(buf, position).decoder() : null;
+                if (sharedCode) {
+                    position += 256;
+                }
+
+                //2.读索引：每块的数据都在索引之后、容器之内，原样存储的块长度等于原始长度
+                offsets = new int[blockCount];
+                sizes = new int[blockCount];
+                stored = new boolean[blockCount];
+                for (int b = 0; b < blockCount; b++) {
+                    long offset = buf.getLong(position);
+                    int size = buf.getInt(position + 8);
+                    stored[b] = buf.get(position + 12) != 0;
+                    if (offset < dataStart || size < 0 || offset > buf.remaining() - size) {
+                        throw new IllegalArgumentException("第" + b + "块的偏移或长度超出范围");
+                    }
+                    if (stored[b] ? size != blockLength(b) : !sharedCode && size < 256) {
+                        throw new IllegalArgumentException("第" + b + "块的长度无效");
+                    }
+                    offsets[b] = (int) (base + offset); //已检查不超过limit，ByteBuffer按int寻址
+                    sizes[b] = size;
+                    position += INDEX_ENTRY_BYTES;
+                }
+            }
+
+            public int getBlockCount() {
+                return blockCount;
+            }
+
+            public int getBlockSize() {
+                return blockSize;
+            }
+
+            /**
+             * 原始数据的总长度
+             */
+            public long getLength() {
+                return length;
+            }
+
+            /**
+             * 原始数据中某个位置所在的块
+             */
+            public int blockOf(long position) {
+                if (position < 0 || position >= length) {
+                    throw new IndexOutOfBoundsException("位置超出范围");
+                }
+                return (int) (position / blockSize);
+            }
+
+            /**
+             * 第b块的原始长度
+             */
+            public int blockLength(int b) {
+                return (int) Math.min(blockSize, length - (long) b * blockSize);
+            }
+
+            /**
+             * 解压第b块
+             */
+            public byte[] readBlock(int b) {
+                if (b < 0 || b >= blockCount) {
+                    throw new IndexOutOfBoundsException("块编号超出范围");
+                }
+                byte[] out = new byte[blockLength(b)];
+                readBlock(b, out, 0);
+                return out;
+            }
+
+            /**
+             * 解压第b块写入dst[off..]
+             */
+            public void readBlock(int b, byte[] dst, int off) {
+                if (b < 0 || b >= blockCount) {
+                    throw new IndexOutOfBoundsException("块编号超出范围");
+                }
+                //每次解压用独立的视图，不改动共享缓冲区的位置
+                ByteBuffer block = buf.duplicate();
+                block.limit(offsets[b] + sizes[b]);
+                block.position(offsets[b]);
+                int rawLength = blockLength(b);
+                if (stored[b]) {
+                    block.get(dst, off, rawLength);
+                    return;
+                }
+                CanonicalHuffman.Decoder decoder = shared;
+                if (decoder == null) {
+                    decoder = readLengths(block, block.position()).decoder();
+                    block.position(block.position() + 256);
+                }
+                decoder.decode(block, dst, off, rawLength);
+            }
+
+            /**
+             * 并行解压全部数据
+             */
+            public byte[] decompress() {
+                if (length > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("数据过大，请按块读取");
+                }
+                byte[] out = new byte[(int) length];
+                IntStream.range(0, blockCount).parallel().forEach(b -> readBlock(b, out, b * blockSize));
+                return out;
+            }
+        }
     }
 
     public class DSU{
@@ -415,6 +3540,12 @@ public class Tree {
 
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("index")) {
+            //有序索引基准测试：java Tree index [键数]
+            indexBenchmark(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+            return;
+        }
+
         // 1. 构建普通二叉树（结构：1→2→4，1→2→5，1→3→6）
         TreeNode root = new TreeNode(1);
         root.left = new TreeNode(2);
@@ -428,6 +3559,16 @@ public class Tree {
         List<Integer> preRes = new ArrayList<>();
         binaryTree.preOrder(root, preRes);
         System.out.println("普通先序遍历：" + preRes); // 预期：[1,2,4,5,3,6]
+        System.out.println("非递归后序遍历：" + Arrays.toString(binaryTree.postOrderArray(root))); // 预期：[4, 5, 2, 6, 3, 1]
+        List<Integer> morrisRes = new ArrayList<>();
+        binaryTree.morrisInOrder(root, morrisRes::add);
+        System.out.println("Morris中序遍历：" + morrisRes); // 预期：[4, 2, 5, 1, 3, 6]
+        ArrayTree arrayTree = ArrayTree.fromNodes(root);
+        System.out.println("数组树层序遍历：" + Arrays.toString(arrayTree.levelOrder())); // 预期：[1, 2, 3, 4, 5, 6]
+        ArrayTree searchTree = ArrayTree.fromSorted(new int[]{1, 3, 5, 7, 9, 11, 13}).vebLayout();
+        System.out.println("vEB布局查找9：" + searchTree.val[searchTree.find(9)]); // 预期：9
+        System.out.println("层边界：" + Arrays.toString(new LevelOrder().traverse(root, v -> { }))); // 预期：[0, 1, 3, 6]
+        System.out.println("空树层序遍历：" + binaryTree.levelOrder(null)); // 预期：[]
 
         // 3. 测试线索二叉树
         Tree tree = new Tree();
@@ -456,6 +3597,12 @@ public class Tree {
         List<Integer> postThreadRes = threadedTree.traversePostorderThreadTree(threadRoot);
         System.out.println("后序线索遍历：" + postThreadRes);
 
+        // 3.4 测试不可变线索树（线索存放在单独数组中，原树不变，迭代器可并发使用）
+        ImmutableThreadedTree immutableTree = ImmutableThreadedTree.of(root);
+        List<Integer> immutableInRes = new ArrayList<>();
+        immutableTree.inOrder().forEachRemaining((IntConsumer) immutableInRes::add);
+        System.out.println("不可变线索树中序遍历：" + immutableInRes); // 预期：[4, 2, 5, 1, 3, 6]
+
         // 4. 测试先序+中序构造二叉树
         int[] preorder = {1,2,4,5,3,6};
         int[] inorder = {4,2,5,1,3,6};
@@ -463,9 +3610,161 @@ public class Tree {
         List<Integer> builtInRes = new ArrayList<>();
         binaryTree.inOrder(builtRoot, builtInRes);
         System.out.println("构造树的中序遍历：" + builtInRes); // 预期：[4,2,5,1,3,6]
+        System.out.println("后序+中序构造树的先序遍历：" + Arrays.toString(binaryTree.preOrderArray(
+                binaryTree.buildTreeFromPostorder(new int[]{4, 5, 2, 6, 3, 1}, inorder)))); // 预期：[1, 2, 4, 5, 3, 6]
+        System.out.println("层序+中序构造树的先序遍历：" + Arrays.toString(binaryTree.preOrderArray(
+                binaryTree.buildTreeFromLevelOrder(new int[]{1, 2, 3, 4, 5, 6}, inorder)))); // 预期：[1, 2, 4, 5, 3, 6]
+
+        // 5. 测试哈夫曼树（权重已升序，两种构造的带权路径长度相同）
+        long[] huffmanWeights = {5, 9, 12, 13, 16, 45};
+        HuffmanNode huffmanRoot = HuffmanTree.buildHuffmanTree(new int[]{45, 13, 12, 16, 9, 5});
+        System.out.println("哈夫曼树根权重：" + huffmanRoot.weight); // 预期：100
+        System.out.println("堆构造带权路径长度：" + HuffmanTree.buildWithHeap(huffmanWeights).weightedPathLength()); // 预期：224
+        System.out.println("双队列构造带权路径长度：" + HuffmanTree.buildTwoQueue(huffmanWeights).weightedPathLength()); // 预期：224
+
+        // 6. 测试范式哈夫曼编解码（码长限制为2时按package-merge重新分配码长）
+        byte[] text = "abracadabra".getBytes();
+        long[] textFreqs = CanonicalHuffman.histogram(text, 0, text.length);
+        CanonicalHuffman codec = CanonicalHuffman.fromFrequencies(textFreqs, 15);
+        ByteBuffer encoded = ByteBuffer.allocate(64);
+        System.out.println("编码字节数：" + codec.encode(text, 0, text.length, encoded)); // 预期：3
+        encoded.flip();
+        byte[] decoded = new byte[text.length];
+        codec.decoder().decode(encoded, decoded, 0, decoded.length);
+        System.out.println("解码结果：" + new String(decoded)); // 预期：abracadabra
+        System.out.println("限长码长：" + Arrays.toString(Arrays.copyOfRange(CanonicalHuffman.codeLengths(huffmanWeights, 3), 0, 6))); // 预期：[3, 3, 3, 3, 2, 2]
+
+        // 7. 测试分块并行压缩（块大小4，共3块，随机读取第2块）
+        byte[] logText = "abracadabra".getBytes();
+        HuffmanBlockCodec.Container container = HuffmanBlockCodec.open(ByteBuffer.wrap(HuffmanBlockCodec.compress(logText, 4, true)));
+        System.out.println("块数：" + container.getBlockCount()); // 预期：3
+        System.out.println("第2块：" + new String(container.readBlock(1))); // 预期：cada
+        System.out.println("全部解压：" + new String(container.decompress())); // 预期：abracadabra
+
+        // 8. 测试AVL树与B+树（插入0..99后删除偶数，查询[10, 20)）
+        IntAvlTree avl = new IntAvlTree();
+        IntBPlusTree bPlusTree = new IntBPlusTree();
+        for (int k = 0; k < 100; k++) {
+            avl.put(k, k * 10L);
+            bPlusTree.put(k, k * 10L);
+        }
+        for (int k = 0; k < 100; k += 2) {
+            avl.remove(k);
+            bPlusTree.remove(k);
+        }
+        List<Integer> avlRange = new ArrayList<>();
+        avl.range(10, 20, (k, v) -> avlRange.add(k));
+        List<Integer> bPlusRange = new ArrayList<>();
+        bPlusTree.range(10, 20, (k, v) -> bPlusRange.add(k));
+        System.out.println("AVL树范围查询：" + avlRange + "，大小：" + avl.size()); // 预期：[11, 13, 15, 17, 19]，大小：50
+        System.out.println("B+树范围查询：" + bPlusRange + "，查找37：" + bPlusTree.get(37, -1)); // 预期：[11, 13, 15, 17, 19]，查找37：370
+
+        // 9. 测试并发有序映射的快照（快照打开后的写入对快照不可见）
+        ConcurrentIntLongMap concurrentMap = new ConcurrentIntLongMap();
+        for (int k = 1; k <= 5; k++) {
+            concurrentMap.put(k, k * 100L);
+        }
+        try (ConcurrentIntLongMap.Snapshot snapshot = concurrentMap.snapshot()) {
+            concurrentMap.remove(2);
+            concurrentMap.put(3, -1);
+            concurrentMap.put(6, 600);
+            List<String> snapshotRes = new ArrayList<>();
+            snapshot.range(Integer.MIN_VALUE, Integer.MAX_VALUE, (k, v) -> snapshotRes.add(k + "=" + v));
+            List<String> liveRes = new ArrayList<>();
+            concurrentMap.range(Integer.MIN_VALUE, Integer.MAX_VALUE, (k, v) -> liveRes.add(k + "=" + v));
+            System.out.println("快照：" + snapshotRes); // 预期：[1=100, 2=200, 3=300, 4=400, 5=500]
+            System.out.println("最新：" + liveRes);     // 预期：[1=100, 3=-1, 4=400, 5=500, 6=600]
+        }
+
 
 
+    }
+
+    private static final int RANGE_QUERIES = 10000;
+
+    /**
+     * 有序索引基准测试：随机int键上比较TreeMap、IntAvlTree与IntBPlusTree
+     * 插入全部键、查找同样多的键（约一半命中）、范围查询（每次约1000个键）、删除一半键的平均耗时
+     */
+    private static void indexBenchmark(int n) {
+        Random random = new Random(9);
+        int[] keys = new int[n];
+        int[] probes = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt();
+        }
+        for (int i = 0; i < n; i++) {
+            probes[i] = random.nextBoolean() ? keys[random.nextInt(n)] : random.nextInt();
+        }
+        long span = (1L << 32) * 1000 / n; //键均匀分布时，这个宽度的区间约含1000个键
+        System.out.println("键数：" + n + "，范围查询：" + RANGE_QUERIES + "次");
+        indexRound("TreeMap", TreeMapIndex::new, keys, probes, span);
+        indexRound("IntAvlTree", IntAvlTree::new, keys, probes, span);
+        indexRound("IntBPlusTree", IntBPlusTree::new, keys, probes, span);
+    }
 
+    // 每项取3轮中最快的一轮；校验和相同说明三者结果一致
+    private static void indexRound(String name, Supplier<IntLongIndex> factory, int[] keys, int[] probes, long span) {
+        long[] best = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+        long checksum = 0;
+        for (int round = 0; round < 3; round++) {
+            IntLongIndex index = factory.get();
+            long[] sum = {0};
+            long t0 = System.nanoTime();
+            for (int k : keys) {
+                index.put(k, k);
+            }
+            long t1 = System.nanoTime();
+            for (int k : probes) {
+                sum[0] += index.get(k, 0);
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < RANGE_QUERIES; i++) {
+                int from = probes[i];
+                index.range(from, (int) Math.min(Integer.MAX_VALUE, from + span), (k, v) -> sum[0] += v);
+            }
+            long t3 = System.nanoTime();
+            for (int i = 0; i < keys.length / 2; i++) {
+                index.remove(keys[i]);
+            }
+            long t4 = System.nanoTime();
+            checksum = sum[0] + index.size();
+            best[0] = Math.min(best[0], t1 - t0);
+            best[1] = Math.min(best[1], t2 - t1);
+            best[2] = Math.min(best[2], t3 - t2);
+            best[3] = Math.min(best[3], t4 - t3);
+        }
+        System.out.printf("  %-12s 插入 %.0f ns，查找 %.0f ns，范围查询 %.1f us，删除 %.0f ns（校验和 %d）%n", name,
+                (double) best[0] / keys.length, (double) best[1] / probes.length,
+                best[2] / 1e3 / RANGE_QUERIES, (double) best[3] / (keys.length / 2), checksum);
+    }
+
+    // 基准测试中作为对照的TreeMap
+    private static class TreeMapIndex implements IntLongIndex {
+        private final TreeMap<Integer, Long> map = new TreeMap<>();
+
+        public boolean put(int key, long value) {
+            return map.put(key, value) == null;
+        }
+
+        public long get(int key, long missing) {
+            Long value = map.get(key);
+            return value == null ? missing : value;
+        }
+
+        public boolean remove(int key) {
+            return map.remove(key) != null;
+        }
+
+        public void range(int from, int to, IntLongVisitor visitor) {
+            if (from < to) {
+                map.subMap(from, to).forEach(visitor::visit);
+            }
+        }
+
+        public int size() {
+            return map.size();
+        }
     }
 
 
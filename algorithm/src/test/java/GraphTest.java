@@ -1,11 +1,25 @@
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 public class GraphTest {
     @Test
@@ -728,4 +742,1277 @@ public class GraphTest {
         assertTrue(result.indexOf(3) < result.indexOf(4));
         assertTrue(result.indexOf(2) < result.indexOf(4));
     }
+
+    /**
+     * 测试并查集求连通分量
+     */
+    @Test
+    void testConnectedComponents_UnionFind() {
+        // 构建非连通图：0-1-2（分量1），3-4（分量2），5（孤立点）
+        AdjacencyListGraph graph = new AdjacencyListGraph(6, GraphType.UNDIRECTED);
+        graph.addEdge(2, 1, 1);
+        graph.addEdge(1, 0, 1);
+        graph.addEdge(4, 3, 1);
+
+        int[] labels = ConnectedComponents.unionFind(graph);
+        assertArrayEquals(new int[]{0, 0, 0, 3, 3, 5}, labels);
+        assertEquals(3, ConnectedComponents.countComponents(labels));
+    }
+
+    /**
+     * 测试有向图按弱连通划分分量
+     */
+    @Test
+    void testConnectedComponents_DirectedWeak() {
+        // 构建有向图：1→0，2→0，4→3
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.DIRECTED);
+        graph.addEdge(1, 0, 1);
+        graph.addEdge(2, 0, 1);
+        graph.addEdge(4, 3, 1);
+
+        assertArrayEquals(new int[]{0, 0, 0, 3, 3}, ConnectedComponents.unionFind(graph));
+        assertArrayEquals(new int[]{0, 0, 0, 3, 3}, ConnectedComponents.afforest(graph));
+    }
+
+    /**
+     * 测试并行Afforest与串行并查集结果一致
+     */
+    @Test
+    void testConnectedComponents_AfforestMatchesUnionFind() {
+        // 随机稀疏无向图：包含一个大分量和若干小分量
+        int n = 20000;
+        Random random = new Random(42);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.UNDIRECTED);
+        for (int i = 0; i < n * 0.6; i++) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), 1);
+        }
+
+        int[] expected = ConnectedComponents.unionFind(graph);
+        int[] actual = ConnectedComponents.afforest(graph);
+        assertArrayEquals(expected, actual);
+        assertTrue(ConnectedComponents.countComponents(actual) > 1);
+    }
+
+    /**
+     * 测试迭代版Tarjan求强连通分量
+     */
+    @Test
+    void testScc_Tarjan() {
+        // 构建有向图：0→1→2→0（环），2→3，3→4→3（环），5孤立
+        AdjacencyListGraph graph = new AdjacencyListGraph(6, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 0, 1);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 4, 1);
+        graph.addEdge(4, 3, 1);
+
+        int[] comp = StronglyConnectedComponents.tarjan(graph);
+        assertEquals(3, StronglyConnectedComponents.componentCount(comp));
+        assertTrue(comp[0] == comp[1] && comp[1] == comp[2]);
+        assertTrue(comp[3] == comp[4] && comp[3] != comp[0]);
+        assertTrue(comp[5] != comp[0] && comp[5] != comp[3]);
+    }
+
+    /**
+     * 测试长环不会栈溢出
+     */
+    @Test
+    void testScc_TarjanLongCycle() {
+        int n = 200000;
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n; i++) {
+            graph.addEdge(i, (i + 1) % n, 1);
+        }
+        int[] comp = StronglyConnectedComponents.tarjan(graph);
+        assertEquals(1, StronglyConnectedComponents.componentCount(comp));
+    }
+
+    /**
+     * 测试并行FW-BW与Tarjan划分一致
+     */
+    @Test
+    void testScc_ForwardBackwardMatchesTarjan() {
+        int n = 30000;
+        Random random = new Random(7);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n * 2; i++) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), 1);
+        }
+
+        int[] expected = StronglyConnectedComponents.tarjan(graph);
+        int[] actual = StronglyConnectedComponents.forwardBackward(graph);
+        assertEquals(StronglyConnectedComponents.componentCount(expected),
+                StronglyConnectedComponents.componentCount(actual));
+        // 两种编号之间必须是一一对应的
+        int[] mapping = new int[n];
+        Arrays.fill(mapping, -1);
+        for (int v = 0; v < n; v++) {
+            if (mapping[expected[v]] == -1) {
+                mapping[expected[v]] = actual[v];
+            }
+            assertEquals(mapping[expected[v]], actual[v]);
+        }
+    }
+
+    /**
+     * 测试FW-BW在2-环组成的长链上不会栈溢出：每轮划分只能剥下一个分量
+     */
+    @Test
+    void testScc_ForwardBackwardDeepChain() {
+        // 2i↔2i+1 构成一个分量，2i+1→2i+2 把分量串成一条链，剪枝去不掉任何顶点
+        int n = 400000;
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n; i += 2) {
+            graph.addEdge(i, i + 1, 1);
+            graph.addEdge(i + 1, i, 1);
+            if (i + 2 < n) {
+                graph.addEdge(i + 1, i + 2, 1);
+            }
+        }
+
+        int[] comp = StronglyConnectedComponents.forwardBackward(graph);
+        assertEquals(n / 2, StronglyConnectedComponents.componentCount(comp));
+        for (int i = 0; i < n; i += 2) {
+            assertEquals(comp[i], comp[i + 1]);
+        }
+        assertTrue(comp[0] != comp[2]);
+    }
+
+    /**
+     * 测试缩点后的DAG可以拓扑排序
+     */
+    @Test
+    void testScc_CondenseThenTopoSort() {
+        // 构建有向图：{0,1}环 → {2,3}环 → 4
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 0, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(0, 3, 1);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 2, 1);
+        graph.addEdge(3, 4, 1);
+
+        int[] comp = StronglyConnectedComponents.tarjan(graph);
+        AdjacencyListGraph dag = StronglyConnectedComponents.condense(graph, comp);
+        assertEquals(3, dag.getVertexCount());
+        // 重复的分量间边被合并
+        assertEquals(1, dag.getAdjList().get(comp[0]).size());
+
+        List<Integer> order = new TopologicalSortRecursive().topoSort(dag);
+        assertTrue(order.indexOf(comp[0]) < order.indexOf(comp[2]));
+        assertTrue(order.indexOf(comp[2]) < order.indexOf(comp[4]));
+    }
+
+    /**
+     * 测试动态图的顶点扩容与边的增删
+     */
+    @Test
+    void testDynamicGraph_AddRemove() {
+        DynamicGraph graph = new DynamicGraph(1, GraphType.DIRECTED);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, graph.addVertex()); // 初始容量为1，需多次扩容
+        }
+        for (int i = 1; i < 10; i++) {
+            graph.addEdge(0, i, i);
+        }
+        assertEquals(9, graph.degree(0));
+        assertEquals(9, graph.getEdgeCount());
+
+        // 删除0→3后，最后一条边0→9被换到原位置
+        assertTrue(graph.removeEdge(0, 3));
+        assertEquals(8, graph.degree(0));
+        assertEquals(9, graph.neighbor(0, 2));
+        assertEquals(9, graph.weight(0, 2));
+        assertTrue(!graph.removeEdge(0, 3));
+
+        graph.removeEdgeAt(0, 0);
+        assertEquals(7, graph.degree(0));
+        assertEquals(7, graph.getEdgeCount());
+        assertThrows(IllegalArgumentException.class, () -> graph.removeEdgeAt(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> graph.removeEdgeAt(10, 0));
+    }
+
+    /**
+     * 测试无向动态图删除边时同时删除反向边
+     */
+    @Test
+    void testDynamicGraph_UndirectedRemove() {
+        DynamicGraph graph = new DynamicGraph(3, GraphType.UNDIRECTED);
+        graph.ensureVertexCount(3);
+        graph.addEdge(0, 1, 5);
+        graph.addEdge(1, 2, 3);
+
+        assertTrue(graph.removeEdge(1, 0));
+        assertEquals(0, graph.degree(0));
+        assertEquals(1, graph.degree(1));
+        assertEquals(2, graph.neighbor(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> graph.removeEdgeAt(1, 0));
+    }
+
+    /**
+     * 测试动态图压缩为CSR快照
+     */
+    @Test
+    void testDynamicGraph_ToCSR() {
+        DynamicGraph graph = new DynamicGraph(4, GraphType.DIRECTED);
+        graph.ensureVertexCount(4);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(0, 2, 4);
+        graph.addEdge(2, 3, 1);
+        graph.addEdge(3, 0, 7);
+        graph.removeEdge(0, 1);
+
+        CSRGraph csr = graph.toCSR();
+        assertArrayEquals(new int[]{0, 1, 1, 2, 3}, csr.getOffsets());
+        assertArrayEquals(new int[]{2, 3, 0}, csr.getTargets());
+        assertArrayEquals(new int[]{4, 1, 7}, csr.getWeights());
+
+        CSRGraph rev = csr.transpose();
+        assertArrayEquals(new int[]{0, 1, 1, 2, 3}, rev.getOffsets());
+        assertArrayEquals(new int[]{3, 0, 2}, rev.getTargets());
+    }
+
+    /**
+     * 测试版本化图：读者固定的快照不受写者后续修改影响
+     */
+    @Test
+    void testVersionedGraph_SnapshotIsolation() {
+        VersionedGraph graph = new VersionedGraph(100, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 5);
+        graph.addEdge(1, 99, 5);
+        graph.publish();
+
+        GraphSnapshot before = graph.pin();
+        graph.setWeight(0, 1, 1);
+        graph.removeEdge(1, 99);
+        graph.addEdge(0, 99, 20);
+        // 未发布前，新读者仍看到旧版本
+        assertEquals(before.getVersion(), graph.pin().getVersion());
+        graph.publish();
+
+        GraphSnapshot after = graph.pin();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(10, DijkstraShortestPath.dijkstra(before, 0)[99]);
+        assertEquals(20, DijkstraShortestPath.dijkstra(after, 0)[99]);
+        assertEquals(Arrays.asList(0, 1, 99), GraphBFS.bfs(before, 0));
+        assertEquals(Arrays.asList(0, 1, 99), GraphBFS.bfs(after, 0));
+        assertEquals(0, after.degree(1));
+        assertEquals(2, after.degree(0));
+        // 旧快照不受新版本影响
+        assertEquals(1, before.degree(1));
+    }
+
+    /**
+     * 测试快照上的Dijkstra与邻接表结果一致
+     */
+    @Test
+    void testVersionedGraph_DijkstraMatchesAdjacencyList() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.UNDIRECTED);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 3, 2);
+        graph.addEdge(0, 3, 10);
+        graph.addEdge(3, 4, 1);
+
+        VersionedGraph versioned = VersionedGraph.copyOf(graph);
+        GraphSnapshot snapshot = versioned.pin();
+        assertArrayEquals(DijkstraShortestPath.dijkstra(graph, 0), DijkstraShortestPath.dijkstra(snapshot, 0));
+        assertEquals(GraphBFS.bfs(graph, 0), GraphBFS.bfs(snapshot, 0));
+    }
+
+    /**
+     * 测试多个读者与单个写者并发时，读者看到的总是完整的版本
+     */
+    @Test
+    void testVersionedGraph_ConcurrentReaders() throws InterruptedException {
+        // 环0→1→...→n-1→0，写者每次把所有边权重统一改为同一个值后发布
+        int n = 200;
+        VersionedGraph graph = new VersionedGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n; i++) {
+            graph.addEdge(i, (i + 1) % n, 1);
+        }
+        graph.publish();
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicBoolean torn = new AtomicBoolean();
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                while (!stop.get()) {
+                    GraphSnapshot snapshot = graph.pin();
+                    int w = snapshot.weight(0, 0);
+                    if (DijkstraShortestPath.dijkstra(snapshot, 0)[n - 1] != w * (n - 1)) {
+                        torn.set(true);
+                    }
+                }
+            });
+            readers[t].start();
+        }
+        for (int round = 2; round < 200; round++) {
+            for (int i = 0; i < n; i++) {
+                graph.setWeight(i, (i + 1) % n, round);
+            }
+            graph.publish();
+        }
+        stop.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(!torn.get(), "读者读到了不完整的版本");
+    }
+
+    /**
+     * 测试堆外内存映射图：写出后重新打开，遍历结果与原图一致
+     */
+    @Test
+    void testOffHeapGraph_WriteAndOpen(@TempDir Path dir) throws IOException {
+        AdjacencyListGraph graph = new AdjacencyListGraph(6, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 7);
+        graph.addEdge(0, 2, 9);
+        graph.addEdge(0, 5, 14);
+        graph.addEdge(1, 2, 10);
+        graph.addEdge(1, 3, 15);
+        graph.addEdge(2, 3, 11);
+        graph.addEdge(2, 5, 2);
+        graph.addEdge(3, 4, 6);
+        graph.addEdge(5, 4, 9);
+        CSRGraph csr = CSRGraph.copyOf(graph);
+
+        Path file = dir.resolve("graph.csr");
+        OffHeapGraph.write(csr, file);
+        try (OffHeapGraph offHeap = OffHeapGraph.open(file)) {
+            assertEquals(6, offHeap.getVertexCount());
+            assertEquals(9, offHeap.getArcCount());
+            assertEquals(GraphType.DIRECTED, offHeap.getGraphType());
+            assertEquals(3, offHeap.degree(0));
+            assertEquals(GraphBFS.bfs(graph, 0), GraphBFS.bfs(offHeap, 0));
+            assertEquals(GraphDFS.dfsRecursive(graph, 0), GraphDFS.dfs(offHeap, 0));
+            assertArrayEquals(BFSShortestPath.bfsShortestPath(graph, 0), BFSShortestPath.bfsShortestPath(offHeap, 0));
+            assertArrayEquals(new int[]{0, 7, 9, 20, 20, 11}, DijkstraShortestPath.dijkstra(offHeap, 0));
+        }
+    }
+
+    /**
+     * 测试打开非图文件时报错
+     */
+    @Test
+    void testOffHeapGraph_RejectsBadFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("bad.csr");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> OffHeapGraph.open(file));
+    }
+
+    /**
+     * 测试头部图类型损坏时报IOException而不是数组越界
+     */
+    @Test
+    void testOffHeapGraph_RejectsBadGraphType(@TempDir Path dir) throws IOException {
+        AdjacencyListGraph graph = new AdjacencyListGraph(3, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 1);
+        Path file = dir.resolve("graph.csr");
+        OffHeapGraph.write(CSRGraph.copyOf(graph), file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[12] = 9; //图类型的序号
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> OffHeapGraph.open(file));
+    }
+
+    /**
+     * 测试头部顶点数为负时拒绝打开
+     */
+    @Test
+    void testOffHeapGraph_RejectsNegativeVertexCount(@TempDir Path dir) throws IOException {
+        AdjacencyListGraph graph = new AdjacencyListGraph(3, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 1);
+        Path file = dir.resolve("graph.csr");
+        OffHeapGraph.write(CSRGraph.copyOf(graph), file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[11] = (byte) 0x80; //顶点数（小端）的最高字节
+        Files.write(file, bytes);
+        assertThrows(IllegalArgumentException.class, () -> OffHeapGraph.open(file));
+    }
+
+    /**
+     * 测试邻接矩阵的BFS/DFS按邻接顶点（而不是边权重）遍历
+     */
+    @Test
+    void testBfsDfs_AdjacencyMatrix() {
+        // 构建有向图：0→2（权重1），0→1（权重5），2→3（权重9）
+        AdjacencyMatrixGraph graph = new AdjacencyMatrixGraph(4, GraphType.DIRECTED);
+        graph.addEdge(0, 2, 1);
+        graph.addEdge(0, 1, 5);
+        graph.addEdge(2, 3, 9);
+
+        assertEquals(Arrays.asList(0, 1, 2, 3), GraphBFS.bfs(graph, 0));
+        assertEquals(Arrays.asList(0, 1, 2, 3), GraphDFS.dfsRecursive(graph, 0));
+        assertEquals(Arrays.asList(0, 1, 2, 3), GraphDFS.dfs(graph, 0));
+        assertEquals(2, graph.degree(0));
+    }
+
+    /**
+     * 测试同一张图在邻接矩阵、邻接表、CSR、动态图上运行的算法结果一致
+     */
+    @Test
+    void testGraphView_AllBackendsAgree() {
+        int n = 60;
+        Random random = new Random(3);
+        AdjacencyMatrixGraph matrix = new AdjacencyMatrixGraph(n, GraphType.UNDIRECTED);
+        AdjacencyListGraph list = new AdjacencyListGraph(n, GraphType.UNDIRECTED);
+        DynamicGraph dynamic = new DynamicGraph(n, GraphType.UNDIRECTED);
+        dynamic.ensureVertexCount(n);
+        // 邻接矩阵中的边按列号有序，因此按(from, to)升序添加，且不产生重复边
+        for (int u = 0; u < n; u++) {
+            for (int v = u + 1; v < n; v++) {
+                if (random.nextInt(8) == 0 || v == u + 1) {
+                    int w = 1 + random.nextInt(20);
+                    matrix.addEdge(u, v, w);
+                    list.addEdge(u, v, w);
+                    dynamic.addEdge(u, v, w);
+                }
+            }
+        }
+        CSRGraph csr = CSRGraph.copyOf(matrix);
+
+        for (GraphView graph : new GraphView[]{list, csr, dynamic}) {
+            assertArrayEquals(DijkstraShortestPath.dijkstra(matrix, 0), DijkstraShortestPath.dijkstra(graph, 0));
+            assertArrayEquals(BFSShortestPath.bfsShortestPath(matrix, 0), BFSShortestPath.bfsShortestPath(graph, 0));
+            assertEquals(PrimMST.calculateTotalWeight(PrimMST.prim(matrix)),
+                    PrimMST.calculateTotalWeight(PrimMST.prim(graph)));
+            assertEquals(GraphDFS.dfs(graph, 0), GraphDFS.dfsRecursive(graph, 0));
+        }
+        assertArrayEquals(ConnectedComponents.unionFind(list), ConnectedComponents.afforest(matrix));
+    }
+
+    /**
+     * 测试二进制图格式：写出后映射打开，邻居按编号排序且权重保持不变
+     */
+    @Test
+    void testBinaryGraph_RoundTrip(@TempDir Path dir) throws IOException {
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.DIRECTED);
+        graph.addEdge(3, 1, -4);
+        graph.addEdge(3, 0, 7);
+        graph.addEdge(3, 4, 300000);
+        graph.addEdge(0, 3, 2);
+        graph.addEdge(4, 4, 1);
+
+        Path file = dir.resolve("graph.bin");
+        BinaryGraphWriter.write(graph, file);
+        try (BinaryGraph binary = BinaryGraph.open(file)) {
+            assertEquals(5, binary.getArcCount());
+            assertTrue(binary.isWeighted());
+            assertEquals(3, binary.degree(3));
+            assertEquals(0, binary.degree(2));
+
+            NeighborCursor cursor = binary.cursor();
+            cursor.reset(3);
+            assertEquals(0, cursor.next());
+            assertEquals(7, cursor.weight());
+            assertEquals(1, cursor.next());
+            assertEquals(-4, cursor.weight());
+            assertEquals(4, cursor.next());
+            assertEquals(300000, cursor.weight());
+            assertEquals(-1, cursor.next());
+            assertArrayEquals(DijkstraShortestPath.dijkstra(CSRGraph.copyOf(graph), 0),
+                    DijkstraShortestPath.dijkstra(binary, 0));
+        }
+    }
+
+    /**
+     * 测试二进制图头部图类型损坏时报IOException
+     */
+    @Test
+    void testBinaryGraph_RejectsBadGraphType(@TempDir Path dir) throws IOException {
+        AdjacencyListGraph graph = new AdjacencyListGraph(3, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 1);
+        Path file = dir.resolve("graph.bin");
+        BinaryGraphWriter.write(graph, file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[12] = 9; //图类型的序号
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> BinaryGraph.open(file));
+    }
+
+    /**
+     * 测试写入失败后close不抛出顶点数不符的异常，不掩盖原来的错误
+     */
+    @Test
+    void testBinaryGraphWriter_CloseAfterFailedWrite(@TempDir Path dir) throws IOException {
+        BinaryGraphWriter writer = new BinaryGraphWriter(dir.resolve("graph.bin"), 3, GraphType.DIRECTED, false);
+        writer.writeVertex(new int[]{1}, null, 1);
+        // 度数大于数组长度，写到一半失败
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> writer.writeVertex(new int[]{0}, null, 2));
+        writer.close();
+    }
+
+    /**
+     * 测试二进制图写入器拒绝超出范围的邻居编号（负数会被解码成游标的结束标记-1）
+     */
+    @Test
+    void testBinaryGraphWriter_RejectsOutOfRangeNeighbor(@TempDir Path dir) throws IOException {
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(dir.resolve("a.bin"), 3, GraphType.DIRECTED, false)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.writeVertex(new int[]{-1}, null, 1));
+        }
+        try (BinaryGraphWriter writer = new BinaryGraphWriter(dir.resolve("b.bin"), 3, GraphType.DIRECTED, false)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.writeVertex(new int[]{1, 3}, null, 2));
+        }
+    }
+
+    /**
+     * 测试文本边表解析：注释、空行、缺省权重，以及无向图双向建边
+     */
+    @Test
+    void testEdgeListParser_Parse(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("edges.txt");
+        Files.write(file, Arrays.asList("# 起点 终点 权重", "2 0 5", "", "0 1", "% 另一种注释", "1 2\t3", "3 3 9"));
+
+        CSRGraph directed = EdgeListParser.parse(file, GraphType.DIRECTED);
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, directed.getOffsets());
+        assertArrayEquals(new int[]{1, 2, 0, 3}, directed.getTargets());
+        assertArrayEquals(new int[]{1, 3, 5, 9}, directed.getWeights());
+
+        CSRGraph undirected = EdgeListParser.parse(file, GraphType.UNDIRECTED);
+        assertEquals(8, undirected.getArcCount());
+        assertArrayEquals(new int[]{1, 2}, Arrays.copyOfRange(undirected.getTargets(), 0, 2));
+    }
+
+    /**
+     * 测试大文本边表并行解析后写成二进制，再映射读回，结果与直接构图一致
+     */
+    @Test
+    void testEdgeListParser_LargeFileToBinary(@TempDir Path dir) throws IOException {
+        int n = 5000;
+        Random random = new Random(11);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 60000; i++) {
+            int from = random.nextInt(n);
+            int to = random.nextInt(n);
+            graph.addEdge(from, to, 1);
+            text.append(from).append(' ').append(to).append('\n');
+        }
+        graph.addEdge(n - 1, 0, 1); // 保证最大编号的顶点出现
+        text.append(n - 1).append(" 0\n");
+        Path textFile = dir.resolve("edges.txt");
+        Files.write(textFile, text.toString().getBytes());
+
+        CSRGraph parsed = EdgeListParser.parse(textFile, GraphType.DIRECTED);
+        assertEquals(n, parsed.getVertexCount());
+        Path binFile = dir.resolve("edges.bin");
+        BinaryGraphWriter.write(parsed, binFile);
+        assertTrue(Files.size(binFile) < Files.size(textFile));
+        try (BinaryGraph binary = BinaryGraph.open(binFile)) {
+            assertTrue(!binary.isWeighted());
+            assertArrayEquals(BFSShortestPath.bfsShortestPath(graph, 0), BFSShortestPath.bfsShortestPath(binary, 0));
+            assertArrayEquals(parsed.getTargets(), CSRGraph.copyOf(binary).getTargets());
+        }
+    }
+
+    /**
+     * 测试压缩图解码出的邻居与排序后的原图一致（含区间、重复边、负差值）
+     */
+    @Test
+    void testCompressedGraph_DecodeMatchesSorted() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(40, GraphType.DIRECTED);
+        int[] nbrs = {30, 2, 11, 10, 12, 13, 5, 6, 7, 7, 8, 9, 39, 0, 21};
+        for (int v : nbrs) {
+            graph.addEdge(20, v, 1);
+        }
+        graph.addEdge(39, 38, 1);
+        graph.addEdge(0, 39, 1);
+
+        CompressedGraph compressed = CompressedGraph.copyOf(graph);
+        assertEquals(17, compressed.getArcCount());
+        assertEquals(15, compressed.degree(20));
+
+        int[] expected = nbrs.clone();
+        Arrays.sort(expected);
+        NeighborCursor cursor = compressed.cursor();
+        cursor.reset(20);
+        for (int v : expected) {
+            assertEquals(v, cursor.next());
+        }
+        assertEquals(-1, cursor.next());
+        cursor.reset(39);
+        assertEquals(38, cursor.next());
+        assertEquals(-1, cursor.next());
+    }
+
+    /**
+     * 测试带权压缩图保留权重
+     */
+    @Test
+    void testCompressedGraph_Weighted() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.UNDIRECTED);
+        graph.addEdge(0, 1, 2);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 3, 2);
+        graph.addEdge(0, 3, 10);
+        graph.addEdge(3, 4, 300);
+
+        CompressedGraph compressed = CompressedGraph.copyOf(graph);
+        assertArrayEquals(DijkstraShortestPath.dijkstra(graph, 0), DijkstraShortestPath.dijkstra(compressed, 0));
+
+        // 负权重同样可以编码
+        AdjacencyListGraph negative = new AdjacencyListGraph(2, GraphType.DIRECTED);
+        negative.addEdge(1, 0, -1);
+        NeighborCursor cursor = CompressedGraph.copyOf(negative).cursor();
+        cursor.reset(1);
+        assertEquals(0, cursor.next());
+        assertEquals(-1, cursor.weight());
+    }
+
+    /**
+     * 测试局部性好的图压缩率，以及压缩图上的BFS和连通分量
+     */
+    @Test
+    void testCompressedGraph_LocalGraph() {
+        // 每个顶点连向编号相近的若干顶点，模拟网页图的局部性
+        int n = 20000;
+        Random random = new Random(5);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int u = 0; u < n; u++) {
+            for (int k = 1; k <= 8; k++) {
+                if (u + k < n) {
+                    graph.addEdge(u, u + k, 1);
+                }
+            }
+            if (random.nextInt(4) == 0) {
+                graph.addEdge(u, random.nextInt(n), 1);
+            }
+        }
+
+        CompressedGraph compressed = CompressedGraph.copyOf(graph);
+        CSRGraph csr = CSRGraph.copyOf(graph);
+        long csrBytes = 4L * (csr.getOffsets().length + csr.getTargets().length);
+        assertTrue(compressed.memoryBytes() * 3 < csrBytes, "压缩率不足");
+        assertArrayEquals(BFSShortestPath.bfsShortestPath(graph, 0), BFSShortestPath.bfsShortestPath(compressed, 0));
+        assertArrayEquals(ConnectedComponents.unionFind(graph), ConnectedComponents.afforest(compressed));
+    }
+
+
+    /**
+     * 测试三种重排得到的都是合法排列，且新旧映射互逆
+     */
+    @Test
+    void testGraphReordering_Permutation() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(6, GraphType.DIRECTED);
+        graph.addEdge(0, 3, 1);
+        graph.addEdge(3, 5, 2);
+        graph.addEdge(5, 1, 3);
+        graph.addEdge(2, 4, 4);
+        graph.addEdge(3, 0, 5);
+
+        GraphReordering.Result[] results = {
+                GraphReordering.reverseCuthillMcKee(graph),
+                GraphReordering.degreeDescending(graph),
+                GraphReordering.bfsOrder(graph)
+        };
+        for (GraphReordering.Result result : results) {
+            for (int u = 0; u < 6; u++) {
+                assertEquals(u, result.newToOld[result.oldToNew[u]]);
+            }
+            // 边(5,1,3)在新图中仍然存在且权重不变
+            NeighborCursor cursor = result.graph.cursor();
+            cursor.reset(result.oldToNew[5]);
+            assertEquals(result.oldToNew[1], cursor.next());
+            assertEquals(3, cursor.weight());
+            assertEquals(-1, cursor.next());
+        }
+        // 度数降序：出度最大的顶点3排在最前面
+        assertEquals(3, GraphReordering.degreeDescending(graph).newToOld[0]);
+
+        assertThrows(IllegalArgumentException.class, () -> GraphReordering.permute(graph, new int[]{0, 0, 1, 2, 3, 4}));
+    }
+
+    /**
+     * 测试重排后最短路距离按映射换算后与原图一致，且RCM降低了网格图的带宽
+     */
+    @Test
+    void testGraphReordering_PreservesDistances() {
+        int side = 40;
+        int n = side * side;
+        Random random = new Random(11);
+        int[] label = new int[n];
+        for (int i = 0; i < n; i++) {
+            label[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = label[i];
+            label[i] = label[j];
+            label[j] = t;
+        }
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.UNDIRECTED);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    graph.addEdge(label[r * side + c], label[r * side + c + 1], 1 + random.nextInt(9));
+                }
+                if (r + 1 < side) {
+                    graph.addEdge(label[r * side + c], label[(r + 1) * side + c], 1 + random.nextInt(9));
+                }
+            }
+        }
+
+        int[] expected = DijkstraShortestPath.dijkstra(graph, 7);
+        GraphReordering.Result rcm = GraphReordering.reverseCuthillMcKee(graph);
+        int[] actual = DijkstraShortestPath.dijkstra(rcm.graph, rcm.oldToNew[7]);
+        for (int u = 0; u < n; u++) {
+            assertEquals(expected[u], actual[rcm.oldToNew[u]]);
+        }
+        assertTrue(bandwidth(rcm.graph) <= 2 * side, "RCM带宽过大");
+        assertTrue(bandwidth(CSRGraph.copyOf(graph)) > 10 * side);
+    }
+
+    // 邻接矩阵带宽：所有边两端编号差的最大值
+    private static int bandwidth(CSRGraph graph) {
+        int max = 0;
+        for (int u = 0; u < graph.getVertexCount(); u++) {
+            for (int i = graph.getOffsets()[u]; i < graph.getOffsets()[u + 1]; i++) {
+                max = Math.max(max, Math.abs(graph.getTargets()[i] - u));
+            }
+        }
+        return max;
+    }
+
+
+    /**
+     * 测试多层分区在网格图上的边割远小于哈希分区，且各分区大小均衡
+     */
+    @Test
+    void testGraphPartitioner_Multilevel() {
+        int side = 60;
+        AdjacencyListGraph graph = new AdjacencyListGraph(side * side, GraphType.UNDIRECTED);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    graph.addEdge(r * side + c, r * side + c + 1, 1);
+                }
+                if (r + 1 < side) {
+                    graph.addEdge(r * side + c, (r + 1) * side + c, 1);
+                }
+            }
+        }
+
+        int parts = 4;
+        int[] owner = GraphPartitioner.multilevel(graph, parts);
+        int[] size = new int[parts];
+        for (int p : owner) {
+            size[p]++;
+        }
+        for (int s : size) {
+            assertTrue(s <= side * side / parts * 1.1, "分区不均衡：" + Arrays.toString(size));
+        }
+        long cut = GraphPartitioner.edgeCut(graph, owner);
+        long hashCut = GraphPartitioner.edgeCut(graph, GraphPartitioner.hash(graph, parts));
+        assertTrue(cut * 10 < hashCut, "多层分区边割过大：" + cut + " vs " + hashCut);
+
+        // 分片：拥有的顶点数之和为总顶点数，幽灵顶点都属于其他分片
+        GraphShard[] shards = GraphPartitioner.shard(graph, owner, parts);
+        int total = 0;
+        for (GraphShard shard : shards) {
+            total += shard.getOwnedCount();
+            for (int i = 0; i < shard.getGhostCount(); i++) {
+                int local = shard.getOwnedCount() + i;
+                assertTrue(shard.isGhost(local));
+                assertEquals(owner[shard.globalId(local)], shard.ownerOf(local));
+                assertTrue(shard.ownerOf(local) != shard.shardId);
+            }
+        }
+        assertEquals(side * side, total);
+    }
+
+    /**
+     * 测试分片BFS/SSSP与单机结果一致（进程内传输）
+     */
+    @Test
+    void testShardedTraversal_InProcess() {
+        int n = 3000;
+        Random random = new Random(8);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n * 4; i++) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(50));
+        }
+
+        for (int[] owner : new int[][]{GraphPartitioner.hash(graph, 3), GraphPartitioner.multilevel(graph, 3)}) {
+            GraphShard[] shards = GraphPartitioner.shard(graph, owner, 3);
+            try (MessageTransport transport = new InProcessTransport(3)) {
+                assertArrayEquals(BFSShortestPath.bfsShortestPath(graph, 5), ShardedTraversal.bfs(shards, transport, 5));
+                assertArrayEquals(DijkstraShortestPath.dijkstra(graph, 5), ShardedTraversal.sssp(shards, transport, 5));
+            }
+        }
+    }
+
+    /**
+     * 测试分片BFS/SSSP通过本机回环Socket传输时结果一致
+     */
+    @Test
+    void testShardedTraversal_LoopbackSocket() {
+        int side = 50;
+        Random random = new Random(9);
+        AdjacencyListGraph graph = new AdjacencyListGraph(side * side, GraphType.UNDIRECTED);
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                if (c + 1 < side) {
+                    graph.addEdge(r * side + c, r * side + c + 1, 1 + random.nextInt(20));
+                }
+                if (r + 1 < side) {
+                    graph.addEdge(r * side + c, (r + 1) * side + c, 1 + random.nextInt(20));
+                }
+            }
+        }
+
+        GraphShard[] shards = GraphPartitioner.shard(graph, GraphPartitioner.multilevel(graph, 4), 4);
+        try (MessageTransport transport = new LoopbackSocketTransport(4)) {
+            assertArrayEquals(BFSShortestPath.bfsShortestPath(graph, 0), ShardedTraversal.bfs(shards, transport, 0));
+            assertArrayEquals(DijkstraShortestPath.dijkstra(graph, 1234), ShardedTraversal.sssp(shards, transport, 1234));
+        }
+    }
+
+    /**
+     * 测试一个分片抛出异常时，其他分片不会在receive中一直等待，run以该异常结束
+     */
+    @Test
+    void testShardedTraversal_WorkerFailureAborts() {
+        int n = 2000;
+        Random random = new Random(3);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n * 4; i++) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(50));
+        }
+        GraphShard[] shards = GraphPartitioner.shard(graph, GraphPartitioner.hash(graph, 3), 3);
+
+        // 分片1结束第一轮时失败，分片0和2正等着它的结束标记
+        InProcessTransport inner = new InProcessTransport(3);
+        MessageTransport failing = new MessageTransport() {
+            public int shardCount() {
+                return inner.shardCount();
+            }
+
+            public void send(int from, int to, long[] messages, int length) {
+                inner.send(from, to, messages, length);
+            }
+
+            public void endRound(int from, long activity) {
+                if (from == 1) {
+                    throw new IllegalStateException("分片1故障");
+                }
+                inner.endRound(from, activity);
+            }
+
+            public long receive(int to, LongConsumer consumer) {
+                return inner.receive(to, consumer);
+            }
+
+            public void fail(Throwable cause) {
+                inner.fail(cause);
+            }
+
+            public void close() {
+                inner.close();
+            }
+        };
+
+        RuntimeException e = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> assertThrows(RuntimeException.class, () -> ShardedTraversal.bfs(shards, failing, 0)));
+        assertEquals("分片1故障", e.getCause().getMessage());
+    }
+
+    /**
+     * 测试Socket连接断开时，正在等待消息的分片抛出异常而不是一直阻塞
+     */
+    @Test
+    void testLoopbackSocketTransport_DroppedConnectionWakesReceiver() {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            LoopbackSocketTransport transport = new LoopbackSocketTransport(2);
+            Future<Long> receiver = pool.submit(() -> transport.receive(0, m -> { }));
+            transport.close(); //断开所有连接，读线程随之退出
+            ExecutionException e = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                    () -> assertThrows(ExecutionException.class, receiver::get));
+            assertTrue(e.getCause() instanceof RuntimeException);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 测试Pregel引擎上的标签传播、单源最短路与现有算法结果一致，且多线程与单线程结果相同
+     */
+    @Test
+    void testPregel_LabelPropagationAndSssp() {
+        int n = 20000;
+        Random random = new Random(12);
+        AdjacencyListGraph undirected = new AdjacencyListGraph(n, GraphType.UNDIRECTED);
+        AdjacencyListGraph directed = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n; i++) {
+            undirected.addEdge(random.nextInt(n), random.nextInt(n), 1);
+            directed.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(30));
+            directed.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(30));
+        }
+
+        int[] components = ConnectedComponents.unionFind(undirected);
+        assertArrayEquals(components, VertexPrograms.labelPropagation(undirected, 1));
+        assertArrayEquals(components, VertexPrograms.labelPropagation(undirected, 4));
+
+        int[] expected = DijkstraShortestPath.dijkstra(directed, 3);
+        assertArrayEquals(expected, VertexPrograms.sssp(directed, 3, 1));
+        assertArrayEquals(expected, VertexPrograms.sssp(CSRGraph.copyOf(directed), 3, 4));
+    }
+
+    /**
+     * 测试Pregel PageRank：rank之和为1（悬挂顶点的rank通过聚合器重新分配），环上各顶点rank相等
+     */
+    @Test
+    void testPregel_PageRank() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(2, 0, 1);
+        graph.addEdge(3, 0, 1); // 3没有入边，4是悬挂顶点
+        graph.addEdge(2, 4, 1);
+
+        double[] rank = VertexPrograms.pageRank(graph, 0.85, 50, 2);
+        double sum = 0;
+        for (double r : rank) {
+            sum += r;
+        }
+        assertEquals(1.0, sum, 1e-9);
+        assertEquals(0.15 / 5 + 0.85 * rank[4] / 5, rank[3], 1e-9);
+        assertTrue(rank[2] > rank[1] && rank[1] > rank[0] && rank[0] > rank[3]);
+
+        // 环：所有顶点rank都是1/n，引擎在最后一个超步后停止
+        AdjacencyListGraph cycle = new AdjacencyListGraph(4, GraphType.DIRECTED);
+        for (int u = 0; u < 4; u++) {
+            cycle.addEdge(u, (u + 1) % 4, 1);
+        }
+        for (double r : VertexPrograms.pageRank(cycle, 0.85, 10, 1)) {
+            assertEquals(0.25, r, 1e-12);
+        }
+    }
+
+    /**
+     * 测试自定义顶点程序：投票停止后没有消息时引擎提前结束
+     */
+    @Test
+    void testPregel_HaltsWhenIdle() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(3, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        PregelEngine engine = new PregelEngine(graph, PregelEngine.MessageCombiner.MAX, 2);
+        // 超步0只有顶点0发出消息，消息沿链传递，每个顶点记录收到消息的超步
+        double[] values = engine.run(new double[3], (ctx, message, has) -> {
+            if (has) {
+                ctx.setValue(ctx.superstep());
+                ctx.sendToNeighbors(message + 1);
+            } else if (ctx.vertex() == 0) {
+                ctx.sendToNeighbors(1);
+            }
+            ctx.voteToHalt();
+        }, 100);
+        assertArrayEquals(new double[]{0, 1, 2}, values);
+        assertEquals(3, engine.getSuperstepCount()); // 超步2之后没有消息在途
+    }
+
+
+    /**
+     * 测试拉取式PageRank与Pregel版本结果一致，rank之和为1，并行与收敛阈值生效
+     */
+    @Test
+    void testPageRank_Pull() {
+        int n = 10000;
+        Random random = new Random(13);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n * 5; i++) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), 1);
+        }
+
+        double[] rank = PageRank.pageRank(graph, 0.85, 1e-12, 200);
+        double[] pregel = VertexPrograms.pageRank(graph, 0.85, 200, 2);
+        double sum = 0;
+        for (int u = 0; u < n; u++) {
+            assertEquals(pregel[u], rank[u], 1e-12);
+            sum += rank[u];
+        }
+        assertEquals(1.0, sum, 1e-9);
+
+        // 阈值较大时提前停止，结果仍接近
+        double[] rough = PageRank.pageRank(graph, 0.85, 1e-4, 200);
+        double l1 = 0;
+        for (int u = 0; u < n; u++) {
+            l1 += Math.abs(rough[u] - rank[u]);
+        }
+        assertTrue(l1 < 1e-3);
+    }
+
+    /**
+     * 测试前向推送的个性化PageRank与幂迭代的精确值接近，种子的rank最大
+     */
+    @Test
+    void testPageRank_Personalized() {
+        int n = 500;
+        Random random = new Random(14);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.DIRECTED);
+        for (int i = 0; i < n * 3; i++) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), 1);
+        }
+        int seed = 7;
+        double damping = 0.85;
+
+        // 幂迭代求精确值：以1-damping的概率（以及在悬挂顶点处）跳回种子
+        double[] exact = new double[n];
+        exact[seed] = 1;
+        CSRGraph csr = CSRGraph.copyOf(graph);
+        for (int iter = 0; iter < 300; iter++) {
+            double[] next = new double[n];
+            next[seed] = 1 - damping;
+            for (int u = 0; u < n; u++) {
+                if (csr.degree(u) == 0) {
+                    next[seed] += damping * exact[u];
+                }
+                for (int i = csr.getOffsets()[u]; i < csr.getOffsets()[u + 1]; i++) {
+                    next[csr.getTargets()[i]] += damping * exact[u] / csr.degree(u);
+                }
+            }
+            exact = next;
+        }
+
+        double[] estimate = PageRank.personalized(graph, seed, damping, 1e-9);
+        for (int u = 0; u < n; u++) {
+            assertEquals(exact[u], estimate[u], 1e-6);
+        }
+        for (int u = 0; u < n; u++) {
+            assertTrue(estimate[u] <= estimate[seed]);
+        }
+        assertThrows(IllegalArgumentException.class, () -> PageRank.personalized(graph, n, damping, 1e-9));
+    }
+
+
+    /**
+     * 测试介数中心性：路径、星形图的已知结果，以及带权图按权重走最短路
+     */
+    @Test
+    void testCentrality_BetweennessKnownGraphs() {
+        AdjacencyListGraph path = new AdjacencyListGraph(5, GraphType.UNDIRECTED);
+        for (int u = 0; u < 4; u++) {
+            path.addEdge(u, u + 1, 1);
+        }
+        assertArrayEquals(new double[]{0, 3, 4, 3, 0}, Centrality.betweenness(path, false, 2), 1e-9);
+        assertArrayEquals(new double[]{0, 3, 4, 3, 0}, Centrality.betweenness(path, true, 1), 1e-9);
+
+        // 星形图：中心位于其余C(5,2)=10对顶点的唯一最短路上
+        AdjacencyListGraph star = new AdjacencyListGraph(6, GraphType.UNDIRECTED);
+        for (int u = 1; u < 6; u++) {
+            star.addEdge(0, u, 1);
+        }
+        assertEquals(10.0, Centrality.betweenness(star, false, 3)[0], 1e-9);
+
+        // 0-2直连权重为5，带权时最短路经过1
+        AdjacencyListGraph triangle = new AdjacencyListGraph(3, GraphType.UNDIRECTED);
+        triangle.addEdge(0, 1, 1);
+        triangle.addEdge(1, 2, 1);
+        triangle.addEdge(0, 2, 5);
+        assertEquals(0.0, Centrality.betweenness(triangle, false, 1)[1], 1e-9);
+        assertEquals(1.0, Centrality.betweenness(triangle, true, 1)[1], 1e-9);
+
+        // 有向菱形：0->1->3、0->2->3两条最短路，1和2各分得一半
+        AdjacencyListGraph diamond = new AdjacencyListGraph(4, GraphType.DIRECTED);
+        diamond.addEdge(0, 1, 2);
+        diamond.addEdge(0, 2, 1);
+        diamond.addEdge(1, 3, 1);
+        diamond.addEdge(2, 3, 2);
+        assertArrayEquals(new double[]{0, 0.5, 0.5, 0}, Centrality.betweenness(diamond, true, 2), 1e-9);
+    }
+
+    /**
+     * 测试多线程与单线程结果一致，抽样估计在全部源点抽样时接近精确值且在误差界内
+     */
+    @Test
+    void testCentrality_ParallelAndSampling() {
+        int n = 400;
+        Random random = new Random(15);
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.UNDIRECTED);
+        for (int i = 0; i < n * 3; i++) {
+            graph.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(5));
+        }
+
+        double[] exact = Centrality.betweenness(graph, true, 1);
+        assertArrayEquals(exact, Centrality.betweenness(graph, true, 4), 1e-6);
+
+        int k = 200;
+        double[] approx = Centrality.approximateBetweenness(graph, true, k, 1, 4);
+        double bound = Centrality.errorBound(n, k, 0.01);
+        double maxError = 0;
+        int top = 0;
+        for (int u = 0; u < n; u++) {
+            maxError = Math.max(maxError, Math.abs(approx[u] - exact[u]));
+            if (exact[u] > exact[top]) {
+                top = u;
+            }
+        }
+        assertTrue(maxError <= bound);
+        assertEquals(exact[top], approx[top], exact[top] * 0.3);
+    }
+
+    /**
+     * 测试接近中心性：路径中点最大，非连通图按可达顶点数折算
+     */
+    @Test
+    void testCentrality_Closeness() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.UNDIRECTED);
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(1, 2, 1);
+        graph.addEdge(3, 4, 2);
+
+        double[] closeness = Centrality.closeness(graph, false, 2);
+        assertEquals(2.0 / 4 * 2 / 2, closeness[1], 1e-12);
+        assertEquals(2.0 / 4 * 2 / 3, closeness[0], 1e-12);
+        assertEquals(1.0 / 4 * 1 / 1, closeness[3], 1e-12);
+        assertEquals(1.0 / 4 * 1 / 2, Centrality.closeness(graph, true, 1)[4], 1e-12);
+    }
+
+
+    /**
+     * 测试完全图K4：4个三角形，每个顶点参与3个，聚类系数为1；重复边、自环和边的方向不影响结果
+     */
+    @Test
+    void testTriangleCounting_CompleteGraph() {
+        AdjacencyListGraph graph = new AdjacencyListGraph(5, GraphType.DIRECTED);
+        for (int u = 0; u < 4; u++) {
+            for (int v = u + 1; v < 4; v++) {
+                graph.addEdge(u, v, 1);
+                graph.addEdge(v, u, 1);
+            }
+        }
+        graph.addEdge(0, 1, 1);
+        graph.addEdge(2, 2, 1);
+        graph.addEdge(3, 4, 1);
+
+        TriangleCounting.Result result = TriangleCounting.count(graph);
+        assertEquals(4L, result.triangles);
+        assertArrayEquals(new long[]{3, 3, 3, 3, 0}, result.perVertex);
+        assertEquals(1.0, result.clustering[0], 1e-12);
+        assertEquals(0.5, result.clustering[3], 1e-12); // 度数4，C(4,2)=6对邻居中3对相连
+        assertEquals(0.0, result.clustering[4], 1e-12);
+    }
+
+    /**
+     * 测试含稠密子图的随机图（走到位图和倍增查找两条路径）与暴力枚举结果一致
+     */
+    @Test
+    void testTriangleCounting_MatchesBruteForce() {
+        int n = 1500;
+        Random random = new Random(16);
+        boolean[][] adj = new boolean[n][n];
+        AdjacencyListGraph graph = new AdjacencyListGraph(n, GraphType.UNDIRECTED);
+        // 前400个顶点构成稠密子图：排序靠前的顶点前向邻居数超过位图阈值，
+        // 前向邻居较多的顶点与排在末尾的顶点求交集时长度悬殊，触发倍增查找
+        for (int u = 0; u < 400; u++) {
+            for (int v = u + 1; v < 400; v++) {
+                if (random.nextInt(10) < 8) {
+                    adj[u][v] = adj[v][u] = true;
+                    graph.addEdge(u, v, 1);
+                }
+            }
+        }
+        for (int i = 0; i < n * 4; i++) {
+            int u = random.nextInt(n);
+            int v = random.nextInt(n);
+            if (u != v && !adj[u][v]) {
+                adj[u][v] = adj[v][u] = true;
+                graph.addEdge(u, v, 1);
+            }
+        }
+
+        long expected = 0;
+        long[] perVertex = new long[n];
+        for (int u = 0; u < n; u++) {
+            for (int v = u + 1; v < n; v++) {
+                if (!adj[u][v]) {
+                    continue;
+                }
+                for (int w = v + 1; w < n; w++) {
+                    if (adj[u][w] && adj[v][w]) {
+                        expected++;
+                        perVertex[u]++;
+                        perVertex[v]++;
+                        perVertex[w]++;
+                    }
+                }
+            }
+        }
+
+        TriangleCounting.Result result = TriangleCounting.count(graph);
+        assertEquals(expected, result.triangles);
+        assertArrayEquals(perVertex, result.perVertex);
+    }
+
+
+    /**
+     * 测试经典网络上Dinic与推进-重标号的最大流值，以及最小割容量等于最大流
+     */
+    @Test
+    void testMaxFlow_ClassicNetwork() {
+        // CLRS中的例子，最大流为23
+        AdjacencyListGraph graph = new AdjacencyListGraph(6, GraphType.DIRECTED);
+        graph.addEdge(0, 1, 16);
+        graph.addEdge(0, 2, 13);
+        graph.addEdge(1, 3, 12);
+        graph.addEdge(2, 1, 4);
+        graph.addEdge(2, 4, 14);
+        graph.addEdge(3, 2, 9);
+        graph.addEdge(3, 5, 20);
+        graph.addEdge(4, 3, 7);
+        graph.addEdge(4, 5, 4);
+
+        for (MaxFlow.Result result : new MaxFlow.Result[]{MaxFlow.dinic(graph, 0, 5), MaxFlow.pushRelabel(graph, 0, 5)}) {
+            assertEquals(23L, result.value);
+            assertTrue(result.sourceSide[0]);
+            assertTrue(!result.sourceSide[5]);
+            assertEquals(23, result.cutEdges.stream().mapToInt(Edge::getWeight).sum());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> MaxFlow.dinic(graph, 0, 0));
+        AdjacencyListGraph negative = new AdjacencyListGraph(2, GraphType.DIRECTED);
+        negative.addEdge(0, 1, -1);
+        assertThrows(IllegalArgumentException.class, () -> MaxFlow.pushRelabel(negative, 0, 1));
+    }
+
+    /**
+     * 测试随机有向图、无向图上两种算法结果一致，最小割两侧划分正确，汇点不可达时流为0
+     */
+    @Test
+    void testMaxFlow_RandomNetworks() {
+        Random random = new Random(17);
+        for (GraphType type : GraphType.values()) {
+            for (int round = 0; round < 20; round++) {
+                int n = 50 + random.nextInt(150);
+                AdjacencyListGraph graph = new AdjacencyListGraph(n, type);
+                for (int i = 0; i < n * 4; i++) {
+                    graph.addEdge(random.nextInt(n), random.nextInt(n), random.nextInt(100));
+                }
+                MaxFlow.Result dinic = MaxFlow.dinic(graph, 0, n - 1);
+                MaxFlow.Result pushRelabel = MaxFlow.pushRelabel(graph, 0, n - 1);
+                assertEquals(dinic.value, pushRelabel.value);
+                for (MaxFlow.Result result : new MaxFlow.Result[]{dinic, pushRelabel}) {
+                    long cut = 0;
+                    for (Edge edge : result.cutEdges) {
+                        assertTrue(result.sourceSide[edge.getFrom()] && !result.sourceSide[edge.getTo()]);
+                        cut += edge.getWeight();
+                    }
+                    assertEquals(result.value, cut);
+                }
+            }
+        }
+
+        AdjacencyListGraph disconnected = new AdjacencyListGraph(3, GraphType.DIRECTED);
+        disconnected.addEdge(0, 1, 5);
+        assertEquals(0L, MaxFlow.dinic(disconnected, 0, 2).value);
+        assertEquals(0L, MaxFlow.pushRelabel(disconnected, 0, 2).value);
+    }
 }
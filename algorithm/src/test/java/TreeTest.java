@@ -0,0 +1,1254 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TreeTest {
+    /**
+     * 差分测试：随机插入、删除、查找与范围查询，AVL树和B+树的结果都与TreeMap一致
+     * 小键域时树反复增长又缩小，覆盖删除时的借项、合并与根节点收缩
+     */
+    @Test
+    void testIntIndexes_MatchTreeMap() {
+        Random random = new Random(9);
+        for (int round = 0; round < 20; round++) {
+            Tree.IntAvlTree avl = new Tree.IntAvlTree();
+            Tree.IntBPlusTree bPlusTree = new Tree.IntBPlusTree();
+            TreeMap<Integer, Long> expected = new TreeMap<>();
+            int keyRange = round % 2 == 0 ? 200 : 20000;
+            int ops = 20000 + random.nextInt(20000);
+            for (int i = 0; i < ops; i++) {
+                int key = random.nextInt(keyRange) - keyRange / 4;
+                int op = random.nextInt(10);
+                if (op < 5) {
+                    long value = random.nextLong();
+                    boolean inserted = expected.put(key, value) == null;
+                    assertEquals(inserted, avl.put(key, value));
+                    assertEquals(inserted, bPlusTree.put(key, value));
+                } else if (op < 9) {
+                    boolean existed = expected.remove(key) != null;
+                    assertEquals(existed, avl.remove(key));
+                    assertEquals(existed, bPlusTree.remove(key));
+                } else {
+                    long value = expected.getOrDefault(key, -7L);
+                    assertEquals(value, avl.get(key, -7));
+                    assertEquals(value, bPlusTree.get(key, -7));
+                }
+                if (i % 1000 == 0) {
+                    int from = random.nextInt(keyRange) - keyRange / 2;
+                    int to = from + random.nextInt(keyRange);
+                    List<Long> range = entries(expected, from, to);
+                    assertEquals(range, entries(avl, from, to));
+                    assertEquals(range, entries(bPlusTree, from, to));
+                    assertEquals(expected.size(), avl.size());
+                    assertEquals(expected.size(), bPlusTree.size());
+                }
+            }
+            assertEquals(entries(expected, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                    entries(bPlusTree, Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+            // 全部删除后两棵树都为空，B+树收缩回单个叶子
+            for (int key : new ArrayList<>(expected.keySet())) {
+                assertTrue(avl.remove(key));
+                assertTrue(bPlusTree.remove(key));
+            }
+            assertEquals(0, avl.size());
+            assertEquals(0, bPlusTree.size());
+            assertEquals(1, bPlusTree.height());
+            assertTrue(entries(bPlusTree, Integer.MIN_VALUE, Integer.MAX_VALUE).isEmpty());
+        }
+    }
+
+    /**
+     * 测试B+树顺序删除：从左端删除时向右兄弟借项或合并，从右端删除时向左兄弟借项或合并，最后根节点逐层收缩
+     */
+    @Test
+    void testIntBPlusTree_RemoveRebalancesAndCollapsesRoot() {
+        int n = 10000;
+        Tree.IntBPlusTree tree = new Tree.IntBPlusTree();
+        TreeMap<Integer, Long> expected = new TreeMap<>();
+        for (int k = 0; k < n; k++) {
+            tree.put(k, k * 10L);
+            expected.put(k, k * 10L);
+        }
+        int height = tree.height();
+        assertTrue(height >= 3);
+
+        int lo = 0;
+        int hi = n - 1;
+        for (int step = 0; lo <= hi; step++) {
+            // 左端删两个、右端删一个，两侧的兄弟都会被借空再合并
+            int key = step % 3 == 2 ? hi-- : lo++;
+            assertTrue(tree.remove(key));
+            assertTrue(!tree.remove(key));
+            expected.remove(key);
+            assertTrue(tree.height() <= height);
+            height = tree.height();
+            if (step % 500 == 0) {
+                assertEquals(entries(expected, Integer.MIN_VALUE, Integer.MAX_VALUE),
+                        entries(tree, Integer.MIN_VALUE, Integer.MAX_VALUE));
+                assertEquals(expected.size(), tree.size());
+                if (!expected.isEmpty()) {
+                    assertEquals(expected.firstKey() * 10L, tree.get(expected.firstKey(), -1));
+                }
+            }
+        }
+        assertEquals(0, tree.size());
+        assertEquals(1, tree.height());
+
+        // 收缩后的树可以继续使用
+        for (int k = 0; k < 100; k++) {
+            tree.put(k, k);
+        }
+        assertEquals(100, tree.size());
+        List<Long> range = new ArrayList<>();
+        tree.range(40, 43, (k, v) -> range.add(v));
+        assertEquals(List.of(40L, 41L, 42L), range);
+        assertEquals(42L, tree.get(42, -1));
+    }
+
+    /**
+     * 测试关闭后的快照拒绝读取，包括关闭前已经打开的迭代器；重复关闭没有副作用
+     */
+    @Test
+    void testConcurrentIntLongMap_ClosedSnapshotRejectsReads() {
+        Tree.ConcurrentIntLongMap map = new Tree.ConcurrentIntLongMap();
+        for (int k = 0; k < 10; k++) {
+            map.put(k, k);
+        }
+        Tree.ConcurrentIntLongMap.Snapshot snapshot = map.snapshot();
+        Tree.ConcurrentIntLongMap.Cursor cursor = snapshot.cursor(0);
+        assertTrue(cursor.next());
+        assertEquals(0, cursor.key());
+        snapshot.close();
+        snapshot.close();
+
+        assertThrows(IllegalStateException.class, () -> snapshot.get(1, -1));
+        assertThrows(IllegalStateException.class, () -> snapshot.range(0, 10, (k, v) -> { }));
+        assertThrows(IllegalStateException.class, () -> snapshot.cursor(0));
+        assertThrows(IllegalStateException.class, cursor::next);
+
+        // 其他快照不受影响
+        map.put(1, 100);
+        try (Tree.ConcurrentIntLongMap.Snapshot other = map.snapshot()) {
+            assertEquals(100L, other.get(1, -1));
+        }
+    }
+
+    /**
+     * 测试多个线程并发增删各自的键，最终内容与各线程的TreeMap合并结果一致
+     */
+    @Test
+    void testConcurrentIntLongMap_ConcurrentWriters() throws Exception {
+        Tree.ConcurrentIntLongMap map = new Tree.ConcurrentIntLongMap();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<TreeMap<Integer, Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                futures.add(executor.submit(() -> {
+                    // 线程id只操作模threads余id的键，返回值与本线程的TreeMap逐一核对
+                    Random random = new Random(id);
+                    TreeMap<Integer, Long> own = new TreeMap<>();
+                    for (int i = 0; i < 50000; i++) {
+                        int key = random.nextInt(5000) * threads + id;
+                        if (random.nextInt(3) > 0) {
+                            long value = random.nextLong();
+                            assertEquals(own.put(key, value) == null, map.put(key, value));
+                        } else {
+                            assertEquals(own.remove(key) != null, map.remove(key));
+                        }
+                    }
+                    return own;
+                }));
+            }
+            TreeMap<Integer, Long> expected = new TreeMap<>();
+            for (Future<TreeMap<Integer, Long>> future : futures) {
+                expected.putAll(future.get());
+            }
+            List<Long> actual = new ArrayList<>();
+            map.range(Integer.MIN_VALUE, Integer.MAX_VALUE, (k, v) -> {
+                actual.add((long) k);
+                actual.add(v);
+            });
+            assertEquals(entries(expected, Integer.MIN_VALUE, Integer.MAX_VALUE), actual);
+            assertEquals(expected.size(), map.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 压力测试：写线程并发插入、删除、按轮改写时，每个快照都是某一时刻的一致状态
+     * 1. 键0..n-1按升序插入、按升序删除，快照中的非负键必须连续
+     * 2. 第r轮把k个负键依次改写为r，快照中必须是前一段为r、后一段为r-1
+     * 3. 同一快照重复读取结果不变
+     */
+    @Test
+    void testConcurrentIntLongMap_SnapshotStress() throws Exception {
+        Tree.ConcurrentIntLongMap map = new Tree.ConcurrentIntLongMap();
+        int n = 100000;
+        int k = 64;
+        for (int i = 0; i < k; i++) {
+            map.put(-k - 1 + i, 0);
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> inserter = executor.submit(() -> {
+                for (int key = 0; key < n; key++) {
+                    map.put(key, key);
+                }
+            });
+            Future<?> remover = executor.submit(() -> {
+                for (int key = 0; key < n; ) {
+                    if (map.remove(key)) {
+                        key++;
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            });
+            Future<?> rewriter = executor.submit(() -> {
+                for (long round = 1; !stop.get(); round++) {
+                    for (int i = 0; i < k; i++) {
+                        map.put(-k - 1 + i, round);
+                    }
+                }
+            });
+
+            int snapshots = 0;
+            while (!remover.isDone() || snapshots == 0) {
+                try (Tree.ConcurrentIntLongMap.Snapshot snapshot = map.snapshot()) {
+                    List<Integer> keys = new ArrayList<>();
+                    List<Long> rounds = new ArrayList<>();
+                    Tree.ConcurrentIntLongMap.Cursor cursor = snapshot.cursor(Integer.MIN_VALUE);
+                    while (cursor.next()) {
+                        if (cursor.key() >= 0) {
+                            keys.add(cursor.key());
+                        } else {
+                            rounds.add(cursor.value());
+                        }
+                    }
+                    for (int i = 1; i < keys.size(); i++) {
+                        assertEquals(keys.get(i - 1) + 1, (int) keys.get(i));
+                    }
+                    assertEquals(k, rounds.size());
+                    long top = rounds.get(0);
+                    boolean older = false;
+                    for (long round : rounds) {
+                        if (round == top - 1) {
+                            older = true;
+                        } else {
+                            assertTrue(round == top && !older, "快照读到了不一致的轮次：" + rounds);
+                        }
+                    }
+                    List<Integer> again = new ArrayList<>();
+                    snapshot.range(0, Integer.MAX_VALUE, (key, v) -> again.add(key));
+                    assertEquals(keys, again);
+                    snapshots++;
+                }
+            }
+            stop.set(true);
+            inserter.get();
+            remover.get();
+            rewriter.get();
+            assertEquals(k, map.size());
+        } finally {
+            stop.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 测试堆构造与双队列构造的带权路径长度相同，且与原来排序合并的构造结果一致
+     */
+    @Test
+    void testHuffmanTree_BuildersAgree() {
+        Random random = new Random(41);
+        for (int round = 0; round < 200; round++) {
+            int n = 2 + random.nextInt(300);
+            long[] weights = new long[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = random.nextInt(round % 2 == 0 ? 1000 : 3); //小权重域时大量相等的权重
+            }
+            long expected = referenceWeightedPathLength(weights);
+            Tree.HuffmanArrayTree heap = Tree.HuffmanTree.buildWithHeap(weights);
+            assertEquals(expected, heap.weightedPathLength());
+            assertEquals(expected, weightedPathLength(heap.toNode()));
+
+            long[] sorted = weights.clone();
+            Arrays.sort(sorted);
+            Tree.HuffmanArrayTree twoQueue = Tree.HuffmanTree.buildTwoQueue(sorted);
+            assertEquals(expected, twoQueue.weightedPathLength());
+            assertEquals(expected, weightedPathLength(twoQueue.toNode()));
+            assertEquals(2 * n - 1, twoQueue.root() + 1);
+        }
+
+        int[] intWeights = {45, 13, 12, 16, 9, 5};
+        assertEquals(224, weightedPathLength(Tree.HuffmanTree.buildHuffmanTree(intWeights)));
+    }
+
+    /**
+     * 测试只有一个权重和没有权重的边界情况
+     */
+    @Test
+    void testHuffmanTree_SingleAndEmpty() {
+        Tree.HuffmanArrayTree single = Tree.HuffmanTree.buildWithHeap(new long[]{7});
+        assertEquals(0, single.root());
+        assertTrue(single.isLeaf(single.root()));
+        assertEquals(0, single.weightedPathLength());
+        assertEquals(0, Tree.HuffmanTree.buildTwoQueue(new long[]{7}).weightedPathLength());
+        Tree.HuffmanNode node = Tree.HuffmanTree.buildHuffmanTree(new int[]{7});
+        assertEquals(7, node.weight);
+        assertTrue(node.left == null && node.right == null);
+
+        assertTrue(Tree.HuffmanTree.buildWithHeap(new long[0]) == null);
+        assertTrue(Tree.HuffmanTree.buildTwoQueue(new long[0]) == null);
+        assertTrue(Tree.HuffmanTree.buildHuffmanTree(new int[0]) == null);
+    }
+
+    /**
+     * 测试非法输入：双队列构造要求升序，负权重被拒绝，合并的权重溢出时抛出ArithmeticException
+     */
+    @Test
+    void testHuffmanTree_RejectsBadInput() {
+        assertThrows(IllegalArgumentException.class, () -> Tree.HuffmanTree.buildTwoQueue(new long[]{1, 3, 2}));
+        assertThrows(RuntimeException.class, () -> Tree.HuffmanTree.buildWithHeap(new long[]{1, -1}));
+        assertThrows(ArithmeticException.class, () -> Tree.HuffmanTree.buildWithHeap(new long[]{Long.MAX_VALUE, 1}));
+        assertThrows(ArithmeticException.class,
+                () -> Tree.HuffmanTree.buildTwoQueue(new long[]{1, Long.MAX_VALUE / 2 + 1, Long.MAX_VALUE / 2 + 1}));
+        // int权重之和超过int范围时不溢出
+        int[] big = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+        assertEquals(5L * Integer.MAX_VALUE, weightedPathLength(Tree.HuffmanTree.buildHuffmanTree(big)));
+    }
+
+    /**
+     * 测试随机频率、不同码长上限下编码再解码得到原数据，覆盖1个符号、256个符号和超过一级表位数的长码字；
+     * 解码结束后输入位置停在编码数据之后，不吞掉后面的字节
+     */
+    @Test
+    void testCanonicalHuffman_RoundTrip() {
+        Random random = new Random(42);
+        int[] maxLengths = {8, Tree.CanonicalHuffman.TABLE_BITS, 15, Tree.CanonicalHuffman.MAX_CODE_LENGTH};
+        boolean sawLongCode = false;
+        for (int round = 0; round < 80; round++) {
+            long[] freqs = new long[256];
+            int symbols = round % 4 == 0 ? 1 : round % 4 == 1 ? 256 : 2 + random.nextInt(60);
+            long fib = 1;
+            long prev = 0;
+            for (int i = 0; i < symbols; i++) {
+                int s = symbols == 256 ? i : random.nextInt(256);
+                //一半轮次的前20个符号用斐波那契频率，使不限长时码长超过TABLE_BITS
+                if (round % 8 >= 4 && i < 20) {
+                    freqs[s] += fib;
+                    fib += prev;
+                    prev = fib - prev;
+                } else {
+                    freqs[s] += 1 + random.nextInt(50);
+                }
+            }
+            byte[] data = symbolsOf(freqs, random);
+            for (int maxLength : maxLengths) {
+                Tree.CanonicalHuffman code = Tree.CanonicalHuffman.fromFrequencies(freqs, maxLength);
+                for (int len : code.lengths) {
+                    sawLongCode |= len > Tree.CanonicalHuffman.TABLE_BITS;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(3 + data.length * maxLength / 8 + 16);
+                buffer.put(new byte[]{1, 2, 3});
+                int written = code.encode(data, 0, data.length, buffer);
+                assertEquals((code.encodedBits(freqs) + 7) / 8, written);
+                buffer.put((byte) 0x5A).flip();
+                buffer.position(3);
+
+                byte[] decoded = new byte[data.length];
+                code.decoder().decode(buffer, decoded, 0, decoded.length);
+                assertArrayEquals(data, decoded);
+                assertEquals(3 + written, buffer.position());
+                assertEquals(0x5A, buffer.get());
+            }
+        }
+        assertTrue(sawLongCode);
+    }
+
+    /**
+     * 测试codeLengths的码长不超过上限、不出现的符号码长为0、Kraft和恰好为1（完全编码）；
+     * 上限足够时与不限长的哈夫曼编码一样最优，限长时不会更优
+     */
+    @Test
+    void testCanonicalHuffman_CodeLengthsKraft() {
+        Random random = new Random(4242);
+        for (int round = 0; round < 300; round++) {
+            int n = 2 + random.nextInt(300);
+            long[] freqs = new long[n];
+            for (int i = 0; i < n; i++) {
+                freqs[i] = random.nextInt(4) == 0 ? 0 : round % 2 == 0 ? 1 + random.nextInt(1000) : 1L << random.nextInt(30);
+            }
+            List<Long> present = new ArrayList<>();
+            for (long f : freqs) {
+                if (f > 0) {
+                    present.add(f);
+                }
+            }
+            if (present.size() < 2) {
+                continue;
+            }
+            long[] weights = new long[present.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = present.get(i);
+            }
+            long optimal = referenceWeightedPathLength(weights);
+            int minLength = 32 - Integer.numberOfLeadingZeros(weights.length - 1);
+            for (int maxLength = minLength; maxLength <= Tree.CanonicalHuffman.MAX_CODE_LENGTH; maxLength++) {
+                int[] lengths = Tree.CanonicalHuffman.codeLengths(freqs, maxLength);
+                long kraft = 0;
+                for (int s = 0; s < n; s++) {
+                    assertTrue(lengths[s] <= maxLength);
+                    assertEquals(freqs[s] == 0, lengths[s] == 0);
+                    if (lengths[s] > 0) {
+                        kraft += 1L << (Tree.CanonicalHuffman.MAX_CODE_LENGTH - lengths[s]);
+                    }
+                }
+                assertEquals(1L << Tree.CanonicalHuffman.MAX_CODE_LENGTH, kraft);
+                long bits = Tree.CanonicalHuffman.fromLengths(lengths).encodedBits(freqs);
+                assertTrue(bits >= optimal);
+                if (maxLength == Tree.CanonicalHuffman.MAX_CODE_LENGTH && round % 2 == 0) {
+                    assertEquals(optimal, bits);
+                }
+            }
+        }
+        //只有一个符号时码长为1
+        assertArrayEquals(new int[]{0, 1, 0}, Tree.CanonicalHuffman.codeLengths(new long[]{0, 5, 0}, 4));
+        assertArrayEquals(new int[3], Tree.CanonicalHuffman.codeLengths(new long[3], 4));
+    }
+
+    /**
+     * 测试非法的码长与码长上限被拒绝，无效的编码数据解码时报错
+     */
+    @Test
+    void testCanonicalHuffman_RejectsBadInput() {
+        assertThrows(IllegalArgumentException.class, () -> Tree.CanonicalHuffman.fromLengths(new int[]{1, 1, 1}));
+        assertThrows(IllegalArgumentException.class, () -> Tree.CanonicalHuffman.fromLengths(new int[]{1, 2, 2, 2}));
+        assertThrows(IllegalArgumentException.class, () -> Tree.CanonicalHuffman.fromLengths(new int[]{2, 2, 2, 2, 3}));
+        assertThrows(IllegalArgumentException.class, () -> Tree.CanonicalHuffman.fromLengths(new int[]{1, -1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> Tree.CanonicalHuffman.fromLengths(new int[]{1, Tree.CanonicalHuffman.MAX_CODE_LENGTH + 1}));
+        Tree.CanonicalHuffman.fromLengths(new int[]{1, 2, 3, 3});
+
+        long[] freqs = {1, 1, 1};
+        assertThrows(IllegalArgumentException.class, () -> Tree.CanonicalHuffman.codeLengths(freqs, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> Tree.CanonicalHuffman.codeLengths(freqs, Tree.CanonicalHuffman.MAX_CODE_LENGTH + 1));
+        assertThrows(IllegalArgumentException.class, () -> Tree.CanonicalHuffman.codeLengths(freqs, 1));
+        assertThrows(RuntimeException.class, () -> Tree.CanonicalHuffman.codeLengths(new long[]{1, -1}, 4));
+
+        //只有符号0（码字为0），全1的数据不是合法码字
+        Tree.CanonicalHuffman single = Tree.CanonicalHuffman.fromLengths(new int[]{1});
+        assertThrows(IllegalArgumentException.class,
+                () -> single.decoder().decode(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), new byte[4], 0, 4));
+        assertThrows(IllegalArgumentException.class, () -> single.encode(new byte[]{1}, 0, 1, ByteBuffer.allocate(8)));
+    }
+
+    /**
+     * 测试共享编码与每块单独编码的压缩再解压得到原数据，覆盖空输入、不足一块、末块不满、
+     * 原样存储的随机数据块，以及按块随机读取
+     */
+    @Test
+    void testHuffmanBlockCodec_RoundTrip() {
+        Random random = new Random(43);
+        int[] sizes = {0, 1, 700, 4096, 50000};
+        int[] blockSizes = {1000, 4096, Tree.HuffmanBlockCodec.DEFAULT_BLOCK_SIZE};
+        for (int size : sizes) {
+            for (int blockSize : blockSizes) {
+                for (int kind = 0; kind < 3; kind++) {
+                    byte[] data = new byte[size];
+                    for (int i = 0; i < size; i++) {
+                        //0：偏斜的文本，1：均匀随机字节（应原样存储），2：按块交替
+                        boolean noise = kind == 1 || kind == 2 && i / blockSize % 2 == 1;
+                        data[i] = noise ? (byte) random.nextInt(256)
+                                : (byte) ('a' + Math.min(25, (int) Math.abs(random.nextGaussian() * 4)));
+                    }
+                    for (boolean sharedCode : new boolean[]{true, false}) {
+                        byte[] compressed = Tree.HuffmanBlockCodec.compress(data, blockSize, sharedCode);
+                        int blockCount = (size + blockSize - 1) / blockSize;
+                        assertTrue(compressed.length <= size + 21 + 13 * blockCount + 256);
+
+                        //容器前面有其他数据时从当前位置开始解析
+                        ByteBuffer buffer = ByteBuffer.allocate(5 + compressed.length);
+                        buffer.position(5);
+                        buffer.put(compressed).position(5);
+                        Tree.HuffmanBlockCodec.Container container = Tree.HuffmanBlockCodec.open(buffer);
+                        assertEquals(blockCount, container.getBlockCount());
+                        assertEquals(size, container.getLength());
+                        assertArrayEquals(data, container.decompress());
+                        assertEquals(5, buffer.position());
+
+                        List<Integer> order = new ArrayList<>();
+                        for (int b = 0; b < blockCount; b++) {
+                            order.add(b);
+                        }
+                        Collections.shuffle(order, random);
+                        for (int b : order) {
+                            int start = b * blockSize;
+                            int end = Math.min(size, start + blockSize);
+                            assertArrayEquals(Arrays.copyOfRange(data, start, end), container.readBlock(b));
+                            assertEquals(b, container.blockOf(start));
+                            assertEquals(b, container.blockOf(end - 1));
+                        }
+                        assertThrows(IndexOutOfBoundsException.class, () -> container.readBlock(blockCount));
+                        assertThrows(IndexOutOfBoundsException.class, () -> container.blockOf(size));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 测试头部或索引损坏的容器在打开时报错，而不是在解压时越界或除零
+     */
+    @Test
+    void testHuffmanBlockCodec_RejectsCorruptContainer() {
+        byte[] data = new byte[10000];
+        Random random = new Random(4343);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i < 5000 ? 'a' + random.nextInt(4) : random.nextInt(256));
+        }
+        byte[] compressed = Tree.HuffmanBlockCodec.compress(data, 2500, false);
+        int index = 21; //头部之后是索引，每项为 偏移(8) 长度(4) 是否原样存储(1)
+        int dataStart = index + 13 * 4;
+        assertArrayEquals(data, Tree.HuffmanBlockCodec.open(ByteBuffer.wrap(compressed)).decompress());
+
+        assertCorrupt(compressed, buf -> buf.putInt(0, 0));
+        assertCorrupt(compressed, buf -> buf.putInt(4, 0));
+        assertCorrupt(compressed, buf -> buf.putInt(4, -2500));
+        assertCorrupt(compressed, buf -> buf.putLong(8, -1));
+        assertCorrupt(compressed, buf -> buf.putInt(16, -1));
+        assertCorrupt(compressed, buf -> buf.putInt(16, 5));
+        assertCorrupt(compressed, buf -> buf.putInt(16, 1 << 30));
+        assertCorrupt(compressed, buf -> buf.putLong(index, 0));
+        assertCorrupt(compressed, buf -> buf.putLong(index, dataStart - 1));
+        assertCorrupt(compressed, buf -> buf.putLong(index, compressed.length));
+        assertCorrupt(compressed, buf -> buf.putLong(index, Long.MAX_VALUE));
+        assertCorrupt(compressed, buf -> buf.putInt(index + 8, -1));
+        assertCorrupt(compressed, buf -> buf.putInt(index + 8, compressed.length));
+        assertCorrupt(compressed, buf -> buf.putInt(index + 8, 255)); //单独编码的块放不下码长表
+        assertCorrupt(compressed, buf -> buf.put(index + 12, (byte) 1)); //编码后的长度不等于原始长度
+        assertCorrupt(compressed, buf -> buf.limit(dataStart - 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> Tree.HuffmanBlockCodec.open(ByteBuffer.wrap(compressed, 0, 20)));
+
+        //共享码长表中的码长超出范围
+        byte[] sharedCompressed = Tree.HuffmanBlockCodec.compress(data, 2500, true);
+        assertCorrupt(sharedCompressed, buf -> buf.put(index, (byte) -1));
+    }
+
+    /**
+     * 测试编码数据被截断时解码报错，而不是把补的0当作数据解出
+     */
+    @Test
+    void testHuffmanBlockCodec_TruncatedDataFails() {
+        byte[] data = new byte[3000];
+        Random random = new Random(434);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + Math.min(25, (int) Math.abs(random.nextGaussian() * 4)));
+        }
+        Tree.CanonicalHuffman code = Tree.CanonicalHuffman.fromFrequencies(
+                Tree.CanonicalHuffman.histogram(data, 0, data.length), Tree.HuffmanBlockCodec.MAX_CODE_LENGTH);
+        ByteBuffer encoded = ByteBuffer.allocate(data.length);
+        int written = code.encode(data, 0, data.length, encoded);
+        Tree.CanonicalHuffman.Decoder decoder = code.decoder();
+        for (int cut = 1; cut <= 12; cut++) {
+            ByteBuffer truncated = ByteBuffer.wrap(encoded.array(), 0, written - cut);
+            assertThrows(IllegalArgumentException.class, () -> decoder.decode(truncated, new byte[data.length], 0, data.length));
+        }
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode(ByteBuffer.allocate(0), new byte[1], 0, 1));
+
+        //索引中第一块的长度少一个字节：打开成功，读这一块时报错，其他块不受影响
+        byte[] twoBlocks = new byte[2 * data.length];
+        System.arraycopy(data, 0, twoBlocks, 0, data.length);
+        System.arraycopy(data, 0, twoBlocks, data.length, data.length);
+        for (boolean sharedCode : new boolean[]{true, false}) {
+            ByteBuffer container = ByteBuffer.wrap(Tree.HuffmanBlockCodec.compress(twoBlocks, data.length, sharedCode));
+            int sizeAt = 21 + (sharedCode ? 256 : 0) + 8;
+            container.putInt(sizeAt, container.getInt(sizeAt) - 1);
+            Tree.HuffmanBlockCodec.Container opened = Tree.HuffmanBlockCodec.open(container);
+            assertThrows(IllegalArgumentException.class, () -> opened.readBlock(0));
+            assertArrayEquals(data, opened.readBlock(1));
+        }
+    }
+
+    /**
+     * 测试非递归、Morris和写入数组的九种遍历在随机树上都与递归遍历结果一致，
+     * Morris遍历后树的形状恢复原样，size不改动树
+     */
+    @Test
+    void testBinaryTreeTraversals_MatchRecursive() {
+        Random random = new Random(44);
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        for (int round = 0; round < 300; round++) {
+            Tree.TreeNode root = randomTree(random, round == 0 ? 0 : 1 + random.nextInt(400));
+            List<Integer> shape = shapeOf(root);
+            List<Integer> pre = new ArrayList<>();
+            List<Integer> in = new ArrayList<>();
+            List<Integer> post = new ArrayList<>();
+            binaryTree.preOrder(root, pre);
+            binaryTree.inOrder(root, in);
+            binaryTree.postOrder(root, post);
+
+            assertEquals(pre, collect(action -> binaryTree.preOrderIterative(root, action)));
+            assertEquals(in, collect(action -> binaryTree.inOrderIterative(root, action)));
+            assertEquals(post, collect(action -> binaryTree.postOrderIterative(root, action)));
+            assertEquals(pre, collect(action -> binaryTree.morrisPreOrder(root, action)));
+            assertEquals(shape, shapeOf(root));
+            assertEquals(in, collect(action -> binaryTree.morrisInOrder(root, action)));
+            assertEquals(shape, shapeOf(root));
+            assertEquals(post, collect(action -> binaryTree.morrisPostOrder(root, action)));
+            assertEquals(shape, shapeOf(root));
+            assertArrayEquals(toArray(pre), binaryTree.preOrderArray(root));
+            assertArrayEquals(toArray(in), binaryTree.inOrderArray(root));
+            assertArrayEquals(toArray(post), binaryTree.postOrderArray(root));
+            assertEquals(pre.size(), binaryTree.size(root));
+            assertEquals(shape, shapeOf(root));
+        }
+    }
+
+    /**
+     * 测试退化成链的深树：非递归与Morris遍历不会栈溢出，结果正确
+     */
+    @Test
+    void testBinaryTreeTraversals_DeepChain() {
+        int n = 1_000_000;
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        //左链：先序为0..n-1，中序与后序为n-1..0
+        Tree.TreeNode leftChain = new Tree.TreeNode(0);
+        Tree.TreeNode node = leftChain;
+        for (int i = 1; i < n; i++) {
+            node.left = new Tree.TreeNode(i);
+            node = node.left;
+        }
+        int[] ascending = new int[n];
+        int[] descending = new int[n];
+        for (int i = 0; i < n; i++) {
+            ascending[i] = i;
+            descending[i] = n - 1 - i;
+        }
+        assertEquals(n, binaryTree.size(leftChain));
+        assertArrayEquals(ascending, binaryTree.preOrderArray(leftChain));
+        assertArrayEquals(descending, binaryTree.inOrderArray(leftChain));
+        assertArrayEquals(descending, binaryTree.postOrderArray(leftChain));
+        assertArrayEquals(ascending, toArray(collect(action -> binaryTree.morrisPreOrder(leftChain, action))));
+        assertArrayEquals(descending, toArray(collect(action -> binaryTree.morrisInOrder(leftChain, action))));
+        assertArrayEquals(descending, toArray(collect(action -> binaryTree.morrisPostOrder(leftChain, action))));
+
+        //右链：先序与中序为0..n-1，后序为n-1..0；Morris后序要反转整条右链
+        Tree.TreeNode rightChain = new Tree.TreeNode(0);
+        node = rightChain;
+        for (int i = 1; i < n; i++) {
+            node.right = new Tree.TreeNode(i);
+            node = node.right;
+        }
+        assertArrayEquals(ascending, binaryTree.preOrderArray(rightChain));
+        assertArrayEquals(ascending, binaryTree.inOrderArray(rightChain));
+        assertArrayEquals(descending, binaryTree.postOrderArray(rightChain));
+        assertArrayEquals(descending, toArray(collect(action -> binaryTree.morrisPostOrder(rightChain, action))));
+        assertArrayEquals(ascending, binaryTree.preOrderArray(rightChain));
+    }
+
+    /**
+     * 测试数组树与链式树互相转换后结构不变，各种遍历与高度和链式树的结果一致，转换不改动原树
+     */
+    @Test
+    void testArrayTree_MatchesNodes() {
+        Random random = new Random(45);
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        for (int round = 0; round < 300; round++) {
+            Tree.TreeNode root = randomTree(random, round == 0 ? 0 : 1 + random.nextInt(400));
+            List<Integer> shape = shapeOf(root);
+            Tree.ArrayTree arrayTree = Tree.ArrayTree.fromNodes(root);
+            assertEquals(shape, shapeOf(root));
+            assertEquals(shape, shapeOf(arrayTree.toNodes()));
+
+            List<Integer> pre = new ArrayList<>();
+            List<Integer> in = new ArrayList<>();
+            List<Integer> post = new ArrayList<>();
+            binaryTree.preOrder(root, pre);
+            binaryTree.inOrder(root, in);
+            binaryTree.postOrder(root, post);
+            assertEquals(pre.size(), arrayTree.size());
+            assertEquals(pre, collect(arrayTree::preOrder));
+            assertEquals(in, collect(arrayTree::inOrder));
+            assertEquals(post, collect(arrayTree::postOrder));
+            assertArrayEquals(toArray(binaryTree.levelOrder(root)), arrayTree.levelOrder());
+            assertEquals(heightOf(root), arrayTree.height());
+            //先序编号：节点编号就是它在先序中的位置
+            for (int i = 0; i < arrayTree.size(); i++) {
+                assertEquals((int) pre.get(i), arrayTree.val[i]);
+            }
+        }
+        Tree.ArrayTree empty = Tree.ArrayTree.fromNodes(null);
+        assertEquals(-1, empty.root);
+        assertTrue(empty.toNodes() == null);
+        assertEquals(0, empty.height());
+        assertEquals(0, empty.levelOrder().length);
+    }
+
+    /**
+     * 测试由升序数组构造的平衡树及其层序、vEB布局：中序仍是升序，高度最小，查找结果正确
+     */
+    @Test
+    void testArrayTree_LayoutsPreserveFind() {
+        int[] sizes = {0, 1, 2, 3, 7, 8, 100, 255, 256, 1000, 100000};
+        for (int n : sizes) {
+            int[] sorted = new int[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = 2 * i - n; //含负数；奇数都不在树中
+            }
+            Tree.ArrayTree tree = Tree.ArrayTree.fromSorted(sorted);
+            int height = 32 - Integer.numberOfLeadingZeros(n);
+            for (Tree.ArrayTree layout : new Tree.ArrayTree[]{tree, tree.bfsLayout(), tree.vebLayout()}) {
+                assertEquals(n, layout.size());
+                assertEquals(height, layout.height());
+                assertArrayEquals(sorted, toArray(collect(layout::inOrder)));
+                for (int i = 0; i < n; i++) {
+                    int node = layout.find(sorted[i]);
+                    assertTrue(node >= 0);
+                    assertEquals(sorted[i], layout.val[node]);
+                    assertEquals(-1, layout.find(sorted[i] + 1));
+                }
+                assertEquals(-1, layout.find(-n - 1));
+            }
+            if (n > 0) {
+                assertEquals(0, tree.bfsLayout().root);
+                assertEquals(0, tree.vebLayout().root);
+                assertArrayEquals(tree.levelOrder(), Arrays.copyOf(tree.bfsLayout().val, n));
+            }
+        }
+    }
+
+    /**
+     * 测试退化成链的深树转换为数组树不会栈溢出
+     */
+    @Test
+    void testArrayTree_DeepChain() {
+        int n = 1_000_000;
+        Tree.TreeNode root = new Tree.TreeNode(0);
+        Tree.TreeNode node = root;
+        for (int i = 1; i < n; i++) {
+            node.right = new Tree.TreeNode(i);
+            node = node.right;
+        }
+        Tree.ArrayTree arrayTree = Tree.ArrayTree.fromNodes(root);
+        assertEquals(n, arrayTree.size());
+        assertEquals(n, arrayTree.height());
+        assertEquals(n - 1, arrayTree.find(n - 1));
+        int[] inOrder = toArray(collect(arrayTree::inOrder));
+        for (int i = 0; i < n; i++) {
+            assertEquals(i, inOrder[i]);
+        }
+        assertEquals(n, new Tree.BinaryTree().size(arrayTree.toNodes()));
+    }
+
+    /**
+     * 测试层序遍历输出的层边界、逐层批量处理与按深度分组的结果一致；
+     * 同一个实例反复使用，包括回调抛出异常中断之后
+     */
+    @Test
+    void testLevelOrder_LevelBoundaries() {
+        Random random = new Random(46);
+        Tree.LevelOrder levelOrder = new Tree.LevelOrder();
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        for (int round = 0; round < 300; round++) {
+            Tree.TreeNode root = randomTree(random, round == 0 ? 0 : 1 + random.nextInt(400));
+            List<List<Integer>> levels = levelsOf(root);
+            List<Integer> flat = new ArrayList<>();
+            int[] expectedBoundaries = new int[levels.size() + 1];
+            for (int k = 0; k < levels.size(); k++) {
+                flat.addAll(levels.get(k));
+                expectedBoundaries[k + 1] = flat.size();
+            }
+
+            List<Integer> values = new ArrayList<>();
+            assertArrayEquals(expectedBoundaries, levelOrder.traverse(root, values::add));
+            assertEquals(flat, values);
+            assertEquals(flat, binaryTree.levelOrder(root));
+
+            List<List<Integer>> batches = new ArrayList<>();
+            int levelCount = levelOrder.forEachLevel(root, (level, batch, count) -> {
+                assertEquals(batches.size(), level);
+                List<Integer> list = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    list.add(batch[i]);
+                }
+                batches.add(list);
+            });
+            assertEquals(levels.size(), levelCount);
+            assertEquals(levels, batches);
+
+            if (round % 10 == 1 && flat.size() >= 5) {
+                //遍历到一半中断，队列中还留着节点
+                int[] seen = new int[1];
+                assertThrows(IllegalStateException.class, () -> levelOrder.traverse(root, v -> {
+                    if (++seen[0] == 5) {
+                        throw new IllegalStateException();
+                    }
+                }));
+            }
+        }
+        assertArrayEquals(new int[]{0}, levelOrder.traverse(null, v -> { }));
+        assertEquals(0, levelOrder.forEachLevel(null, (level, batch, count) -> { }));
+        assertTrue(binaryTree.levelOrder(null).isEmpty());
+    }
+
+    /**
+     * 测试并行层序遍历与顺序遍历结果一致，包括层宽超过并行阈值的茂密树
+     */
+    @Test
+    void testLevelOrder_ParallelMatchesSequential() {
+        Random random = new Random(4646);
+        Tree.LevelOrder levelOrder = new Tree.LevelOrder();
+        List<Tree.TreeNode> roots = new ArrayList<>();
+        roots.add(null);
+        for (int i = 0; i < 50; i++) {
+            roots.add(randomTree(random, 1 + random.nextInt(400)));
+        }
+        //接近完全二叉树：第k个节点的孩子是2k+1、2k+2，随机剪掉少量子树，最宽的层超过并行阈值
+        for (int n : new int[]{1 << 17, 200000}) {
+            Tree.TreeNode[] nodes = new Tree.TreeNode[n];
+            for (int i = n - 1; i >= 0; i--) {
+                nodes[i] = new Tree.TreeNode(random.nextInt());
+                if (2 * i + 1 < n && random.nextInt(50) != 0) {
+                    nodes[i].left = nodes[2 * i + 1];
+                }
+                if (2 * i + 2 < n && random.nextInt(50) != 0) {
+                    nodes[i].right = nodes[2 * i + 2];
+                }
+            }
+            roots.add(nodes[0]);
+        }
+        int widest = 0;
+        for (Tree.TreeNode root : roots) {
+            List<Integer> values = new ArrayList<>();
+            int[] boundaries = levelOrder.traverse(root, values::add);
+            Tree.LevelOrder.Result result = Tree.LevelOrder.parallel(root);
+            assertArrayEquals(toArray(values), result.values);
+            assertArrayEquals(boundaries, result.levelStart);
+            assertEquals(boundaries.length - 1, result.levelCount());
+            for (int k = 0; k + 1 < boundaries.length; k++) {
+                widest = Math.max(widest, boundaries[k + 1] - boundaries[k]);
+            }
+        }
+        assertTrue(widest > Tree.LevelOrder.PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * 测试四种建树方法由随机树的遍历序列还原出同一棵树
+     */
+    @Test
+    void testBuildTree_RestoresRandomTrees() {
+        Random random = new Random(47);
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        for (int round = 0; round < 300; round++) {
+            Tree.TreeNode root = distinctValues(randomTree(random, 1 + random.nextInt(400)), random);
+            List<Integer> shape = shapeOf(root);
+            int[] pre = binaryTree.preOrderArray(root);
+            int[] in = binaryTree.inOrderArray(root);
+            int[] post = binaryTree.postOrderArray(root);
+            int[] level = toArray(binaryTree.levelOrder(root));
+            assertEquals(shape, shapeOf(binaryTree.buildTree(pre, in)));
+            assertEquals(shape, shapeOf(binaryTree.buildTreeFromPostorder(post, in)));
+            assertEquals(shape, shapeOf(binaryTree.buildTreeFromLevelOrder(level, in)));
+            assertEquals(shape, shapeOf(binaryTree.buildTreeParallel(pre, in)));
+        }
+        assertTrue(binaryTree.buildTree(new int[0], new int[0]) == null);
+        assertTrue(binaryTree.buildTreeParallel(new int[0], new int[0]) == null);
+        assertTrue(binaryTree.buildTree(new int[]{1}, new int[]{1, 2}) == null);
+    }
+
+    /**
+     * 测试不是同一棵树的遍历序列被拒绝：随机的两个排列要么抛出IllegalArgumentException，
+     * 要么建出的树的遍历恰好就是这两个序列
+     */
+    @Test
+    void testBuildTree_RejectsMismatchedSequences() {
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        int[] a = {1, 2, 3};
+        int[] b = {4, 5, 6};
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTree(a, b));
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTreeFromPostorder(a, b));
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTreeFromLevelOrder(a, b));
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTreeParallel(a, b));
+        int[] rotated = {3, 1, 2};
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTree(a, rotated));
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTreeParallel(a, rotated));
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTree(new int[]{1, 1, 2}, a));
+
+        Random random = new Random(4747);
+        int rejected = 0;
+        for (int round = 0; round < 2000; round++) {
+            int n = 1 + random.nextInt(8);
+            int[] first = shuffledRange(n, random);
+            int[] inorder = shuffledRange(n, random);
+            if (round % 2 == 0) {
+                //中序换成不同的值集合
+                inorder[random.nextInt(n)] = n + random.nextInt(3);
+            }
+            try {
+                Tree.TreeNode root = binaryTree.buildTree(first, inorder);
+                assertArrayEquals(first, binaryTree.preOrderArray(root));
+                assertArrayEquals(inorder, binaryTree.inOrderArray(root));
+                assertEquals(shapeOf(root), shapeOf(binaryTree.buildTreeParallel(first, inorder)));
+            } catch (IllegalArgumentException e) {
+                rejected++;
+                assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTreeParallel(first, inorder));
+            }
+            try {
+                Tree.TreeNode root = binaryTree.buildTreeFromPostorder(first, inorder);
+                assertArrayEquals(first, binaryTree.postOrderArray(root));
+                assertArrayEquals(inorder, binaryTree.inOrderArray(root));
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+            try {
+                Tree.TreeNode root = binaryTree.buildTreeFromLevelOrder(first, inorder);
+                assertArrayEquals(first, toArray(binaryTree.levelOrder(root)));
+                assertArrayEquals(inorder, binaryTree.inOrderArray(root));
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 0);
+    }
+
+    /**
+     * 测试退化成链的百万节点树：四种建树方法都不会栈溢出；并行建树在阈值以上分叉构造茂密的树
+     */
+    @Test
+    void testBuildTree_DeepChainAndParallel() {
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        int n = 1 << 20;
+        //左链：先序与层序为0..n-1，中序与后序为n-1..0
+        int[] ascending = new int[n];
+        int[] descending = new int[n];
+        for (int i = 0; i < n; i++) {
+            ascending[i] = i;
+            descending[i] = n - 1 - i;
+        }
+        Tree.TreeNode[] roots = {
+                binaryTree.buildTree(ascending, descending),
+                binaryTree.buildTreeFromPostorder(descending, descending),
+                binaryTree.buildTreeFromLevelOrder(ascending, descending),
+                binaryTree.buildTreeParallel(ascending, descending)};
+        for (Tree.TreeNode root : roots) {
+            assertArrayEquals(ascending, binaryTree.preOrderArray(root));
+            assertArrayEquals(descending, binaryTree.inOrderArray(root));
+        }
+        //右链：中序也是0..n-1
+        assertArrayEquals(descending, binaryTree.postOrderArray(binaryTree.buildTree(ascending, ascending)));
+        assertArrayEquals(descending, binaryTree.postOrderArray(binaryTree.buildTreeParallel(ascending, ascending)));
+        assertArrayEquals(ascending, binaryTree.inOrderArray(binaryTree.buildTreeFromPostorder(descending, ascending)));
+
+        //平衡树的左右子树都超过并行阈值
+        Tree.TreeNode balanced = Tree.ArrayTree.fromSorted(ascending).toNodes();
+        int[] pre = binaryTree.preOrderArray(balanced);
+        Tree.TreeNode built = binaryTree.buildTreeParallel(pre, ascending);
+        assertArrayEquals(pre, binaryTree.preOrderArray(built));
+        assertArrayEquals(ascending, binaryTree.inOrderArray(built));
+        assertEquals(shapeOf(balanced), shapeOf(built));
+        //深处的值不在中序中：分叉出去的子任务抛出的异常传回调用方
+        pre[n - 1] = -1;
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTreeParallel(pre, ascending));
+        assertThrows(IllegalArgumentException.class, () -> binaryTree.buildTree(pre, ascending));
+    }
+
+    /**
+     * 测试不可变线索树的三种迭代器与递归遍历结果一致，构造不改动原树
+     */
+    @Test
+    void testImmutableThreadedTree_MatchesRecursive() {
+        Random random = new Random(48);
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        for (int round = 0; round < 300; round++) {
+            Tree.TreeNode root = randomTree(random, round == 0 ? 0 : 1 + random.nextInt(400));
+            List<Integer> shape = shapeOf(root);
+            Tree.ImmutableThreadedTree tree = Tree.ImmutableThreadedTree.of(root);
+            assertEquals(shape, shapeOf(root));
+
+            List<Integer> pre = new ArrayList<>();
+            List<Integer> in = new ArrayList<>();
+            List<Integer> post = new ArrayList<>();
+            binaryTree.preOrder(root, pre);
+            binaryTree.inOrder(root, in);
+            binaryTree.postOrder(root, post);
+            assertEquals(pre.size(), tree.size());
+            assertEquals(pre, collect(tree.preOrder()::forEachRemaining));
+            assertEquals(in, collect(tree.inOrder()::forEachRemaining));
+            assertEquals(post, collect(tree.postOrder()::forEachRemaining));
+            assertEquals(in, collect(Tree.ImmutableThreadedTree.of(Tree.ArrayTree.fromNodes(root)).inOrder()::forEachRemaining));
+        }
+        PrimitiveIterator.OfInt empty = Tree.ImmutableThreadedTree.of((Tree.TreeNode) null).preOrder();
+        assertTrue(!empty.hasNext());
+        assertThrows(NoSuchElementException.class, empty::nextInt);
+    }
+
+    /**
+     * 测试多个线程同时在同一棵线索树上迭代、同时由同一棵原树构造，结果都正确
+     */
+    @Test
+    void testImmutableThreadedTree_ConcurrentIteration() throws Exception {
+        Random random = new Random(4848);
+        Tree.TreeNode root = randomTree(random, 20000);
+        Tree.BinaryTree binaryTree = new Tree.BinaryTree();
+        int[] pre = binaryTree.preOrderArray(root);
+        int[] in = binaryTree.inOrderArray(root);
+        int[] post = binaryTree.postOrderArray(root);
+        Tree.ImmutableThreadedTree tree = Tree.ImmutableThreadedTree.of(root);
+
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                futures.add(pool.submit(() -> {
+                    for (int round = 0; round < 50; round++) {
+                        //一半线程同时从原树重新构造，原树不能被临时改动
+                        Tree.ImmutableThreadedTree shared = id % 2 == 0 ? tree : Tree.ImmutableThreadedTree.of(root);
+                        assertArrayEquals(pre, toArray(collect(shared.preOrder()::forEachRemaining)));
+                        assertArrayEquals(in, toArray(collect(shared.inOrder()::forEachRemaining)));
+                        assertArrayEquals(post, toArray(collect(shared.postOrder()::forEachRemaining)));
+                        assertArrayEquals(in, binaryTree.inOrderArray(root));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // 把[from, to)内的项依次展开成 键, 值, 键, 值, ...
+    private static List<Long> entries(Tree.IntLongIndex index, int from, int to) {
+        List<Long> result = new ArrayList<>();
+        index.range(from, to, (k, v) -> {
+            result.add((long) k);
+            result.add(v);
+        });
+        return result;
+    }
+
+    private static List<Long> entries(TreeMap<Integer, Long> map, int from, int to) {
+        List<Long> result = new ArrayList<>();
+        if (from < to) {
+            for (Map.Entry<Integer, Long> entry : map.subMap(from, to).entrySet()) {
+                result.add((long) entry.getKey());
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    // 原来的构造方式：每次把剩余节点排序后合并最小的两个，带权路径长度为每次合并的权重之和
+    private static long referenceWeightedPathLength(long[] weights) {
+        List<Long> list = new ArrayList<>();
+        for (long w : weights) {
+            list.add(w);
+        }
+        long sum = 0;
+        while (list.size() > 1) {
+            Collections.sort(list);
+            long merged = list.remove(0) + list.remove(0);
+            sum += merged;
+            list.add(merged);
+        }
+        return sum;
+    }
+
+    // 按叶子深度计算节点树的带权路径长度
+    private static long weightedPathLength(Tree.HuffmanNode root) {
+        long sum = 0;
+        Deque<Tree.HuffmanNode> nodes = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        nodes.push(root);
+        depths.push(0);
+        while (!nodes.isEmpty()) {
+            Tree.HuffmanNode node = nodes.pop();
+            int depth = depths.pop();
+            if (node.left == null && node.right == null) {
+                sum += node.weight * depth;
+                continue;
+            }
+            nodes.push(node.left);
+            depths.push(depth + 1);
+            nodes.push(node.right);
+            depths.push(depth + 1);
+        }
+        return sum;
+    }
+
+    // 按频率生成打乱顺序的字节数据
+    private static byte[] symbolsOf(long[] freqs, Random random) {
+        int total = 0;
+        for (long f : freqs) {
+            total += (int) f;
+        }
+        byte[] data = new byte[total];
+        int i = 0;
+        for (int s = 0; s < freqs.length; s++) {
+            for (long k = 0; k < freqs[s]; k++) {
+                data[i++] = (byte) s;
+            }
+        }
+        for (int j = data.length - 1; j > 0; j--) {
+            int r = random.nextInt(j + 1);
+            byte t = data[j];
+            data[j] = data[r];
+            data[r] = t;
+        }
+        return data;
+    }
+
+    // 复制一份容器并改坏，打开时应抛出IllegalArgumentException
+    private static void assertCorrupt(byte[] compressed, Consumer<ByteBuffer> corrupt) {
+        ByteBuffer buf = ByteBuffer.wrap(compressed.clone());
+        corrupt.accept(buf);
+        assertThrows(IllegalArgumentException.class, () -> Tree.HuffmanBlockCodec.open(buf));
+    }
+
+    // 随机形状的树：每个新节点从随机节点出发随机向左右走，挂到第一个空位上
+    private static Tree.TreeNode randomTree(Random random, int n) {
+        if (n == 0) {
+            return null;
+        }
+        List<Tree.TreeNode> nodes = new ArrayList<>();
+        nodes.add(new Tree.TreeNode(random.nextInt(1000)));
+        for (int i = 1; i < n; i++) {
+            Tree.TreeNode child = new Tree.TreeNode(random.nextInt(1000));
+            Tree.TreeNode node = nodes.get(random.nextInt(nodes.size()));
+            while (true) {
+                if (random.nextBoolean()) {
+                    if (node.left == null) {
+                        node.left = child;
+                        break;
+                    }
+                    node = node.left;
+                } else {
+                    if (node.right == null) {
+                        node.right = child;
+                        break;
+                    }
+                    node = node.right;
+                }
+            }
+            nodes.add(child);
+        }
+        return nodes.get(0);
+    }
+
+    // 树的形状：先序的节点值，空孩子记为null（非递归，TreeNode的equals会递归比较）
+    private static List<Integer> shapeOf(Tree.TreeNode root) {
+        List<Integer> shape = new ArrayList<>();
+        Tree.TreeNode none = new Tree.TreeNode(0); //ArrayDeque不能存null，用哑节点代替空孩子
+        Deque<Tree.TreeNode> stack = new ArrayDeque<>();
+        stack.push(root == null ? none : root);
+        while (!stack.isEmpty()) {
+            Tree.TreeNode node = stack.pop();
+            if (node == none) {
+                shape.add(null);
+                continue;
+            }
+            shape.add(node.val);
+            stack.push(node.right == null ? none : node.right);
+            stack.push(node.left == null ? none : node.left);
+        }
+        return shape;
+    }
+
+    private static List<Integer> collect(Consumer<IntConsumer> traversal) {
+        List<Integer> values = new ArrayList<>();
+        traversal.accept(values::add);
+        return values;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static int heightOf(Tree.TreeNode root) {
+        return root == null ? 0 : 1 + Math.max(heightOf(root.left), heightOf(root.right));
+    }
+
+    // 按深度分组的节点值，每层从左到右
+    private static List<List<Integer>> levelsOf(Tree.TreeNode root) {
+        List<List<Integer>> levels = new ArrayList<>();
+        collectLevels(root, 0, levels);
+        return levels;
+    }
+
+    private static void collectLevels(Tree.TreeNode node, int depth, List<List<Integer>> levels) {
+        if (node == null) {
+            return;
+        }
+        if (levels.size() == depth) {
+            levels.add(new ArrayList<>());
+        }
+        levels.get(depth).add(node.val);
+        collectLevels(node.left, depth + 1, levels);
+        collectLevels(node.right, depth + 1, levels);
+    }
+
+    // 把树的节点值换成互不相同的随机值
+    private static Tree.TreeNode distinctValues(Tree.TreeNode root, Random random) {
+        Deque<Tree.TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        int next = random.nextInt(1000) - 500;
+        while (!stack.isEmpty()) {
+            Tree.TreeNode node = stack.pop();
+            node.val = next;
+            next += 1 + random.nextInt(5);
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+        }
+        return root;
+    }
+
+    private static int[] shuffledRange(int n, Random random) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, random);
+        return toArray(values);
+    }
+}